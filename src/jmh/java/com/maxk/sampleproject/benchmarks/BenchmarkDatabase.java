@@ -0,0 +1,45 @@
+package com.maxk.sampleproject.benchmarks;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+
+import java.util.UUID;
+
+/**
+ * An embedded in-memory H2 database with the application's entities, set up the same way as
+ * {@code DAOTestExtension} sets up the DAO tests.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    final SessionFactory sessionFactory;
+    final AccountDAO accountDAO;
+    final MoneyTransferDAO transferDAO;
+    final TransactionRunner transactionRunner;
+
+    BenchmarkDatabase() {
+        sessionFactory = new Configuration()
+            .setProperty(AvailableSettings.URL, "jdbc:h2:mem:" + UUID.randomUUID())
+            .setProperty(AvailableSettings.USER, "sa")
+            .setProperty(AvailableSettings.PASS, "")
+            .setProperty(AvailableSettings.DRIVER, "org.h2.Driver")
+            .setProperty(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect")
+            .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+            .setProperty(AvailableSettings.CURRENT_SESSION_CONTEXT_CLASS, "managed")
+            .addAnnotatedClass(Account.class)
+            .addAnnotatedClass(MoneyTransfer.class)
+            .buildSessionFactory();
+        accountDAO = new AccountDAO(sessionFactory);
+        transferDAO = new MoneyTransferDAO(sessionFactory);
+        transactionRunner = new TransactionRunner(sessionFactory);
+    }
+
+    @Override
+    public void close() {
+        sessionFactory.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.maxk.sampleproject.benchmarks;
+
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DAO reads against tables of {@code rows} accounts and {@code rows} transfers.
+ * Each operation runs in its own session and transaction, as it would behind a resource method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DaoBenchmark {
+    private static final int ACCOUNTS_WITH_TRANSFERS = 100;
+    private static final int INSERT_CHUNK = 1_000;
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private BenchmarkDatabase database;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        for (int offset = 0; offset < rows; offset += INSERT_CHUNK) {
+            int chunk = Math.min(INSERT_CHUNK, rows - offset);
+            int first = offset;
+            database.transactionRunner.inTransaction(() -> {
+                for (int i = 0; i < chunk; i++) {
+                    long accountId = (first + i) % ACCOUNTS_WITH_TRANSFERS + 1;
+                    database.accountDAO.save(new Account("John", "Doe", 100_00L));
+                    database.transferDAO.create(new MoneyTransfer(accountId, null, 1, TransferType.DEPOSIT));
+                }
+                database.sessionFactory.getCurrentSession().flush();
+                database.sessionFactory.getCurrentSession().clear();
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<Account> findById() {
+        long accountId = ThreadLocalRandom.current().nextLong(rows) + 1;
+        return database.transactionRunner.inTransaction(() -> database.accountDAO.findById(accountId));
+    }
+
+    @Benchmark
+    public List<Account> findAll() {
+        return database.transactionRunner.inTransaction(database.accountDAO::findAll);
+    }
+
+    @Benchmark
+    public List<MoneyTransfer> getByAccountId() {
+        long accountId = ThreadLocalRandom.current().nextLong(ACCOUNTS_WITH_TRANSFERS) + 1;
+        return database.transactionRunner.inTransaction(() -> database.transferDAO.getByAccountId(accountId));
+    }
+}
@@ -0,0 +1,86 @@
+package com.maxk.sampleproject.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import com.maxk.sampleproject.resources.BinaryFormats;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialisation of account and transfer lists with the object mapper Dropwizard configures, as JSON and as
+ * the binary encodings of {@link BinaryFormats}. Payload sizes are compared in {@code AccountResourceTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializationBenchmark {
+    private static final TypeReference<List<MoneyTransfer>> TRANSFER_LIST = new TypeReference<>() {
+    };
+
+    @Param({"10", "1000"})
+    public int size;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private List<Account> accounts;
+    private List<MoneyTransfer> transfers;
+    private byte[] encodedTransfers;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        switch (format) {
+            case "SMILE":
+                objectMapper = BinaryFormats.newSmileMapper();
+                break;
+            case "CBOR":
+                objectMapper = BinaryFormats.newCborMapper();
+                break;
+            default:
+                objectMapper = Jackson.newObjectMapper();
+        }
+        accounts = new ArrayList<>(size);
+        transfers = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Account account = new Account("John", "Doe", 1_234_56L * i);
+            account.setId(i);
+            accounts.add(account);
+            MoneyTransfer transfer = new MoneyTransfer(i, (long) i + 1, 12_34L, TransferType.ACCOUNT_TO_ACCOUNT);
+            transfer.setId(i);
+            transfers.add(transfer);
+        }
+        encodedTransfers = objectMapper.writeValueAsBytes(transfers);
+    }
+
+    @Benchmark
+    public byte[] writeAccounts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(accounts);
+    }
+
+    @Benchmark
+    public byte[] writeTransfers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transfers);
+    }
+
+    @Benchmark
+    public List<MoneyTransfer> readTransfers() throws IOException {
+        return objectMapper.readValue(encodedTransfers, TRANSFER_LIST);
+    }
+}
@@ -0,0 +1,111 @@
+package com.maxk.sampleproject.benchmarks;
+
+import com.maxk.sampleproject.AsyncTransferConfiguration.ThreadMode;
+import com.maxk.sampleproject.SampleApplication;
+import com.maxk.sampleproject.SampleApplicationConfiguration;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
+import io.dropwizard.testing.ResourceHelpers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of {@code requests} concurrent {@code POST /accounts/transfer} requests against the running application,
+ * with {@code asyncTransfers} on PLATFORM or VIRTUAL threads. Both admit {@link #CONNECTIONS} transfers at a time,
+ * as many as the database pool has connections, and queue the rest, so what differs is the cost of the waiting
+ * transfers. The other endpoints run on Jetty's request threads in either mode.
+ *
+ * <p>VIRTUAL needs Java 21 or later; on older JDKs the application refuses to start and JMH reports the error.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadModeBenchmark {
+    private static final String CONFIG_PATH = ResourceHelpers.resourceFilePath("test-sample.yml");
+    private static final int CONNECTIONS = 10;
+    private static final int ACCOUNTS = 1_000;
+    private static final int MAX_REQUESTS = 1_000;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ThreadMode threadMode;
+
+    @Param({"100", "1000"})
+    public int requests;
+
+    private DropwizardTestSupport<SampleApplicationConfiguration> application;
+    private HttpClient client;
+    private URI transferUri;
+
+    @Setup
+    public void setUp() throws Exception {
+        application = new DropwizardTestSupport<>(SampleApplication.class, CONFIG_PATH,
+            ConfigOverride.config("database.url", "jdbc:h2:" + createTempFile()),
+            ConfigOverride.config("database.maxSize", String.valueOf(CONNECTIONS)),
+            ConfigOverride.config("asyncTransfers.enabled", "true"),
+            ConfigOverride.config("asyncTransfers.threadMode", threadMode.name()),
+            ConfigOverride.config("asyncTransfers.threads", String.valueOf(CONNECTIONS)),
+            // Neither mode rejects a burst, so both complete every transfer.
+            ConfigOverride.config("asyncTransfers.queueCapacity", String.valueOf(MAX_REQUESTS)));
+        application.before();
+        application.getApplication().run("db", "migrate", CONFIG_PATH);
+        client = HttpClient.newHttpClient();
+        String baseUrl = "http://localhost:" + application.getLocalPort() + "/accounts";
+        transferUri = URI.create(baseUrl + "/transfer");
+        for (int i = 0; i < ACCOUNTS; i++) {
+            send(URI.create(baseUrl), "{\"name\": \"John\", \"surname\": \"Doe\", \"balance\": 100.00}").join();
+        }
+    }
+
+    private static String createTempFile() throws IOException {
+        File file = File.createTempFile("thread-mode-benchmark", null);
+        file.deleteOnExit();
+        return file.getAbsolutePath();
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.after();
+    }
+
+    @Benchmark
+    public void burst() {
+        List<CompletableFuture<Void>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            long accountId = ThreadLocalRandom.current().nextLong(ACCOUNTS) + 1;
+            responses.add(send(transferUri,
+                "{\"accountId\": " + accountId + ", \"moneyAmount\": 0.01, \"transferType\": \"DEPOSIT\"}"));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private CompletableFuture<Void> send(URI uri, String body) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenAccept(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException(uri + " answered " + response.statusCode());
+            }
+        });
+    }
+}
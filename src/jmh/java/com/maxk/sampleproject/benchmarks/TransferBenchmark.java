@@ -0,0 +1,58 @@
+package com.maxk.sampleproject.benchmarks;
+
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import com.maxk.sampleproject.service.AccountServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountServiceImpl#transferMoney} for each transfer type, one transaction per transfer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransferBenchmark {
+    private static final long OPENING_BALANCE = Long.MAX_VALUE / 4;
+
+    @Param({"DEPOSIT", "WITHDRAW", "ACCOUNT_TO_ACCOUNT"})
+    public TransferType transferType;
+
+    private BenchmarkDatabase database;
+    private AccountServiceImpl accountService;
+    private long sourceAccountId;
+    private Long destinationAccountId;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        accountService = new AccountServiceImpl(database.accountDAO, database.transferDAO);
+        sourceAccountId = database.transactionRunner.inTransaction(() ->
+            database.accountDAO.save(new Account("John", "Doe", OPENING_BALANCE))).getId();
+        long destination = database.transactionRunner.inTransaction(() ->
+            database.accountDAO.save(new Account("Jane", "Doe", OPENING_BALANCE))).getId();
+        destinationAccountId = transferType == TransferType.ACCOUNT_TO_ACCOUNT ? destination : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public MoneyTransfer transferMoney() {
+        MoneyTransfer transfer = new MoneyTransfer(sourceAccountId, destinationAccountId, 1, transferType);
+        database.transactionRunner.inTransaction(() -> accountService.transferMoney(transfer));
+        return transfer;
+    }
+}
@@ -0,0 +1,76 @@
+package com.maxk.sampleproject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.CachingAccountDAO;
+import com.maxk.sampleproject.model.Account;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.TimeUnit;
+
+public class AccountCacheConfiguration {
+    private boolean enabled = false;
+
+    @Min(1)
+    private long maximumSize = 10_000;
+
+    @NotNull
+    private Duration expireAfterWrite = Duration.minutes(5);
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    @JsonProperty
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    @JsonProperty
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    @JsonProperty
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    public AccountDAO build(SessionFactory sessionFactory, MetricRegistry metrics) {
+        if (!enabled) {
+            return new AccountDAO(sessionFactory, metrics);
+        }
+        Cache<Long, Account> cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite.toNanoseconds(), TimeUnit.NANOSECONDS)
+            .recordStats()
+            .build();
+        metrics.register(MetricRegistry.name(CachingAccountDAO.class, "hits"),
+            (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register(MetricRegistry.name(CachingAccountDAO.class, "misses"),
+            (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register(MetricRegistry.name(CachingAccountDAO.class, "evictions"),
+            (Gauge<Long>) () -> cache.stats().evictionCount());
+        metrics.register(MetricRegistry.name(CachingAccountDAO.class, "size"),
+            (Gauge<Long>) cache::estimatedSize);
+        return new CachingAccountDAO(sessionFactory, metrics, cache);
+    }
+}
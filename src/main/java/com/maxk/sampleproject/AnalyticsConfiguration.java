@@ -0,0 +1,52 @@
+package com.maxk.sampleproject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.service.TransferAnalytics;
+import io.dropwizard.setup.Environment;
+
+import javax.validation.constraints.Min;
+import java.time.Clock;
+
+public class AnalyticsConfiguration {
+    private boolean enabled = false;
+
+    @Min(1)
+    private int parallelism = 4;
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @JsonProperty
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns null when analytics are disabled.
+     */
+    public TransferAnalytics build(Environment environment, MoneyTransferDAO transferDAO,
+                                   TransactionRunner transactionRunner, TransferArchive archive) {
+        if (!enabled) {
+            return null;
+        }
+        TransferAnalytics analytics = new TransferAnalytics(transferDAO, transactionRunner, archive, parallelism,
+            Clock.systemDefaultZone());
+        environment.lifecycle().manage(analytics);
+        return analytics;
+    }
+}
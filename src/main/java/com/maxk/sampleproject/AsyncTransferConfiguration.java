@@ -0,0 +1,136 @@
+package com.maxk.sampleproject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.InstrumentedExecutorService;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.resources.TransferExecutor;
+import com.maxk.sampleproject.resources.VirtualThreadExecutor;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.ValidationMethod;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class AsyncTransferConfiguration {
+    public enum ThreadMode {
+        /**
+         * A fixed pool of {@code threads} platform threads in front of a {@code queueCapacity} queue.
+         */
+        PLATFORM,
+        /**
+         * A virtual thread per transfer, at most as many running as the database pool has connections.
+         * Needs Java 21 or later.
+         */
+        VIRTUAL
+    }
+
+    private boolean enabled = false;
+
+    @NotNull
+    private ThreadMode threadMode = ThreadMode.PLATFORM;
+
+    @Min(1)
+    private int threads = 16;
+
+    @Min(1)
+    private int queueCapacity = 256;
+
+    @NotNull
+    private Duration retryAfter = Duration.seconds(1);
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    @JsonProperty
+    public void setThreadMode(ThreadMode threadMode) {
+        this.threadMode = threadMode;
+    }
+
+    @JsonProperty
+    public int getThreads() {
+        return threads;
+    }
+
+    @JsonProperty
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    @JsonProperty
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @JsonProperty
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @JsonProperty
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @JsonProperty
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * VIRTUAL is refused on a JDK without virtual threads rather than quietly run on platform threads.
+     */
+    @JsonIgnore
+    @ValidationMethod(message = "threadMode VIRTUAL needs Java 21 or later")
+    public boolean isThreadModeAvailable() {
+        return !enabled || threadMode != ThreadMode.VIRTUAL || VirtualThreadExecutor.isAvailable();
+    }
+
+    public TransferExecutor build(Environment environment, int databasePoolSize) {
+        if (!enabled) {
+            return TransferExecutor.DIRECT;
+        }
+        final MetricRegistry metrics = environment.metrics();
+        if (threadMode == ThreadMode.VIRTUAL) {
+            final VirtualThreadExecutor executor =
+                new VirtualThreadExecutor("transfer-executor", databasePoolSize, databasePoolSize + queueCapacity);
+            environment.lifecycle().manage(executor);
+            metrics.register(MetricRegistry.name(TransferExecutor.class, "queueDepth"),
+                (Gauge<Integer>) () -> executor.getPending() - executor.getRunning());
+            metrics.register(MetricRegistry.name(TransferExecutor.class, "running"),
+                (Gauge<Integer>) executor::getRunning);
+            return new TransferExecutor(executor, Math.max(1, retryAfter.toSeconds()), metrics);
+        }
+        final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final ExecutorService executor = environment.lifecycle().executorService("transfer-executor-%d")
+            .minThreads(threads)
+            .maxThreads(threads)
+            .workQueue(queue)
+            .rejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy())
+            .build();
+        metrics.register(MetricRegistry.name(TransferExecutor.class, "queueDepth"), (Gauge<Integer>) queue::size);
+        metrics.register(MetricRegistry.name(TransferExecutor.class, "queueRemainingCapacity"),
+            (Gauge<Integer>) queue::remainingCapacity);
+        return new TransferExecutor(
+            new InstrumentedExecutorService(executor, metrics, MetricRegistry.name(TransferExecutor.class, "executor")),
+            Math.max(1, retryAfter.toSeconds()), metrics);
+    }
+}
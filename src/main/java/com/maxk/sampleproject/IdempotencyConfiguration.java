@@ -0,0 +1,54 @@
+package com.maxk.sampleproject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.service.TransferIdempotencyStore;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.TimeUnit;
+
+public class IdempotencyConfiguration {
+    @Min(1)
+    private long maximumSize = 100_000;
+
+    @NotNull
+    private Duration expireAfterWrite = Duration.hours(24);
+
+    @JsonProperty
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    @JsonProperty
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    @JsonProperty
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    @JsonProperty
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    public TransferIdempotencyStore build(MoneyTransferDAO transferDAO, TransactionRunner transactionRunner,
+                                          MetricRegistry metrics) {
+        Cache<String, TransferIdempotencyStore.Outcome> outcomes = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite.toNanoseconds(), TimeUnit.NANOSECONDS)
+            .build();
+        metrics.register(MetricRegistry.name(TransferIdempotencyStore.class, "size"),
+            (Gauge<Long>) outcomes::estimatedSize);
+        return new TransferIdempotencyStore(outcomes, transferDAO, transactionRunner, metrics);
+    }
+}
@@ -0,0 +1,69 @@
+package com.maxk.sampleproject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.journal.BalanceJournal;
+import io.dropwizard.util.DataSize;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.nio.file.Paths;
+
+public class JournalConfiguration {
+    @NotEmpty
+    private String directory = "./journal";
+
+    @NotNull
+    private DataSize segmentSize = DataSize.mebibytes(64);
+
+    @NotNull
+    private Duration snapshotInterval = Duration.minutes(1);
+
+    @NotNull
+    private Duration syncInterval = Duration.seconds(1);
+
+    @JsonProperty
+    public String getDirectory() {
+        return directory;
+    }
+
+    @JsonProperty
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    @JsonProperty
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    @JsonProperty
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    @JsonProperty
+    public Duration getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    @JsonProperty
+    public void setSnapshotInterval(Duration snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @JsonProperty
+    public Duration getSyncInterval() {
+        return syncInterval;
+    }
+
+    @JsonProperty
+    public void setSyncInterval(Duration syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+
+    public BalanceJournal build() {
+        return new BalanceJournal(Paths.get(directory), segmentSize.toBytes(),
+            snapshotInterval.toNanoseconds(), syncInterval.toNanoseconds());
+    }
+}
@@ -0,0 +1,120 @@
+package com.maxk.sampleproject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.ReplicationHeartbeatDAO;
+import com.maxk.sampleproject.db.ReplicationLagMonitor;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.resources.AccountResource;
+import com.maxk.sampleproject.service.AccountService;
+import com.maxk.sampleproject.service.AccountServiceImpl;
+import com.maxk.sampleproject.service.ReadRoutingAccountService;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.hibernate.HibernateBundle;
+import io.dropwizard.hibernate.SessionFactoryFactory;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.time.Clock;
+import java.util.List;
+
+public class ReadDatabaseConfiguration {
+    private static final String REPLICA_METRICS = "replica";
+
+    private boolean enabled = false;
+
+    @Valid
+    @NotNull
+    private DataSourceFactory database = new DataSourceFactory();
+
+    @NotNull
+    private Duration maxLag = Duration.seconds(5);
+
+    @NotNull
+    private Duration checkInterval = Duration.seconds(1);
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty("database")
+    public DataSourceFactory getDataSourceFactory() {
+        return database;
+    }
+
+    @JsonProperty("database")
+    public void setDataSourceFactory(DataSourceFactory dataSourceFactory) {
+        this.database = dataSourceFactory;
+    }
+
+    @JsonProperty
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    @JsonProperty
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    @JsonProperty
+    public Duration getCheckInterval() {
+        return checkInterval;
+    }
+
+    @JsonProperty
+    public void setCheckInterval(Duration checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Returns null when reads share the primary database. The bundle contributes its Hibernate settings.
+     */
+    public SessionFactory build(HibernateBundle<?> bundle, Environment environment, List<Class<?>> entities) {
+        if (!enabled) {
+            return null;
+        }
+        return new SessionFactoryFactory().build(bundle, environment, database, entities,
+            AccountResource.READ_DATABASE);
+    }
+
+    /**
+     * Routes the reads of {@code accountService} to the read database built by {@link #build}, or returns it as is
+     * when there is none. The replica DAOs time their queries under a {@code replica} prefix, apart from the primary.
+     */
+    public AccountService route(Environment environment, AccountService accountService,
+                                SessionFactory readSessionFactory, SessionFactory primarySessionFactory,
+                                TransactionRunner transactionRunner, TransferArchive archive) {
+        if (readSessionFactory == null) {
+            return accountService;
+        }
+        MoneyTransferDAO replicaTransferDAO = new MoneyTransferDAO(readSessionFactory, environment.metrics(), archive,
+            MetricRegistry.name(MoneyTransferDAO.class, REPLICA_METRICS));
+        ReplicationLagMonitor lagMonitor = new ReplicationLagMonitor(
+            new ReplicationHeartbeatDAO(primarySessionFactory), transactionRunner,
+            new ReplicationHeartbeatDAO(readSessionFactory), new TransactionRunner(readSessionFactory),
+            java.time.Duration.ofNanos(maxLag.toNanoseconds()),
+            java.time.Duration.ofNanos(checkInterval.toNanoseconds()),
+            Clock.systemDefaultZone());
+        environment.lifecycle().manage(lagMonitor);
+        environment.metrics().register(MetricRegistry.name(ReplicationLagMonitor.class, "lag"),
+            (Gauge<Long>) lagMonitor::getLagMillis);
+        AccountService replica = new AccountServiceImpl(new AccountDAO(readSessionFactory, environment.metrics(),
+            MetricRegistry.name(AccountDAO.class, REPLICA_METRICS)), replicaTransferDAO);
+        return new ReadRoutingAccountService(accountService, replica, lagMonitor, transactionRunner,
+            environment.metrics());
+    }
+}
@@ -0,0 +1,35 @@
+package com.maxk.sampleproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maxk.sampleproject.model.ReconciliationReport;
+import com.maxk.sampleproject.service.BalanceReconciler;
+import io.dropwizard.servlets.tasks.Task;
+
+import javax.ws.rs.core.MediaType;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@code POST /tasks/reconcile-balances} on the admin port: runs a reconciliation and answers with its report.
+ */
+public class ReconcileBalancesTask extends Task {
+    private final BalanceReconciler reconciler;
+    private final ObjectMapper objectMapper;
+
+    public ReconcileBalancesTask(BalanceReconciler reconciler, ObjectMapper objectMapper) {
+        super("reconcile-balances", MediaType.APPLICATION_JSON);
+        this.reconciler = reconciler;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) throws Exception {
+        Optional<ReconciliationReport> report = reconciler.reconcile();
+        if (report.isEmpty()) {
+            throw new IllegalStateException("A reconciliation is already running");
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(output, report.get());
+    }
+}
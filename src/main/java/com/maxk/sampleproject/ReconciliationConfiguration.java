@@ -0,0 +1,78 @@
+package com.maxk.sampleproject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.ReconciliationReport;
+import com.maxk.sampleproject.service.BalanceReconciler;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Clock;
+
+public class ReconciliationConfiguration {
+    private boolean enabled = false;
+
+    @NotNull
+    private Duration interval = Duration.hours(24);
+
+    @Min(1)
+    private int parallelism = 2;
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public Duration getInterval() {
+        return interval;
+    }
+
+    @JsonProperty
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    @JsonProperty
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @JsonProperty
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Schedules reconciliation and registers its admin task. Returns null when it is disabled.
+     */
+    public BalanceReconciler build(Environment environment, AccountDAO accountDAO, MoneyTransferDAO transferDAO,
+                                   TransactionRunner transactionRunner, TransferArchive archive) {
+        if (!enabled) {
+            return null;
+        }
+        BalanceReconciler reconciler = new BalanceReconciler(accountDAO, transferDAO, transactionRunner, archive,
+            parallelism, java.time.Duration.ofNanos(interval.toNanoseconds()), Clock.systemDefaultZone(),
+            environment.metrics());
+        environment.lifecycle().manage(reconciler);
+        environment.admin().addTask(new ReconcileBalancesTask(reconciler, environment.getObjectMapper()));
+        environment.metrics().register(MetricRegistry.name(BalanceReconciler.class, "driftedAccounts"),
+            (Gauge<Long>) () -> {
+                ReconciliationReport report = reconciler.getLastReport();
+                return report == null ? 0 : report.getDrifted();
+            });
+        return reconciler;
+    }
+}
@@ -1,33 +1,73 @@
 package com.maxk.sampleproject;
 
+import com.google.common.collect.ImmutableList;
+import com.maxk.sampleproject.archive.TransferArchive;
 import com.maxk.sampleproject.model.Account;
 import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.ReplicationHeartbeat;
+import com.maxk.sampleproject.model.TransferReservation;
 import com.maxk.sampleproject.db.AccountDAO;
 import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.ShardRouter;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.journal.BalanceJournal;
+import com.maxk.sampleproject.resources.AccountImportResource;
 import com.maxk.sampleproject.resources.AccountResource;
+import com.maxk.sampleproject.resources.AnalyticsResource;
+import com.maxk.sampleproject.resources.BinaryFormats;
+import com.maxk.sampleproject.resources.InvalidTransferTypeExceptionMapper;
+import com.maxk.sampleproject.resources.SequencedAccountResource;
+import com.maxk.sampleproject.resources.ShardedAccountResource;
+import com.maxk.sampleproject.resources.TransferExecutor;
+import com.maxk.sampleproject.service.AccountImporter;
+import com.maxk.sampleproject.service.AnalyticsAccountService;
 import com.maxk.sampleproject.service.AccountService;
 import com.maxk.sampleproject.service.AccountServiceImpl;
+import com.maxk.sampleproject.service.AccountServiceType;
+import com.maxk.sampleproject.service.InstrumentedAccountService;
+import com.maxk.sampleproject.service.JournalAccountService;
+import com.maxk.sampleproject.service.LedgerAccountService;
+import com.maxk.sampleproject.service.TransferAnalytics;
+import com.maxk.sampleproject.service.TransferIdempotencyStore;
+import com.maxk.sampleproject.service.TransferSequencer;
 import io.dropwizard.Application;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.db.DataSourceFactory;
 import io.dropwizard.hibernate.HibernateBundle;
+import io.dropwizard.hibernate.SessionFactoryFactory;
+import io.dropwizard.hibernate.UnitOfWorkApplicationListener;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
 
 public class SampleApplication extends Application<SampleApplicationConfiguration> {
+    static final int JDBC_BATCH_SIZE = 50;
+    private static final ImmutableList<Class<?>> ENTITIES = ImmutableList.of(Account.class, MoneyTransfer.class,
+        TransferReservation.class, ReplicationHeartbeat.class);
+
     public static void main(String[] args) throws Exception {
         new SampleApplication().run(args);
     }
 
     private final HibernateBundle<SampleApplicationConfiguration> hibernateBundle =
-        new HibernateBundle<>(Account.class, MoneyTransfer.class) {
+        new HibernateBundle<>(ENTITIES, new SessionFactoryFactory()) {
             @Override
             public DataSourceFactory getDataSourceFactory(SampleApplicationConfiguration configuration) {
                 return configuration.getDataSourceFactory();
             }
+
+            @Override
+            protected void configure(Configuration configuration) {
+                // Sequence ids leave Hibernate free to batch inserts; database.properties may still override these.
+                setDefault(configuration, AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(JDBC_BATCH_SIZE));
+                setDefault(configuration, AvailableSettings.ORDER_INSERTS, "true");
+                setDefault(configuration, AvailableSettings.ORDER_UPDATES, "true");
+            }
         };
 
     @Override
@@ -52,15 +92,113 @@ public class SampleApplication extends Application<SampleApplicationConfiguratio
             }
         });
         bootstrap.addBundle(hibernateBundle);
+        bootstrap.addCommand(new ShardMigrateCommand());
     }
 
     @Override
     public void run(SampleApplicationConfiguration configuration, Environment environment) {
-        final AccountDAO accountDAO = new AccountDAO(hibernateBundle.getSessionFactory());
-        final MoneyTransferDAO moneyTransferDAO = new MoneyTransferDAO(hibernateBundle.getSessionFactory());
-        final AccountService accountService = new AccountServiceImpl(accountDAO, moneyTransferDAO);
+        final AccountDAO accountDAO = configuration.getAccountCache()
+            .build(hibernateBundle.getSessionFactory(), environment.metrics());
+        final TransferArchive transferArchive = configuration.getTransferArchive().build(environment);
+        final MoneyTransferDAO moneyTransferDAO = new MoneyTransferDAO(hibernateBundle.getSessionFactory(),
+            environment.metrics(), transferArchive);
+        final TransactionRunner transactionRunner = new TransactionRunner(hibernateBundle.getSessionFactory());
+        final SessionFactory readSessionFactory = configuration.getReadDatabase()
+            .build(hibernateBundle, environment, ENTITIES);
+        registerUnitOfWork(environment, AccountResource.READ_DATABASE,
+            readSessionFactory == null ? hibernateBundle.getSessionFactory() : readSessionFactory);
+        configuration.getTransferArchive().schedule(environment, transferArchive, moneyTransferDAO, transactionRunner);
+        final TransferAnalytics transferAnalytics = configuration.getAnalytics()
+            .build(environment, moneyTransferDAO, transactionRunner, transferArchive);
+        configuration.getReconciliation()
+            .build(environment, accountDAO, moneyTransferDAO, transactionRunner, transferArchive);
+        final ShardRouter shardRouter = configuration.getSharding()
+            .build(hibernateBundle, environment, ENTITIES, accountDAO, moneyTransferDAO);
+        final AccountService coreService = shardRouter != null
+            ? configuration.getSharding().buildService(environment, shardRouter, configuration.getTransferRetry())
+            : createAccountService(configuration, environment, accountDAO, moneyTransferDAO);
+        final AccountService analyticsService = transferAnalytics == null ? coreService
+            : new AnalyticsAccountService(coreService, transferAnalytics, accountDAO);
+        final AccountService accountService = configuration.getReadDatabase().route(environment, analyticsService,
+            readSessionFactory, hibernateBundle.getSessionFactory(), transactionRunner, transferArchive);
+        final TransferIdempotencyStore idempotencyStore = configuration.getIdempotency()
+            .build(moneyTransferDAO, transactionRunner, environment.metrics());
+        final TransferExecutor transferExecutor = configuration.getAsyncTransfers()
+            .build(environment, configuration.getDataSourceFactory().getMaxSize());
+        // The shards commit writes of their own, so only the other services warm up their writes.
+        final boolean rollsBack = shardRouter == null;
+        configuration.getWarmUp().build(environment, accountService, rollsBack ? coreService : null, accountDAO,
+            moneyTransferDAO, transactionRunner,
+            readSessionFactory == null ? transactionRunner : new TransactionRunner(readSessionFactory),
+            configuration.getDataSourceFactory().getMaxSize(),
+            configuration.getReadDatabase().getDataSourceFactory().getMaxSize());
 
         environment.jersey().register(RolesAllowedDynamicFeature.class);
-        environment.jersey().register(new AccountResource(accountService));
+        BinaryFormats.newProviders().forEach(environment.jersey()::register);
+        environment.jersey().register(new InvalidTransferTypeExceptionMapper());
+        environment.jersey().register(new AccountImportResource(
+            new AccountImporter(accountDAO, transactionRunner, environment.getValidator()),
+            environment.getObjectMapper()));
+        if (transferAnalytics != null) {
+            environment.jersey().register(new AnalyticsResource(transferAnalytics));
+        }
+        if (configuration.getTransferPipeline().isEnabled()) {
+            final AccountService instrumentedService =
+                new InstrumentedAccountService(accountService, environment.metrics());
+            final TransferSequencer transferSequencer = configuration.getTransferPipeline()
+                .build(instrumentedService, transactionRunner);
+            environment.lifecycle().manage(transferSequencer);
+            environment.jersey().register(new SequencedAccountResource(
+                instrumentedService, environment.getObjectMapper(), idempotencyStore, transferExecutor,
+                transferSequencer));
+        } else {
+            // The sharded service retries on each shard itself, in transactions of that shard.
+            final AccountService retryingService = shardRouter != null ? accountService
+                : configuration.getTransferRetry().build(accountService, transactionRunner, environment.metrics());
+            final AccountService instrumentedService =
+                new InstrumentedAccountService(retryingService, environment.metrics());
+            environment.jersey().register(shardRouter != null
+                ? new ShardedAccountResource(instrumentedService, environment.getObjectMapper(), idempotencyStore,
+                    transferExecutor)
+                : new AccountResource(instrumentedService, environment.getObjectMapper(), idempotencyStore,
+                    transferExecutor));
+        }
+    }
+
+    /**
+     * Adds a session factory to the listener behind {@code @UnitOfWork}, which the Hibernate bundle has registered.
+     */
+    private static void registerUnitOfWork(Environment environment, String name, SessionFactory sessionFactory) {
+        for (Object singleton : environment.jersey().getResourceConfig().getSingletons()) {
+            if (singleton instanceof UnitOfWorkApplicationListener) {
+                ((UnitOfWorkApplicationListener) singleton).registerSessionFactory(name, sessionFactory);
+                return;
+            }
+        }
+        environment.jersey().register(new UnitOfWorkApplicationListener(name, sessionFactory));
+    }
+
+    private static void setDefault(Configuration configuration, String name, String value) {
+        if (configuration.getProperty(name) == null) {
+            configuration.setProperty(name, value);
+        }
+    }
+
+    private AccountService createAccountService(SampleApplicationConfiguration configuration, Environment environment,
+                                                AccountDAO accountDAO, MoneyTransferDAO moneyTransferDAO) {
+        switch (configuration.getAccountServiceType()) {
+            case LEDGER:
+                return new LedgerAccountService(accountDAO, moneyTransferDAO);
+            case JOURNAL:
+                final BalanceJournal journal = configuration.getJournal().build();
+                environment.lifecycle().manage(journal);
+                final JournalAccountService journalService =
+                    new JournalAccountService(accountDAO, moneyTransferDAO, journal);
+                environment.lifecycle().manage(journalService);
+                return journalService;
+            case DATABASE:
+            default:
+                return new AccountServiceImpl(accountDAO, moneyTransferDAO);
+        }
     }
 }
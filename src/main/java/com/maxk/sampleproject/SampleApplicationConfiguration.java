@@ -1,8 +1,11 @@
 package com.maxk.sampleproject;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.service.AccountServiceType;
 import io.dropwizard.Configuration;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.validation.ValidationMethod;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -12,6 +15,57 @@ public class SampleApplicationConfiguration extends Configuration {
     @NotNull
     private DataSourceFactory database = new DataSourceFactory();
 
+    @Valid
+    @NotNull
+    private ReadDatabaseConfiguration readDatabase = new ReadDatabaseConfiguration();
+
+    @NotNull
+    private AccountServiceType accountService = AccountServiceType.DATABASE;
+
+    @Valid
+    @NotNull
+    private TransferPipelineConfiguration transferPipeline = new TransferPipelineConfiguration();
+
+    @Valid
+    @NotNull
+    private AccountCacheConfiguration accountCache = new AccountCacheConfiguration();
+
+    @Valid
+    @NotNull
+    private JournalConfiguration journal = new JournalConfiguration();
+
+    @Valid
+    @NotNull
+    private TransferRetryConfiguration transferRetry = new TransferRetryConfiguration();
+
+    @Valid
+    @NotNull
+    private IdempotencyConfiguration idempotency = new IdempotencyConfiguration();
+
+    @Valid
+    @NotNull
+    private AsyncTransferConfiguration asyncTransfers = new AsyncTransferConfiguration();
+
+    @Valid
+    @NotNull
+    private TransferArchiveConfiguration transferArchive = new TransferArchiveConfiguration();
+
+    @Valid
+    @NotNull
+    private AnalyticsConfiguration analytics = new AnalyticsConfiguration();
+
+    @Valid
+    @NotNull
+    private ShardingConfiguration sharding = new ShardingConfiguration();
+
+    @Valid
+    @NotNull
+    private ReconciliationConfiguration reconciliation = new ReconciliationConfiguration();
+
+    @Valid
+    @NotNull
+    private WarmUpConfiguration warmUp = new WarmUpConfiguration();
+
     @JsonProperty("database")
     public DataSourceFactory getDataSourceFactory() {
         return database;
@@ -21,4 +75,164 @@ public class SampleApplicationConfiguration extends Configuration {
     public void setDataSourceFactory(DataSourceFactory dataSourceFactory) {
         this.database = dataSourceFactory;
     }
+
+    @JsonProperty("readDatabase")
+    public ReadDatabaseConfiguration getReadDatabase() {
+        return readDatabase;
+    }
+
+    @JsonProperty("readDatabase")
+    public void setReadDatabase(ReadDatabaseConfiguration readDatabase) {
+        this.readDatabase = readDatabase;
+    }
+
+    /**
+     * JOURNAL keeps only opening balances in the accounts table, so a replica of it cannot serve account reads.
+     */
+    @JsonIgnore
+    @ValidationMethod(message = "readDatabase cannot be enabled with accountService JOURNAL")
+    public boolean isReadDatabaseSupported() {
+        return !readDatabase.isEnabled() || accountService != AccountServiceType.JOURNAL;
+    }
+
+    /**
+     * The sharded service keeps its own transactions per shard, which the features below know nothing of.
+     */
+    @JsonIgnore
+    @ValidationMethod(message = "sharding requires accountService DATABASE and cannot be enabled together with "
+        + "readDatabase, transferPipeline, transferArchive or analytics")
+    public boolean isShardingSupported() {
+        return !sharding.isEnabled() || accountService == AccountServiceType.DATABASE && !readDatabase.isEnabled()
+            && !transferPipeline.isEnabled() && !transferArchive.isEnabled() && !analytics.isEnabled();
+    }
+
+    /**
+     * Reconciliation compares accounts.balance with the transfers of a single database, which JOURNAL leaves at the
+     * opening balance.
+     */
+    @JsonIgnore
+    @ValidationMethod(message = "reconciliation cannot be enabled with accountService JOURNAL or with sharding")
+    public boolean isReconciliationSupported() {
+        return !reconciliation.isEnabled() || accountService != AccountServiceType.JOURNAL && !sharding.isEnabled();
+    }
+
+    @JsonProperty("accountService")
+    public AccountServiceType getAccountServiceType() {
+        return accountService;
+    }
+
+    @JsonProperty("accountService")
+    public void setAccountServiceType(AccountServiceType accountServiceType) {
+        this.accountService = accountServiceType;
+    }
+
+    @JsonProperty("transferPipeline")
+    public TransferPipelineConfiguration getTransferPipeline() {
+        return transferPipeline;
+    }
+
+    @JsonProperty("transferPipeline")
+    public void setTransferPipeline(TransferPipelineConfiguration transferPipeline) {
+        this.transferPipeline = transferPipeline;
+    }
+
+    @JsonProperty("accountCache")
+    public AccountCacheConfiguration getAccountCache() {
+        return accountCache;
+    }
+
+    @JsonProperty("accountCache")
+    public void setAccountCache(AccountCacheConfiguration accountCache) {
+        this.accountCache = accountCache;
+    }
+
+    @JsonProperty("journal")
+    public JournalConfiguration getJournal() {
+        return journal;
+    }
+
+    @JsonProperty("journal")
+    public void setJournal(JournalConfiguration journal) {
+        this.journal = journal;
+    }
+
+    @JsonProperty("transferRetry")
+    public TransferRetryConfiguration getTransferRetry() {
+        return transferRetry;
+    }
+
+    @JsonProperty("transferRetry")
+    public void setTransferRetry(TransferRetryConfiguration transferRetry) {
+        this.transferRetry = transferRetry;
+    }
+
+    @JsonProperty("idempotency")
+    public IdempotencyConfiguration getIdempotency() {
+        return idempotency;
+    }
+
+    @JsonProperty("idempotency")
+    public void setIdempotency(IdempotencyConfiguration idempotency) {
+        this.idempotency = idempotency;
+    }
+
+    @JsonProperty("asyncTransfers")
+    public AsyncTransferConfiguration getAsyncTransfers() {
+        return asyncTransfers;
+    }
+
+    @JsonProperty("asyncTransfers")
+    public void setAsyncTransfers(AsyncTransferConfiguration asyncTransfers) {
+        this.asyncTransfers = asyncTransfers;
+    }
+
+    @JsonProperty("transferArchive")
+    public TransferArchiveConfiguration getTransferArchive() {
+        return transferArchive;
+    }
+
+    @JsonProperty("transferArchive")
+    public void setTransferArchive(TransferArchiveConfiguration transferArchive) {
+        this.transferArchive = transferArchive;
+    }
+
+    @JsonProperty("analytics")
+    public AnalyticsConfiguration getAnalytics() {
+        return analytics;
+    }
+
+    @JsonProperty("analytics")
+    public void setAnalytics(AnalyticsConfiguration analytics) {
+        this.analytics = analytics;
+    }
+
+    @JsonProperty("sharding")
+    public ShardingConfiguration getSharding() {
+        return sharding;
+    }
+
+    @JsonProperty("sharding")
+    public void setSharding(ShardingConfiguration sharding) {
+        this.sharding = sharding;
+    }
+
+    @JsonProperty("reconciliation")
+    public ReconciliationConfiguration getReconciliation() {
+        return reconciliation;
+    }
+
+    @JsonProperty("reconciliation")
+    public void setReconciliation(ReconciliationConfiguration reconciliation) {
+        this.reconciliation = reconciliation;
+    }
+
+    @JsonProperty("warmUp")
+    public WarmUpConfiguration getWarmUp() {
+        return warmUp;
+    }
+
+    @JsonProperty("warmUp")
+    public void setWarmUp(WarmUpConfiguration warmUp) {
+        this.warmUp = warmUp;
+    }
 }
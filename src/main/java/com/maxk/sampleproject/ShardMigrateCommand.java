@@ -0,0 +1,48 @@
+package com.maxk.sampleproject;
+
+import com.maxk.sampleproject.db.ShardRouter;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.setup.Bootstrap;
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Runs {@code migrations.xml} against every shard database besides the primary, which {@code db migrate} keeps
+ * up to date, and moves each shard's id sequences to the start of its id range.
+ */
+public class ShardMigrateCommand extends ConfiguredCommand<SampleApplicationConfiguration> {
+    private static final String MIGRATIONS = "migrations.xml";
+
+    public ShardMigrateCommand() {
+        super("migrate-shards", "Apply all pending migrations to the shard databases");
+    }
+
+    @Override
+    protected void run(Bootstrap<SampleApplicationConfiguration> bootstrap, Namespace namespace,
+                       SampleApplicationConfiguration configuration) throws Exception {
+        List<DataSourceFactory> databases = configuration.getSharding().getDatabases();
+        for (int i = 1; i <= databases.size(); i++) {
+            ManagedDataSource dataSource = databases.get(i - 1).build(bootstrap.getMetricRegistry(), "shard-" + i);
+            try (Connection connection = dataSource.getConnection()) {
+                Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+                Liquibase liquibase = new Liquibase(MIGRATIONS, new ClassLoaderResourceAccessor(), database);
+                liquibase.setChangeLogParameter("shardFirstId", ShardRouter.firstId(i));
+                liquibase.update(new Contexts(), new LabelExpression());
+            } finally {
+                dataSource.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.maxk.sampleproject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.ShardRouter;
+import com.maxk.sampleproject.service.ShardedAccountService;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.hibernate.HibernateBundle;
+import io.dropwizard.hibernate.SessionFactoryFactory;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import org.hibernate.SessionFactory;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ShardingConfiguration {
+    private boolean enabled = false;
+
+    @Valid
+    @NotNull
+    private List<DataSourceFactory> databases = new ArrayList<>();
+
+    @NotNull
+    private Duration recoveryInterval = Duration.seconds(30);
+
+    @NotNull
+    private Duration creditedRetention = Duration.days(1);
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public List<DataSourceFactory> getDatabases() {
+        return databases;
+    }
+
+    @JsonProperty
+    public void setDatabases(List<DataSourceFactory> databases) {
+        this.databases = databases;
+    }
+
+    @JsonProperty
+    public Duration getRecoveryInterval() {
+        return recoveryInterval;
+    }
+
+    @JsonProperty
+    public void setRecoveryInterval(Duration recoveryInterval) {
+        this.recoveryInterval = recoveryInterval;
+    }
+
+    @JsonProperty
+    public Duration getCreditedRetention() {
+        return creditedRetention;
+    }
+
+    @JsonProperty
+    public void setCreditedRetention(Duration creditedRetention) {
+        this.creditedRetention = creditedRetention;
+    }
+
+    /**
+     * Returns null when sharding is disabled. Shard 0 is the bundle's database, read through the given DAOs;
+     * the others follow in the order of {@code databases}.
+     */
+    public ShardRouter build(HibernateBundle<?> bundle, Environment environment, List<Class<?>> entities,
+                             AccountDAO accountDAO, MoneyTransferDAO transferDAO) {
+        if (!enabled) {
+            return null;
+        }
+        List<ShardRouter.Shard> shards = new ArrayList<>();
+        shards.add(new ShardRouter.Shard(0, bundle.getSessionFactory(), accountDAO, transferDAO));
+        for (int i = 1; i <= databases.size(); i++) {
+            SessionFactory sessionFactory = new SessionFactoryFactory().build(bundle, environment,
+                databases.get(i - 1), entities, "hibernate-shard-" + i);
+            shards.add(new ShardRouter.Shard(i, sessionFactory, new AccountDAO(sessionFactory, environment.metrics()),
+                new MoneyTransferDAO(sessionFactory, environment.metrics())));
+        }
+        return new ShardRouter(shards);
+    }
+
+    /**
+     * Transfers are retried within each shard, as configured by {@code transferRetry}.
+     */
+    public ShardedAccountService buildService(Environment environment, ShardRouter shards,
+                                              TransferRetryConfiguration transferRetry) {
+        ShardedAccountService accountService = new ShardedAccountService(shards,
+            java.time.Duration.ofNanos(recoveryInterval.toNanoseconds()),
+            java.time.Duration.ofNanos(creditedRetention.toNanoseconds()), Clock.systemDefaultZone(),
+            environment.metrics(), (service, transactionRunner) ->
+                transferRetry.build(service, transactionRunner, environment.metrics()));
+        environment.lifecycle().manage(accountService);
+        return accountService;
+    }
+}
@@ -0,0 +1,108 @@
+package com.maxk.sampleproject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.archive.TransferArchiver;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+public class TransferArchiveConfiguration {
+    private boolean enabled = false;
+
+    @NotEmpty
+    private String directory = "./archive";
+
+    @NotNull
+    private Duration maxAge = Duration.days(90);
+
+    @NotNull
+    private Duration segmentDuration = Duration.days(1);
+
+    @NotNull
+    private Duration interval = Duration.hours(1);
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public String getDirectory() {
+        return directory;
+    }
+
+    @JsonProperty
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    @JsonProperty
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    @JsonProperty
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    @JsonProperty
+    public Duration getSegmentDuration() {
+        return segmentDuration;
+    }
+
+    @JsonProperty
+    public void setSegmentDuration(Duration segmentDuration) {
+        this.segmentDuration = segmentDuration;
+    }
+
+    @JsonProperty
+    public Duration getInterval() {
+        return interval;
+    }
+
+    @JsonProperty
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Returns null when archiving is disabled.
+     */
+    public TransferArchive build(Environment environment) {
+        if (!enabled) {
+            return null;
+        }
+        TransferArchive archive = new TransferArchive(Paths.get(directory));
+        environment.lifecycle().manage(archive);
+        environment.metrics().register(MetricRegistry.name(TransferArchive.class, "segments"),
+            (Gauge<Integer>) archive::getSegmentCount);
+        return archive;
+    }
+
+    public void schedule(Environment environment, TransferArchive archive, MoneyTransferDAO transferDAO,
+                         TransactionRunner transactionRunner) {
+        if (archive == null) {
+            return;
+        }
+        environment.lifecycle().manage(new TransferArchiver(archive, transferDAO, transactionRunner,
+            java.time.Duration.ofNanos(maxAge.toNanoseconds()),
+            java.time.Duration.ofNanos(segmentDuration.toNanoseconds()),
+            java.time.Duration.ofNanos(interval.toNanoseconds()),
+            Clock.systemDefaultZone(), environment.metrics()));
+    }
+}
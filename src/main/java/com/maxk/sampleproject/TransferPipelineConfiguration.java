@@ -0,0 +1,68 @@
+package com.maxk.sampleproject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.service.AccountService;
+import com.maxk.sampleproject.service.TransferSequencer;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class TransferPipelineConfiguration {
+    private boolean enabled = false;
+
+    @Min(1)
+    private int queueCapacity = 4096;
+
+    @Min(1)
+    private int batchSize = 64;
+
+    @NotNull
+    private Duration maxBatchDelay = Duration.microseconds(500);
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @JsonProperty
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @JsonProperty
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @JsonProperty
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @JsonProperty
+    public Duration getMaxBatchDelay() {
+        return maxBatchDelay;
+    }
+
+    @JsonProperty
+    public void setMaxBatchDelay(Duration maxBatchDelay) {
+        this.maxBatchDelay = maxBatchDelay;
+    }
+
+    public TransferSequencer build(AccountService accountService, TransactionRunner transactionRunner) {
+        return new TransferSequencer(accountService, transactionRunner,
+            queueCapacity, batchSize, maxBatchDelay.toNanoseconds());
+    }
+}
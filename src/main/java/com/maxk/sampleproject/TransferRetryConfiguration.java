@@ -0,0 +1,58 @@
+package com.maxk.sampleproject;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.service.AccountService;
+import com.maxk.sampleproject.service.RetryingAccountService;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class TransferRetryConfiguration {
+    @Min(1)
+    private int maxAttempts = 5;
+
+    @NotNull
+    private Duration initialBackoff = Duration.milliseconds(5);
+
+    @NotNull
+    private Duration maxBackoff = Duration.milliseconds(200);
+
+    @JsonProperty
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @JsonProperty
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    @JsonProperty
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    @JsonProperty
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    @JsonProperty
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    @JsonProperty
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public RetryingAccountService build(AccountService accountService, TransactionRunner transactionRunner,
+                                        MetricRegistry metrics) {
+        return new RetryingAccountService(accountService, transactionRunner, maxAttempts,
+            initialBackoff.toNanoseconds(), maxBackoff.toNanoseconds(), metrics);
+    }
+}
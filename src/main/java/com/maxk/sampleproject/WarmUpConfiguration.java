@@ -0,0 +1,99 @@
+package com.maxk.sampleproject;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.health.WarmUpHealthCheck;
+import com.maxk.sampleproject.service.AccountService;
+import com.maxk.sampleproject.service.WarmUp;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class WarmUpConfiguration {
+    private boolean enabled = false;
+
+    @Min(1)
+    private int connections = 8;
+
+    @Min(1)
+    private int accounts = 100;
+
+    @Min(0)
+    private int iterations = 5_000;
+
+    @NotNull
+    private Duration timeout = Duration.minutes(2);
+
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @JsonProperty
+    public int getConnections() {
+        return connections;
+    }
+
+    @JsonProperty
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    @JsonProperty
+    public int getAccounts() {
+        return accounts;
+    }
+
+    @JsonProperty
+    public void setAccounts(int accounts) {
+        this.accounts = accounts;
+    }
+
+    @JsonProperty
+    public int getIterations() {
+        return iterations;
+    }
+
+    @JsonProperty
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @JsonProperty
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    @JsonProperty
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Starts the warm-up with the application and registers the health check that waits for it. No more
+     * connections are opened than each pool holds. Returns null when warm-up is disabled.
+     */
+    public WarmUp build(Environment environment, AccountService accountService, AccountService writeService,
+                        AccountDAO accountDAO, MoneyTransferDAO transferDAO, TransactionRunner transactionRunner,
+                        TransactionRunner readTransactionRunner, int maxPoolSize, int maxReadPoolSize) {
+        if (!enabled) {
+            return null;
+        }
+        WarmUp warmUp = new WarmUp(accountService, writeService, accountDAO, transferDAO, transactionRunner,
+            readTransactionRunner, environment.getObjectMapper(), Math.min(connections, maxPoolSize),
+            Math.min(connections, maxReadPoolSize), accounts, iterations,
+            java.time.Duration.ofNanos(timeout.toNanoseconds()));
+        environment.lifecycle().manage(warmUp);
+        environment.healthChecks().register("warm-up", new WarmUpHealthCheck(warmUp));
+        return warmUp;
+    }
+}
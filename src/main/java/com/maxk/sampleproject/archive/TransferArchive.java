@@ -0,0 +1,130 @@
+package com.maxk.sampleproject.archive;
+
+import com.maxk.sampleproject.model.MoneyTransfer;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The segments of transfers moved out of the database by {@link TransferArchiver}, one per time range.
+ * Every transfer dated before {@link #getArchivedUntil()} is read from here, whether or not its row has been
+ * deleted from the database yet.
+ */
+public class TransferArchive implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferArchive.class);
+
+    private final Path directory;
+    private volatile List<TransferSegment> segments = List.of();
+
+    public TransferArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        List<TransferSegment> opened = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                if (TransferSegment.isTemporary(file)) {
+                    LOGGER.info("Deleting unfinished transfer segment {}", file);
+                    Files.delete(file);
+                } else if (TransferSegment.isSegment(file)) {
+                    // A segment that cannot be read is not skipped: its rows are no longer in the database.
+                    opened.add(TransferSegment.open(file));
+                }
+            }
+        }
+        opened.sort(Comparator.comparingLong(segment -> segment.from));
+        segments = List.copyOf(opened);
+        LOGGER.info("Opened {} transfer segments in {}", opened.size(), directory);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * The end of the newest archived range, or null when nothing has been archived yet.
+     */
+    public LocalDateTime getArchivedUntil() {
+        List<TransferSegment> current = segments;
+        if (current.isEmpty()) {
+            return null;
+        }
+        long until = Long.MIN_VALUE;
+        for (TransferSegment segment : current) {
+            until = Math.max(until, segment.to);
+        }
+        return TransferSegment.dateTime(until);
+    }
+
+    /**
+     * The archived transfers from or to an account, oldest first, from the segments ending after {@code after}
+     * (when not null) and no later than {@code until}. Bounding the segments by {@link #getArchivedUntil()} as read
+     * beforehand keeps a segment published meanwhile from being paired with database rows it also holds.
+     */
+    public List<MoneyTransfer> find(long accountId, LocalDateTime after, LocalDateTime until) {
+        long afterSecond = after == null ? Long.MIN_VALUE : TransferSegment.epochSecond(after);
+        long untilSecond = TransferSegment.epochSecond(until);
+        List<MoneyTransfer> transfers = new ArrayList<>();
+        for (TransferSegment segment : segments) {
+            if (segment.to > afterSecond && segment.to <= untilSecond) {
+                transfers.addAll(segment.find(accountId));
+            }
+        }
+        transfers.sort(TransferSegment.ORDER);
+        return transfers;
+    }
+
+    /**
+     * Visits every transfer in the segments ending no later than {@code until}, segment by segment.
+     */
+    public void forEach(LocalDateTime until, Consumer<MoneyTransfer> consumer) {
+        long untilSecond = TransferSegment.epochSecond(until);
+        for (TransferSegment segment : segments) {
+            if (segment.to <= untilSecond) {
+                segment.forEach(consumer);
+            }
+        }
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    Optional<TransferSegment> segmentAt(long from) {
+        return segments.stream().filter(segment -> segment.from == from).findFirst();
+    }
+
+    /**
+     * Makes a segment visible to readers, in place of an earlier one for the same range.
+     */
+    synchronized void publish(TransferSegment segment) {
+        List<TransferSegment> updated = new ArrayList<>(segments.size() + 1);
+        for (TransferSegment existing : segments) {
+            if (existing.from != segment.from) {
+                updated.add(existing);
+            }
+        }
+        updated.add(segment);
+        updated.sort(Comparator.comparingLong(existing -> existing.from));
+        segments = List.copyOf(updated);
+    }
+}
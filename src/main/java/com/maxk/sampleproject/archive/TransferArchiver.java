@@ -0,0 +1,133 @@
+package com.maxk.sampleproject.archive;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically moves transfers older than {@code maxAge} from the database into {@link TransferArchive} segments,
+ * one per {@code segmentDuration} of time. A range is written and published before its rows are deleted, so a
+ * crash in between leaves rows that the next run folds into the existing segment.
+ */
+public class TransferArchiver implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferArchiver.class);
+
+    private final TransferArchive archive;
+    private final MoneyTransferDAO transferDAO;
+    private final TransactionRunner transactionRunner;
+    private final Duration maxAge;
+    private final long segmentSeconds;
+    private final Duration interval;
+    private final Clock clock;
+    private final Timer runs;
+    private final Counter archived;
+    private ScheduledExecutorService scheduler;
+
+    public TransferArchiver(TransferArchive archive, MoneyTransferDAO transferDAO, TransactionRunner transactionRunner,
+                            Duration maxAge, Duration segmentDuration, Duration interval, Clock clock,
+                            MetricRegistry metrics) {
+        if (segmentDuration.getSeconds() < 1) {
+            throw new IllegalArgumentException("Segment duration must be at least a second: " + segmentDuration);
+        }
+        this.archive = archive;
+        this.transferDAO = transferDAO;
+        this.transactionRunner = transactionRunner;
+        this.maxAge = maxAge;
+        this.segmentSeconds = segmentDuration.getSeconds();
+        this.interval = interval;
+        this.clock = clock;
+        this.runs = metrics.timer(MetricRegistry.name(TransferArchiver.class, "runs"));
+        this.archived = metrics.counter(MetricRegistry.name(TransferArchiver.class, "archived"));
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transfer-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Failed to archive transfers", e);
+            }
+        }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Archives every whole range that ended at least {@code maxAge} ago. Returns the number of transfers moved.
+     */
+    public long archive() throws IOException {
+        LocalDateTime cutoff = TransferSegment.dateTime(alignDown(
+            TransferSegment.epochSecond(LocalDateTime.now(clock).minus(maxAge))));
+        long moved = 0;
+        try (Timer.Context ignored = runs.time()) {
+            while (true) {
+                Optional<LocalDateTime> oldest = transactionRunner.inTransaction(
+                    () -> transferDAO.findOldestBefore(cutoff));
+                if (oldest.isEmpty()) {
+                    return moved;
+                }
+                long from = alignDown(TransferSegment.epochSecond(oldest.get()));
+                moved += archiveRange(from, from + segmentSeconds);
+            }
+        }
+    }
+
+    private long archiveRange(long from, long to) throws IOException {
+        LocalDateTime fromDateTime = TransferSegment.dateTime(from);
+        LocalDateTime toDateTime = TransferSegment.dateTime(to);
+        Optional<TransferSegment> existing = archive.segmentAt(from);
+        TransferSegment segment;
+        long moved;
+        try (TransferSegment.Writer writer = TransferSegment.writer(archive.getDirectory(), from, to)) {
+            Set<Long> alreadyArchived = new HashSet<>();
+            existing.ifPresent(previous -> previous.forEach(transfer -> {
+                writer.append(transfer);
+                alreadyArchived.add(transfer.getId());
+            }));
+            moved = transferDAO.streamBetween(fromDateTime, toDateTime, (MoneyTransfer transfer) -> {
+                if (!alreadyArchived.contains(transfer.getId())) {
+                    writer.append(transfer);
+                }
+            });
+            segment = writer.commit();
+        }
+        archive.publish(segment);
+        int deleted = transactionRunner.inTransaction(() -> transferDAO.deleteBetween(fromDateTime, toDateTime));
+        archived.inc(deleted);
+        LOGGER.info("Archived {} transfers from {} to {} into {}", deleted, fromDateTime, toDateTime, segment.file);
+        return moved;
+    }
+
+    private long alignDown(long epochSecond) {
+        return epochSecond - Math.floorMod(epochSecond, segmentSeconds);
+    }
+}
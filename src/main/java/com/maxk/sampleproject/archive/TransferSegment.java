@@ -0,0 +1,485 @@
+package com.maxk.sampleproject.archive;
+
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable file holding the transfers dated within {@code [from, to)}, read through a memory mapping.
+ * Rows are stored in deflated blocks of {@link #BLOCK_ROWS}; inside a block each column is written on its own,
+ * ids, times and source accounts as zigzag varint deltas. An index sorted by account id points at the rows
+ * touching each account, so a lookup inflates only the blocks holding them. A footer records where each
+ * section starts and ends with a CRC32 of everything before it.
+ */
+final class TransferSegment {
+    static final int BLOCK_ROWS = 4096;
+    static final Comparator<MoneyTransfer> ORDER =
+        Comparator.comparing(MoneyTransfer::getDateTime).thenComparingLong(MoneyTransfer::getId);
+
+    private static final int MAGIC = 0x54534547;
+    private static final int FORMAT = 1;
+    private static final String PREFIX = "transfers-";
+    private static final String SUFFIX = ".seg";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int BLOCK_ENTRY_SIZE = 20;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int FOOTER_SIZE = 40;
+    private static final TransferType[] TRANSFER_TYPES = TransferType.values();
+
+    final long from;
+    final long to;
+    final Path file;
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final int blockCount;
+    private final int indexCount;
+    private final int blockDirectoryOffset;
+    private final int indexOffset;
+    private final int postingsOffset;
+
+    private TransferSegment(Path file, long from, long to, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.from = from;
+        this.to = to;
+        this.buffer = buffer;
+        int footer = buffer.limit() - FOOTER_SIZE;
+        if (footer < 0 || buffer.getInt(footer) != MAGIC) {
+            throw new IOException("Not a transfer segment: " + file);
+        }
+        if (buffer.getInt(footer + 4) != FORMAT) {
+            throw new IOException("Unsupported transfer segment format " + buffer.getInt(footer + 4) + ": " + file);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().position(0).limit(buffer.limit() - Long.BYTES));
+        if (buffer.getLong(buffer.limit() - Long.BYTES) != checksum.getValue()) {
+            throw new IOException("Checksum mismatch in transfer segment " + file);
+        }
+        this.rowCount = buffer.getInt(footer + 8);
+        this.blockCount = buffer.getInt(footer + 12);
+        this.indexCount = buffer.getInt(footer + 16);
+        this.blockDirectoryOffset = buffer.getInt(footer + 20);
+        this.indexOffset = buffer.getInt(footer + 24);
+        this.postingsOffset = buffer.getInt(footer + 28);
+    }
+
+    static TransferSegment open(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String[] range = name.substring(PREFIX.length(), name.length() - SUFFIX.length()).split("-");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Transfer segment is larger than 2 GiB: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TransferSegment(file, Long.parseLong(range[0]), Long.parseLong(range[1]), buffer);
+        }
+    }
+
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static boolean isTemporary(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX + TEMPORARY_SUFFIX);
+    }
+
+    static Writer writer(Path directory, long from, long to) throws IOException {
+        return new Writer(directory, from, to);
+    }
+
+    static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime dateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    int size() {
+        return rowCount;
+    }
+
+    /**
+     * The transfers from or to an account, in {@link #ORDER}.
+     */
+    List<MoneyTransfer> find(long accountId) {
+        int entry = findIndexEntry(accountId);
+        if (entry < 0) {
+            return List.of();
+        }
+        int position = postingsOffset + buffer.getInt(entry + 8);
+        int count = buffer.getInt(entry + 12);
+        int[] rows = new int[count];
+        int row = 0;
+        for (int i = 0; i < count; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            row += (int) value;
+            rows[i] = row;
+        }
+        List<MoneyTransfer> transfers = new ArrayList<>(count);
+        int i = 0;
+        while (i < count) {
+            int block = rows[i] / BLOCK_ROWS;
+            Block decoded = readBlock(block);
+            for (; i < count && rows[i] / BLOCK_ROWS == block; i++) {
+                transfers.add(decoded.transfer(rows[i] - block * BLOCK_ROWS));
+            }
+        }
+        transfers.sort(ORDER);
+        return transfers;
+    }
+
+    void forEach(Consumer<MoneyTransfer> consumer) {
+        for (int block = 0; block < blockCount; block++) {
+            Block decoded = readBlock(block);
+            for (int row = 0; row < decoded.rows; row++) {
+                consumer.accept(decoded.transfer(row));
+            }
+        }
+    }
+
+    private int findIndexEntry(long accountId) {
+        int low = 0;
+        int high = indexCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = indexOffset + middle * INDEX_ENTRY_SIZE;
+            long id = buffer.getLong(entry);
+            if (id < accountId) {
+                low = middle + 1;
+            } else if (id > accountId) {
+                high = middle - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private Block readBlock(int block) {
+        int entry = blockDirectoryOffset + block * BLOCK_ENTRY_SIZE;
+        int offset = (int) buffer.getLong(entry);
+        int compressed = buffer.getInt(entry + 8);
+        byte[] data = new byte[buffer.getInt(entry + 12)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.duplicate().position(offset).limit(offset + compressed));
+            int inflated = 0;
+            while (inflated < data.length && !inflater.finished()) {
+                inflated += inflater.inflate(data, inflated, data.length - inflated);
+            }
+            if (inflated != data.length) {
+                throw new UncheckedIOException(new IOException("Truncated block " + block + " in " + file));
+            }
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt block " + block + " in " + file, e));
+        } finally {
+            inflater.end();
+        }
+        return Block.decode(data, buffer.getInt(entry + 16));
+    }
+
+    static String fileName(long from, long to) {
+        return String.format("%s%020d-%020d%s", PREFIX, from, to, SUFFIX);
+    }
+
+    /**
+     * The columns of one block, decoded.
+     */
+    private static final class Block {
+        private final int rows;
+        private final long[] ids;
+        private final long[] seconds;
+        private final long[] nanos;
+        private final long[] accountIds;
+        private final long[] destinationAccountIds;
+        private final long[] amounts;
+        private final byte[] types;
+
+        private Block(int rows) {
+            this.rows = rows;
+            this.ids = new long[rows];
+            this.seconds = new long[rows];
+            this.nanos = new long[rows];
+            this.accountIds = new long[rows];
+            this.destinationAccountIds = new long[rows];
+            this.amounts = new long[rows];
+            this.types = new byte[rows];
+        }
+
+        static Block decode(byte[] data, int rows) {
+            Block block = new Block(rows);
+            int[] position = {0};
+            readDeltas(data, position, block.ids);
+            readDeltas(data, position, block.seconds);
+            readValues(data, position, block.nanos);
+            readDeltas(data, position, block.accountIds);
+            readValues(data, position, block.destinationAccountIds);
+            readValues(data, position, block.amounts);
+            System.arraycopy(data, position[0], block.types, 0, rows);
+            return block;
+        }
+
+        MoneyTransfer transfer(int row) {
+            MoneyTransfer transfer = new MoneyTransfer();
+            transfer.setId(ids[row]);
+            transfer.setDateTime(LocalDateTime.ofEpochSecond(seconds[row], (int) nanos[row], ZoneOffset.UTC));
+            transfer.setAccountId(accountIds[row]);
+            transfer.setDestinationAccountId(destinationAccountIds[row] == 0 ? null : destinationAccountIds[row]);
+            transfer.setMoneyAmount(amounts[row]);
+            transfer.setTransferType(TRANSFER_TYPES[types[row]]);
+            return transfer;
+        }
+
+        private static void readDeltas(byte[] data, int[] position, long[] column) {
+            long previous = 0;
+            for (int i = 0; i < column.length; i++) {
+                long zigzag = readVarLong(data, position);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                column[i] = previous;
+            }
+        }
+
+        private static void readValues(byte[] data, int[] position, long[] column) {
+            for (int i = 0; i < column.length; i++) {
+                column[i] = readVarLong(data, position);
+            }
+        }
+
+        private static long readVarLong(byte[] data, int[] position) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Writes a segment to a temporary file that {@link #commit()} moves into place. Rows are expected in
+     * {@link #ORDER}, which keeps the deltas small; rows out of order are still stored and read back correctly.
+     */
+    static final class Writer implements Closeable {
+        private final Path directory;
+        private final long from;
+        private final long to;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final CheckedOutputStream checked;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater();
+        private final ByteArrayOutputStream blockDirectory = new ByteArrayOutputStream();
+        private final Map<Long, Rows> postings = new TreeMap<>();
+        private final List<MoneyTransfer> pending = new ArrayList<>(BLOCK_ROWS);
+        private long position;
+        private int rowCount;
+        private int blockCount;
+        private boolean committed;
+
+        private Writer(Path directory, long from, long to) throws IOException {
+            this.directory = directory;
+            this.from = from;
+            this.to = to;
+            this.temporary = directory.resolve(fileName(from, to) + TEMPORARY_SUFFIX);
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.checked = new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+            this.out = new DataOutputStream(checked);
+        }
+
+        void append(MoneyTransfer transfer) {
+            int row = rowCount++;
+            postings.computeIfAbsent(transfer.getAccountId(), id -> new Rows()).add(row);
+            Long destination = transfer.getDestinationAccountId();
+            if (destination != null && destination != transfer.getAccountId()) {
+                postings.computeIfAbsent(destination, id -> new Rows()).add(row);
+            }
+            pending.add(transfer);
+            if (pending.size() == BLOCK_ROWS) {
+                try {
+                    writeBlock();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        int size() {
+            return rowCount;
+        }
+
+        TransferSegment commit() throws IOException {
+            if (!pending.isEmpty()) {
+                writeBlock();
+            }
+            long blockDirectoryOffset = position;
+            blockDirectory.writeTo(out);
+            position += blockDirectory.size();
+
+            long indexOffset = position;
+            ByteArrayOutputStream postingsBytes = new ByteArrayOutputStream();
+            for (Map.Entry<Long, Rows> entry : postings.entrySet()) {
+                Rows rows = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeInt(postingsBytes.size());
+                out.writeInt(rows.size);
+                int previous = 0;
+                for (int i = 0; i < rows.size; i++) {
+                    writeVarLong(postingsBytes, rows.rows[i] - previous);
+                    previous = rows.rows[i];
+                }
+            }
+            position += (long) postings.size() * INDEX_ENTRY_SIZE;
+            long postingsOffset = position;
+            postingsBytes.writeTo(out);
+            position += postingsBytes.size();
+            if (position + FOOTER_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Transfer segment would be larger than 2 GiB, use a shorter segment duration");
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(rowCount);
+            out.writeInt(blockCount);
+            out.writeInt(postings.size());
+            out.writeInt((int) blockDirectoryOffset);
+            out.writeInt((int) indexOffset);
+            out.writeInt((int) postingsOffset);
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+            channel.close();
+
+            Path target = directory.resolve(fileName(from, to));
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+            return open(target);
+        }
+
+        private void writeBlock() throws IOException {
+            int rows = pending.size();
+            ByteArrayOutputStream columns = new ByteArrayOutputStream(rows * 16);
+            writeDeltas(columns, rows, i -> pending.get(i).getId());
+            writeDeltas(columns, rows, i -> epochSecond(pending.get(i).getDateTime()));
+            for (MoneyTransfer transfer : pending) {
+                writeVarLong(columns, transfer.getDateTime().getNano());
+            }
+            writeDeltas(columns, rows, i -> pending.get(i).getAccountId());
+            for (MoneyTransfer transfer : pending) {
+                Long destination = transfer.getDestinationAccountId();
+                writeVarLong(columns, destination == null ? 0 : destination);
+            }
+            for (MoneyTransfer transfer : pending) {
+                writeVarLong(columns, transfer.getMoneyAmount());
+            }
+            for (MoneyTransfer transfer : pending) {
+                columns.write(transfer.getTransferType().ordinal());
+            }
+            byte[] raw = columns.toByteArray();
+
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            int compressed = 0;
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                out.write(chunk, 0, length);
+                compressed += length;
+            }
+
+            DataOutputStream entry = new DataOutputStream(blockDirectory);
+            entry.writeLong(position);
+            entry.writeInt(compressed);
+            entry.writeInt(raw.length);
+            entry.writeInt(rows);
+            position += compressed;
+            blockCount++;
+            pending.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private interface Column {
+            long get(int row);
+        }
+
+        private static void writeDeltas(ByteArrayOutputStream out, int rows, Column column) {
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                long value = column.get(i);
+                long delta = value - previous;
+                writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                previous = value;
+            }
+        }
+
+        private static void writeVarLong(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    private static final class Rows {
+        private int[] rows = new int[4];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
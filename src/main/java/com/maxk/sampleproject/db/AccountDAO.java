@@ -1,28 +1,195 @@
 package com.maxk.sampleproject.db;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.Money;
 import io.dropwizard.hibernate.AbstractDAO;
 
+import org.hibernate.LockMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import javax.persistence.LockModeType;
+import javax.persistence.Tuple;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class AccountDAO extends AbstractDAO<Account> {
+    private final Timer findByIdTimer;
+    private final Timer findVersionTimer;
+    private final Timer findAllTimer;
+    private final Timer findPageTimer;
+    private final Timer findFieldsPageTimer;
+    private final Timer findAllForUpdateTimer;
+    private final Timer updateBalanceTimer;
+    private final Timer saveTimer;
+    private final Timer saveAllTimer;
+
     public AccountDAO(SessionFactory factory) {
+        this(factory, new MetricRegistry());
+    }
+
+    public AccountDAO(SessionFactory factory, MetricRegistry metrics) {
+        this(factory, metrics, AccountDAO.class.getName());
+    }
+
+    /**
+     * Names the query timers {@code <metricPrefix>.<query>}, e.g. to keep those of a replica apart.
+     */
+    public AccountDAO(SessionFactory factory, MetricRegistry metrics, String metricPrefix) {
         super(factory);
+        this.findByIdTimer = metrics.timer(MetricRegistry.name(metricPrefix, "findById"));
+        this.findVersionTimer = metrics.timer(MetricRegistry.name(metricPrefix, "findVersion"));
+        this.findAllTimer = metrics.timer(MetricRegistry.name(metricPrefix, "findAll"));
+        this.findPageTimer = metrics.timer(MetricRegistry.name(metricPrefix, "findPage"));
+        this.findFieldsPageTimer = metrics.timer(MetricRegistry.name(metricPrefix, "findFieldsPage"));
+        this.findAllForUpdateTimer = metrics.timer(MetricRegistry.name(metricPrefix, "findAllForUpdate"));
+        this.updateBalanceTimer = metrics.timer(MetricRegistry.name(metricPrefix, "updateBalance"));
+        this.saveTimer = metrics.timer(MetricRegistry.name(metricPrefix, "save"));
+        this.saveAllTimer = metrics.timer(MetricRegistry.name(metricPrefix, "saveAll"));
     }
 
     public Optional<Account> findById(Long id) {
-        return Optional.ofNullable(get(id));
+        try (Timer.Context ignored = findByIdTimer.time()) {
+            return Optional.ofNullable(get(id));
+        }
+    }
+
+    /**
+     * Reads the version column alone, without loading the account into the session.
+     */
+    public Optional<Long> findVersion(long id) {
+        try (Timer.Context ignored = findVersionTimer.time()) {
+            return ((Query<Long>) namedQuery("com.maxk.sampleproject.model.Account.findVersion"))
+                .setParameter("id", id)
+                .uniqueResultOptional();
+        }
     }
 
     public Account save(Account account) {
-        return persist(account);
+        try (Timer.Context ignored = saveTimer.time()) {
+            return persist(account);
+        }
+    }
+
+    /**
+     * Bumps the version of an account in the session when the transaction commits, even if nothing about it changed.
+     */
+    public void forceVersionIncrement(Account account) {
+        currentSession().lock(account, LockMode.OPTIMISTIC_FORCE_INCREMENT);
+    }
+
+    /**
+     * Inserts new accounts as JDBC batches and clears the session afterwards, so a long import holds no more
+     * than one chunk in memory. The accounts are not put in any cache; they are read from the database when
+     * first looked up.
+     */
+    public void saveAll(List<Account> accounts) {
+        Session session = currentSession();
+        try (Timer.Context ignored = saveAllTimer.time()) {
+            for (Account account : accounts) {
+                session.persist(account);
+            }
+            session.flush();
+        }
+        session.clear();
     }
 
     public List<Account> findAll() {
-        return list((Query<Account>) namedQuery("com.maxk.sampleproject.model.Account.findAll"));
+        try (Timer.Context ignored = findAllTimer.time()) {
+            return list((Query<Account>) namedQuery("com.maxk.sampleproject.model.Account.findAll"));
+        }
+    }
+
+    public List<Account> findPage(long afterId, int limit) {
+        try (Timer.Context ignored = findPageTimer.time()) {
+            return list(((Query<Account>) namedQuery("com.maxk.sampleproject.model.Account.findPage"))
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit));
+        }
+    }
+
+    public List<Map<String, Object>> findPage(long afterId, int limit, List<AccountField> fields) {
+        String projection = fields.stream()
+            .map(field -> "a." + field.getProperty() + " AS " + field.getProperty())
+            .collect(Collectors.joining(", "));
+        List<Tuple> rows;
+        try (Timer.Context ignored = findFieldsPageTimer.time()) {
+            rows = currentSession()
+                .createQuery("SELECT " + projection + " FROM Account a WHERE a.id > :afterId ORDER BY a.id",
+                    Tuple.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .list();
+        }
+        List<Map<String, Object>> page = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (AccountField field : fields) {
+                Object value = row.get(field.getProperty());
+                values.put(field.getProperty(), field == AccountField.BALANCE ? Money.toMajorUnits((Long) value) : value);
+            }
+            page.add(values);
+        }
+        return page;
+    }
+
+    public Map<Long, Account> findAllForUpdate(Collection<Long> ids) {
+        Map<Long, Account> accounts = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return accounts;
+        }
+        Query<Account> query = (Query<Account>) namedQuery("com.maxk.sampleproject.model.Account.findByIds")
+            .setParameterList("ids", ids)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        try (Timer.Context ignored = findAllForUpdateTimer.time()) {
+            for (Account account : list(query)) {
+                accounts.put(account.getId(), account);
+            }
+        }
+        return accounts;
+    }
+
+    public int updateBalance(long id, long balance) {
+        try (Timer.Context ignored = updateBalanceTimer.time()) {
+            return namedQuery("com.maxk.sampleproject.model.Account.updateBalance")
+                .setParameter("id", id)
+                .setParameter("balance", balance)
+                .executeUpdate();
+        }
+    }
+
+    /**
+     * Registers a callback that is told whether the current transaction committed.
+     * Returns false when there is no active transaction, in which case the callback is never invoked.
+     */
+    public boolean afterCompletion(Consumer<Boolean> callback) {
+        Transaction transaction = currentSession().getTransaction();
+        if (!transaction.isActive()) {
+            return false;
+        }
+        transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == Status.STATUS_COMMITTED);
+            }
+        });
+        return true;
     }
 }
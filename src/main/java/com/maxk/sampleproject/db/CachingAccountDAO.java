@@ -0,0 +1,136 @@
+package com.maxk.sampleproject.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.maxk.sampleproject.model.Account;
+import org.hibernate.SessionFactory;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Serves {@link #findById} and {@link #findVersion} from a bounded cache of detached account snapshots.
+ * While a transaction has written an account it is read from the session instead, and the cached
+ * snapshot is replaced on commit or dropped on rollback. A row loaded while a write to the account was under way
+ * is returned but not cached, since it may be older than what that write left behind.
+ */
+public class CachingAccountDAO extends AccountDAO {
+    private static final int WRITE_STAMP_STRIPES = 1024;
+
+    private final Cache<Long, Account> cache;
+    private final ConcurrentMap<Long, Integer> pendingWrites = new ConcurrentHashMap<>();
+    // Bumped at the start and end of every write, per stripe of account ids.
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STAMP_STRIPES);
+
+    public CachingAccountDAO(SessionFactory factory, Cache<Long, Account> cache) {
+        this(factory, new MetricRegistry(), cache);
+    }
+
+    public CachingAccountDAO(SessionFactory factory, MetricRegistry metrics, Cache<Long, Account> cache) {
+        super(factory, metrics);
+        this.cache = cache;
+    }
+
+    @Override
+    public Optional<Account> findById(Long id) {
+        if (pendingWrites.containsKey(id)) {
+            return super.findById(id);
+        }
+        Account cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+        long stamp = writeStamps.get(stripeOf(id));
+        Optional<Account> account = super.findById(id);
+        account.ifPresent(found -> cacheLoaded(id, stamp, copyOf(found)));
+        return account;
+    }
+
+    @Override
+    public Optional<Long> findVersion(long id) {
+        if (!pendingWrites.containsKey(id)) {
+            Account cached = cache.getIfPresent(id);
+            if (cached != null) {
+                return Optional.of(cached.getVersion());
+            }
+        }
+        return super.findVersion(id);
+    }
+
+    @Override
+    public Account save(Account account) {
+        if (account.getId() == 0) {
+            Account saved = super.save(account);
+            refreshOnCompletion(saved);
+            return saved;
+        }
+        beginWrite(account.getId());
+        // A snapshot handed out by findById is detached; merge copies its state onto the session's instance.
+        Account saved = currentSession().contains(account) ? super.save(account)
+            : (Account) currentSession().merge(account);
+        refreshOnCompletion(saved);
+        return saved;
+    }
+
+    @Override
+    public int updateBalance(long id, long balance) {
+        beginWrite(id);
+        int updated = super.updateBalance(id, balance);
+        if (!afterCompletion(committed -> endWrite(id, null))) {
+            endWrite(id, null);
+        }
+        return updated;
+    }
+
+    private void refreshOnCompletion(Account saved) {
+        long id = saved.getId();
+        if (!afterCompletion(committed -> endWrite(id, committed ? saved : null))) {
+            endWrite(id, null);
+        }
+    }
+
+    /**
+     * Caches a row loaded under {@code stamp} unless a write has begun or ended since, or has left a newer snapshot.
+     */
+    private void cacheLoaded(long id, long stamp, Account loaded) {
+        int stripe = stripeOf(id);
+        if (pendingWrites.containsKey(id) || writeStamps.get(stripe) != stamp) {
+            return;
+        }
+        if (cache.asMap().putIfAbsent(id, loaded) == null && writeStamps.get(stripe) != stamp) {
+            // A write ran to completion between the check and the put.
+            cache.asMap().remove(id, loaded);
+        }
+    }
+
+    private void beginWrite(long id) {
+        pendingWrites.merge(id, 1, Integer::sum);
+        writeStamps.incrementAndGet(stripeOf(id));
+        cache.invalidate(id);
+    }
+
+    private void endWrite(long id, Account committed) {
+        Integer remaining = pendingWrites.computeIfPresent(id, (key, count) -> count == 1 ? null : count - 1);
+        writeStamps.incrementAndGet(stripeOf(id));
+        if (committed != null && remaining == null) {
+            cache.put(id, copyOf(committed));
+        } else {
+            cache.invalidate(id);
+        }
+    }
+
+    private static int stripeOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (WRITE_STAMP_STRIPES - 1);
+    }
+
+    private static Account copyOf(Account account) {
+        Account copy = new Account(account.getName(), account.getSurname(), account.getBalance());
+        copy.setId(account.getId());
+        copy.setVersion(account.getVersion());
+        copy.setOpeningBalance(account.getOpeningBalance());
+        return copy;
+    }
+}
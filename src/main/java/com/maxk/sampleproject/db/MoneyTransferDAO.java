@@ -1,23 +1,200 @@
 package com.maxk.sampleproject.db;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.maxk.sampleproject.archive.TransferArchive;
 import com.maxk.sampleproject.model.MoneyTransfer;
 import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class MoneyTransferDAO extends AbstractDAO<MoneyTransfer> {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int STREAM_CLEAR_INTERVAL = 1000;
+
+    private final SessionFactory sessionFactory;
+    private final Timer createTimer;
+    private final Timer getByAccountIdTimer;
+    private final TransferArchive archive;
+
     public MoneyTransferDAO(SessionFactory factory) {
+        this(factory, new MetricRegistry());
+    }
+
+    public MoneyTransferDAO(SessionFactory factory, MetricRegistry metrics) {
+        this(factory, metrics, null);
+    }
+
+    /**
+     * With an archive, the history of an account is read from it up to {@link TransferArchive#getArchivedUntil()}
+     * and from the database after that.
+     */
+    public MoneyTransferDAO(SessionFactory factory, MetricRegistry metrics, TransferArchive archive) {
+        this(factory, metrics, archive, MoneyTransferDAO.class.getName());
+    }
+
+    /**
+     * Names the query timers {@code <metricPrefix>.<query>}, e.g. to keep those of a replica apart.
+     */
+    public MoneyTransferDAO(SessionFactory factory, MetricRegistry metrics, TransferArchive archive,
+                            String metricPrefix) {
         super(factory);
+        this.sessionFactory = factory;
+        this.createTimer = metrics.timer(MetricRegistry.name(metricPrefix, "create"));
+        this.getByAccountIdTimer = metrics.timer(MetricRegistry.name(metricPrefix, "getByAccountId"));
+        this.archive = archive;
     }
 
     public MoneyTransfer create(MoneyTransfer moneyTransfer) {
-        return persist(moneyTransfer);
+        try (Timer.Context ignored = createTimer.time()) {
+            return persist(moneyTransfer);
+        }
     }
 
     public List<MoneyTransfer> getByAccountId(long accountId) {
-        return list((Query<MoneyTransfer>) namedQuery("com.maxk.sampleproject.model.MoneyTransfer.getByAccountId")
-            .setParameter("accountId", accountId));
+        try (Timer.Context ignored = getByAccountIdTimer.time()) {
+            while (true) {
+                LocalDateTime archivedUntil = archivedUntil();
+                List<MoneyTransfer> transfers;
+                if (archivedUntil == null) {
+                    transfers = list((Query<MoneyTransfer>) namedQuery(
+                        "com.maxk.sampleproject.model.MoneyTransfer.getByAccountId")
+                        .setParameter("accountId", accountId));
+                } else {
+                    transfers = archive.find(accountId, null, archivedUntil);
+                    transfers.addAll(list((Query<MoneyTransfer>) namedQuery(
+                        "com.maxk.sampleproject.model.MoneyTransfer.getByAccountIdSince")
+                        .setParameter("accountId", accountId)
+                        .setParameter("since", archivedUntil)));
+                }
+                // A range archived meanwhile may have had its rows deleted before the query saw them.
+                if (Objects.equals(archivedUntil, archivedUntil())) {
+                    return transfers;
+                }
+            }
+        }
+    }
+
+    public Optional<MoneyTransfer> findByIdempotencyKey(String idempotencyKey) {
+        return Optional.ofNullable(uniqueResult(
+            (Query<MoneyTransfer>) namedQuery("com.maxk.sampleproject.model.MoneyTransfer.findByIdempotencyKey")
+                .setParameter("idempotencyKey", idempotencyKey)));
+    }
+
+    /**
+     * Streams the history of an account through a forward-only cursor in a session of its own,
+     * so it can be called after the request's unit of work has ended. The session is cleared
+     * periodically to keep memory use independent of the length of the history.
+     */
+    public long streamByAccountId(long accountId, Consumer<MoneyTransfer> consumer) {
+        LocalDateTime archivedUntil = archivedUntil();
+        if (archivedUntil == null) {
+            return stream(session -> session
+                .getNamedQuery("com.maxk.sampleproject.model.MoneyTransfer.getByAccountId")
+                .setParameter("accountId", accountId), consumer);
+        }
+        List<MoneyTransfer> archived = archive.find(accountId, null, archivedUntil);
+        archived.forEach(consumer);
+        long count = archived.size();
+        // Catch up with ranges archived while the rows above were being written out.
+        LocalDateTime since = archivedUntil();
+        if (!since.equals(archivedUntil)) {
+            archived = archive.find(accountId, archivedUntil, since);
+            archived.forEach(consumer);
+            count += archived.size();
+        }
+        return count + stream(session -> session
+            .getNamedQuery("com.maxk.sampleproject.model.MoneyTransfer.getByAccountIdSince")
+            .setParameter("accountId", accountId)
+            .setParameter("since", since), consumer);
+    }
+
+    /**
+     * Streams the transfers dated within {@code [from, to)} in date order, in a session of its own.
+     */
+    public long streamBetween(LocalDateTime from, LocalDateTime to, Consumer<MoneyTransfer> consumer) {
+        return stream(session -> session
+            .getNamedQuery("com.maxk.sampleproject.model.MoneyTransfer.findBetween")
+            .setParameter("from", from)
+            .setParameter("to", to), consumer);
+    }
+
+    /**
+     * The lowest and highest transfer ids, or empty when there are no transfers.
+     */
+    public Optional<long[]> findIdRange() {
+        Object[] range = (Object[]) namedQuery("com.maxk.sampleproject.model.MoneyTransfer.findIdRange")
+            .uniqueResult();
+        if (range == null || range[0] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new long[]{(Long) range[0], (Long) range[1]});
+    }
+
+    /**
+     * Streams the transfers with ids within {@code [fromId, toId)} in a session of its own, in no particular order.
+     */
+    public long streamByIdRange(long fromId, long toId, Consumer<MoneyTransfer> consumer) {
+        return stream(session -> session
+            .getNamedQuery("com.maxk.sampleproject.model.MoneyTransfer.findByIdRange")
+            .setParameter("fromId", fromId)
+            .setParameter("toId", toId), consumer);
+    }
+
+    public Optional<LocalDateTime> findOldestBefore(LocalDateTime before) {
+        return Optional.ofNullable((LocalDateTime) namedQuery(
+            "com.maxk.sampleproject.model.MoneyTransfer.findOldestBefore")
+            .setParameter("before", before)
+            .uniqueResult());
+    }
+
+    public int deleteBetween(LocalDateTime from, LocalDateTime to) {
+        return namedQuery("com.maxk.sampleproject.model.MoneyTransfer.deleteBetween")
+            .setParameter("from", from)
+            .setParameter("to", to)
+            .executeUpdate();
+    }
+
+    private LocalDateTime archivedUntil() {
+        return archive == null ? null : archive.getArchivedUntil();
+    }
+
+    private long stream(Function<Session, Query<?>> query, Consumer<MoneyTransfer> consumer) {
+        try (Session session = sessionFactory.openSession()) {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults results = query.apply(session)
+                .setFetchSize(STREAM_FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+                long count = 0;
+                while (results.next()) {
+                    consumer.accept((MoneyTransfer) results.get(0));
+                    if (++count % STREAM_CLEAR_INTERVAL == 0) {
+                        session.clear();
+                    }
+                }
+                transaction.commit();
+                return count;
+            } catch (RuntimeException e) {
+                if (transaction.getStatus().canRollback()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
     }
 }
@@ -0,0 +1,33 @@
+package com.maxk.sampleproject.db;
+
+import com.maxk.sampleproject.model.ReplicationHeartbeat;
+import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+
+public class ReplicationHeartbeatDAO extends AbstractDAO<ReplicationHeartbeat> {
+    public ReplicationHeartbeatDAO(SessionFactory factory) {
+        super(factory);
+    }
+
+    /**
+     * Bumps the heartbeat and returns its new value. The update is atomic, so monitors on several instances never
+     * write the same beat twice.
+     */
+    public long beat() {
+        namedQuery("com.maxk.sampleproject.model.ReplicationHeartbeat.beat")
+            .setParameter("id", ReplicationHeartbeat.ID)
+            .executeUpdate();
+        return findBeat();
+    }
+
+    /**
+     * The current beat, or 0 before the heartbeat row has been replicated.
+     */
+    public long findBeat() {
+        return ((Query<Long>) namedQuery("com.maxk.sampleproject.model.ReplicationHeartbeat.findBeat"))
+            .setParameter("id", ReplicationHeartbeat.ID)
+            .uniqueResultOptional()
+            .orElse(0L);
+    }
+}
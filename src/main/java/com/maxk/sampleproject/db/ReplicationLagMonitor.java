@@ -0,0 +1,111 @@
+package com.maxk.sampleproject.db;
+
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates how far a read replica is behind the primary by bumping a {@link ReplicationHeartbeatDAO heartbeat} on
+ * the primary every {@code interval} and reading it back from the replica. Every write moves the replica past the
+ * beats committed before it, account creates and bulk imports as much as transfers. The lag is the age of the oldest
+ * beat the replica has not caught up with, so it is only as precise as the interval, and it keeps growing between
+ * checks. A replica that cannot be read is stale.
+ */
+public class ReplicationLagMonitor implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationLagMonitor.class);
+    /**
+     * Readings kept while the replica is behind; once they run out the lag is already far past any sensible maxLag.
+     */
+    static final int MAX_SAMPLES = 10_000;
+
+    private final ReplicationHeartbeatDAO primaryDAO;
+    private final TransactionRunner primaryTransactionRunner;
+    private final ReplicationHeartbeatDAO replicaDAO;
+    private final TransactionRunner replicaTransactionRunner;
+    private final Duration maxLag;
+    private final Duration interval;
+    private final Clock clock;
+    // {epoch millis, beat} written on the primary, oldest first, all above the replica's beat.
+    private final Deque<long[]> samples = new ArrayDeque<>();
+    private volatile long lagAtCheck = -1;
+    private volatile long checkedAt;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicationLagMonitor(ReplicationHeartbeatDAO primaryDAO, TransactionRunner primaryTransactionRunner,
+                                 ReplicationHeartbeatDAO replicaDAO, TransactionRunner replicaTransactionRunner,
+                                 Duration maxLag, Duration interval, Clock clock) {
+        this.primaryDAO = primaryDAO;
+        this.primaryTransactionRunner = primaryTransactionRunner;
+        this.replicaDAO = replicaDAO;
+        this.replicaTransactionRunner = replicaTransactionRunner;
+        this.maxLag = maxLag;
+        this.interval = interval;
+        this.clock = clock;
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replication-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Bumps the heartbeat on the primary, reads it back from the replica, and updates the lag.
+     */
+    public synchronized void check() {
+        long now = clock.millis();
+        try {
+            long primaryBeat = primaryTransactionRunner.inTransaction(primaryDAO::beat);
+            if (samples.isEmpty() || samples.peekLast()[1] < primaryBeat) {
+                samples.addLast(new long[]{now, primaryBeat});
+                if (samples.size() > MAX_SAMPLES) {
+                    samples.removeFirst();
+                }
+            }
+            long replicaBeat = replicaTransactionRunner.inTransaction(replicaDAO::findBeat);
+            while (!samples.isEmpty() && samples.peekFirst()[1] <= replicaBeat) {
+                samples.removeFirst();
+            }
+            checkedAt = now;
+            lagAtCheck = samples.isEmpty() ? 0 : now - samples.peekFirst()[0];
+        } catch (RuntimeException e) {
+            if (lagAtCheck >= 0) {
+                LOGGER.warn("Failed to check the replication lag, reading from the primary until the next check", e);
+            }
+            lagAtCheck = -1;
+        }
+    }
+
+    /**
+     * The estimated lag in milliseconds, or -1 when the last check failed or none has run yet.
+     */
+    public long getLagMillis() {
+        long lag = lagAtCheck;
+        return lag < 0 ? -1 : lag + Math.max(0, clock.millis() - checkedAt);
+    }
+
+    public boolean isFresh() {
+        long lag = getLagMillis();
+        return lag >= 0 && lag <= maxLag.toMillis();
+    }
+}
@@ -0,0 +1,105 @@
+package com.maxk.sampleproject.db;
+
+import org.hibernate.SessionFactory;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Maps account ids to the database holding them. Shard {@code i} allocates account and transfer ids from
+ * {@code i * SHARD_ID_SPAN + 1}, so the shard of an id is read off its high bits and no lookup is needed.
+ * Shard 0 is the primary {@code database}, whose ids start at 1 as before.
+ */
+public class ShardRouter {
+    public static final long SHARD_ID_SPAN = 1L << 48;
+
+    private final List<Shard> shards;
+
+    public ShardRouter(List<Shard> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    public static long firstId(int shard) {
+        return shard * SHARD_ID_SPAN + 1;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public Shard get(int shard) {
+        return shards.get(shard);
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * The index of the shard an id belongs to, which may be beyond the configured shards.
+     */
+    public static int shardOf(long id) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, id) / SHARD_ID_SPAN);
+    }
+
+    public boolean contains(long accountId) {
+        return accountId > 0 && shardOf(accountId) < shards.size();
+    }
+
+    public Shard forAccount(long accountId) {
+        if (!contains(accountId)) {
+            throw new IllegalArgumentException("Account " + accountId + " is not on any shard");
+        }
+        return shards.get(shardOf(accountId));
+    }
+
+    public static class Shard {
+        private final int index;
+        private final TransactionRunner transactionRunner;
+        private final AccountDAO accountDAO;
+        private final MoneyTransferDAO transferDAO;
+        private final TransferReservationDAO reservationDAO;
+
+        public Shard(int index, SessionFactory sessionFactory, AccountDAO accountDAO, MoneyTransferDAO transferDAO) {
+            this(index, new TransactionRunner(sessionFactory), accountDAO, transferDAO,
+                new TransferReservationDAO(sessionFactory));
+        }
+
+        public Shard(int index, TransactionRunner transactionRunner, AccountDAO accountDAO,
+                     MoneyTransferDAO transferDAO, TransferReservationDAO reservationDAO) {
+            this.index = index;
+            this.transactionRunner = transactionRunner;
+            this.accountDAO = accountDAO;
+            this.transferDAO = transferDAO;
+            this.reservationDAO = reservationDAO;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public TransactionRunner getTransactionRunner() {
+            return transactionRunner;
+        }
+
+        public <T> T inTransaction(Supplier<T> work) {
+            return transactionRunner.inTransaction(work);
+        }
+
+        public void inTransaction(Runnable work) {
+            transactionRunner.inTransaction(work);
+        }
+
+        public AccountDAO getAccountDAO() {
+            return accountDAO;
+        }
+
+        public MoneyTransferDAO getTransferDAO() {
+            return transferDAO;
+        }
+
+        public TransferReservationDAO getReservationDAO() {
+            return reservationDAO;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.maxk.sampleproject.db;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs work in its own session and transaction outside of a {@code @UnitOfWork} resource method,
+ * e.g. on background threads. A session already bound to the calling thread is restored afterwards.
+ */
+public class TransactionRunner {
+    private final SessionFactory sessionFactory;
+
+    public TransactionRunner(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T inTransaction(Supplier<T> work) {
+        return inTransaction(work, true);
+    }
+
+    /**
+     * Runs work and flushes it to the database, then rolls it back, e.g. to exercise write paths without
+     * changing any data.
+     */
+    public void inRolledBackTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            sessionFactory.getCurrentSession().flush();
+            return null;
+        }, false);
+    }
+
+    private <T> T inTransaction(Supplier<T> work, boolean commit) {
+        Session previous = ManagedSessionContext.hasBind(sessionFactory) ? sessionFactory.getCurrentSession() : null;
+        Session session = sessionFactory.openSession();
+        try {
+            ManagedSessionContext.bind(session);
+            Transaction transaction = session.beginTransaction();
+            try {
+                T result = work.get();
+                if (commit) {
+                    transaction.commit();
+                } else {
+                    transaction.rollback();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (transaction.getStatus().canRollback()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        } finally {
+            session.close();
+            ManagedSessionContext.unbind(sessionFactory);
+            if (previous != null) {
+                ManagedSessionContext.bind(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.maxk.sampleproject.db;
+
+import com.maxk.sampleproject.model.TransferReservation;
+import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public class TransferReservationDAO extends AbstractDAO<TransferReservation> {
+    public TransferReservationDAO(SessionFactory factory) {
+        super(factory);
+    }
+
+    public Optional<TransferReservation> findById(long id) {
+        return Optional.ofNullable(get(id));
+    }
+
+    /**
+     * Inserts the reservation under its own id. A second insert of the same id fails on the primary key at flush.
+     */
+    public TransferReservation create(TransferReservation reservation) {
+        currentSession().save(reservation);
+        return reservation;
+    }
+
+    public List<TransferReservation> findByStateBefore(TransferReservation.State state, LocalDateTime before) {
+        return list((Query<TransferReservation>) namedQuery(
+            "com.maxk.sampleproject.model.TransferReservation.findByStateBefore")
+            .setParameter("state", state)
+            .setParameter("before", before));
+    }
+
+    public int delete(long id, TransferReservation.State state) {
+        return namedQuery("com.maxk.sampleproject.model.TransferReservation.delete")
+            .setParameter("id", id)
+            .setParameter("state", state)
+            .executeUpdate();
+    }
+}
@@ -0,0 +1,21 @@
+package com.maxk.sampleproject.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import com.maxk.sampleproject.service.WarmUp;
+
+/**
+ * Unhealthy until the {@link WarmUp} is over, so that a load balancer polling {@code /healthcheck} sends traffic
+ * only to warm instances.
+ */
+public class WarmUpHealthCheck extends HealthCheck {
+    private final WarmUp warmUp;
+
+    public WarmUpHealthCheck(WarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    protected Result check() {
+        return warmUp.isDone() ? Result.healthy() : Result.unhealthy("Warming up");
+    }
+}
@@ -0,0 +1,278 @@
+package com.maxk.sampleproject.journal;
+
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of balance movements kept in memory-mapped segment files.
+ * Each record moves {@code amount} from a debit account to a credit account (either may be {@link #NO_ACCOUNT})
+ * and carries a CRC32, so a torn write at the tail is detected and dropped on recovery.
+ * Records also name the transfer they journal and a low-water mark below which every committed transfer has been
+ * journaled, so that the owner can find transfers that committed but never made it into the journal.
+ * Periodic snapshots of the per-account deltas let recovery replay only the records written after them,
+ * and segments covered by a snapshot are deleted.
+ */
+public class BalanceJournal implements Managed {
+    public static final long NO_ACCOUNT = 0;
+
+    static final int RECORD_SIZE = 56;
+    private static final int CHECKSUMMED_BYTES = 48;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalanceJournal.class);
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long snapshotIntervalNanos;
+    private final long syncIntervalNanos;
+    private final ConcurrentMap<Long, Long> deltas = new ConcurrentHashMap<>();
+    private final CRC32 checksum = new CRC32();
+    // Ids of the journaled transfers at or above the low-water mark, guarded by this.
+    private final NavigableSet<Long> transferIds = new TreeSet<>();
+    private long lowWaterMark;
+    private ScheduledExecutorService scheduler;
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private volatile long recoveredSequence;
+
+    public BalanceJournal(Path directory, long segmentSize, long snapshotIntervalNanos, long syncIntervalNanos) {
+        if (segmentSize < RECORD_SIZE || segmentSize / RECORD_SIZE > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("Journal segment size is out of range: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentRecords = (int) (segmentSize / RECORD_SIZE);
+        this.snapshotIntervalNanos = snapshotIntervalNanos;
+        this.syncIntervalNanos = syncIntervalNanos;
+    }
+
+    @Override
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        recover();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sync, syncIntervalNanos, syncIntervalNanos, TimeUnit.NANOSECONDS);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Failed to write a journal snapshot", e);
+            }
+        }, snapshotIntervalNanos, snapshotIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot();
+    }
+
+    public long delta(long accountId) {
+        return deltas.getOrDefault(accountId, 0L);
+    }
+
+    /**
+     * The sequence of the last record found on start; every record appended since has a higher one.
+     */
+    public long getRecoveredSequence() {
+        return recoveredSequence;
+    }
+
+    /**
+     * Every transfer with a lower id than this has been journaled, unless it never committed.
+     */
+    public synchronized long getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * Moves the low-water mark up without appending a record; the next snapshot keeps it.
+     */
+    public synchronized void raiseLowWaterMark(long mark) {
+        if (mark > lowWaterMark) {
+            lowWaterMark = mark;
+            transferIds.headSet(mark).clear();
+        }
+    }
+
+    /**
+     * Whether a transfer at or above {@link #getLowWaterMark()} has been journaled.
+     */
+    public synchronized boolean isJournaled(long transferId) {
+        return transferIds.contains(transferId);
+    }
+
+    /**
+     * Appends the movement of transfer {@code transferId}. {@code lowWaterMark} is a transfer id below which the
+     * caller knows every committed transfer to be journaled; the mark of the journal only ever moves up.
+     */
+    public synchronized long append(long debitAccountId, long creditAccountId, long amount, long transferId,
+                                    long lowWaterMark) {
+        if (segment.remaining() < RECORD_SIZE) {
+            segment.force();
+            try {
+                segment = openSegment(nextSequence);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open a new journal segment", e);
+            }
+        }
+        long sequence = nextSequence;
+        int position = segment.position();
+        segment.putLong(sequence).putLong(debitAccountId).putLong(creditAccountId).putLong(amount)
+            .putLong(transferId).putLong(lowWaterMark);
+        segment.putInt((int) checksumOf(segment, position)).putInt(0);
+        apply(debitAccountId, creditAccountId, amount);
+        journaled(transferId, lowWaterMark);
+        nextSequence++;
+        return sequence;
+    }
+
+    public void sync() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+        }
+        current.force();
+    }
+
+    public void snapshot() throws IOException {
+        sync();
+        Map<Long, Long> copy;
+        long sequence;
+        long mark;
+        List<Long> ids;
+        synchronized (this) {
+            copy = new HashMap<>(deltas);
+            sequence = nextSequence - 1;
+            mark = lowWaterMark;
+            ids = new ArrayList<>(transferIds);
+        }
+        SnapshotFile.write(directory, sequence, copy, mark, ids);
+        List<Long> segments = segmentSequences();
+        for (int i = 0; i + 1 < segments.size() && segments.get(i + 1) <= sequence + 1; i++) {
+            Files.deleteIfExists(segmentPath(segments.get(i)));
+        }
+    }
+
+    private void recover() throws IOException {
+        long lastSequence = 0;
+        SnapshotFile snapshot = SnapshotFile.readLatest(directory).orElse(null);
+        if (snapshot != null) {
+            deltas.putAll(snapshot.deltas);
+            lastSequence = snapshot.sequence;
+            lowWaterMark = snapshot.lowWaterMark;
+            transferIds.addAll(snapshot.transferIds);
+        }
+        List<Long> segments = segmentSequences();
+        for (int i = 0; i < segments.size(); i++) {
+            long firstSequence = segments.get(i);
+            if (firstSequence > lastSequence + 1) {
+                throw new IllegalStateException("Journal is missing records " + (lastSequence + 1)
+                    + " to " + (firstSequence - 1));
+            }
+            MappedByteBuffer buffer = openSegment(firstSequence);
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int position = buffer.position();
+                long sequence = buffer.getLong(position);
+                if (sequence != firstSequence + position / RECORD_SIZE
+                    || buffer.getInt(position + CHECKSUMMED_BYTES) != (int) checksumOf(buffer, position)) {
+                    break;
+                }
+                if (sequence > lastSequence) {
+                    apply(buffer.getLong(position + 8), buffer.getLong(position + 16), buffer.getLong(position + 24));
+                    journaled(buffer.getLong(position + 32), buffer.getLong(position + 40));
+                    lastSequence = sequence;
+                }
+                buffer.position(position + RECORD_SIZE);
+            }
+            // A segment that ends early (a crash lost its tail after a snapshot covered it) is only
+            // appended to if the next record belongs right there; otherwise writing continues in a new segment.
+            long nextIndex = lastSequence + 1 - firstSequence;
+            if (i == segments.size() - 1 && nextIndex == buffer.position() / RECORD_SIZE
+                && nextIndex < segmentRecords) {
+                segment = buffer;
+            }
+        }
+        nextSequence = lastSequence + 1;
+        recoveredSequence = lastSequence;
+        if (segment == null) {
+            segment = openSegment(nextSequence);
+        }
+        LOGGER.info("Recovered balance journal at sequence {} with {} accounts, low-water mark {}", lastSequence,
+            deltas.size(), lowWaterMark);
+    }
+
+    private void journaled(long transferId, long mark) {
+        raiseLowWaterMark(mark);
+        if (transferId >= lowWaterMark) {
+            transferIds.add(transferId);
+        }
+    }
+
+    private void apply(long debitAccountId, long creditAccountId, long amount) {
+        if (debitAccountId != NO_ACCOUNT) {
+            deltas.merge(debitAccountId, -amount, Long::sum);
+        }
+        if (creditAccountId != NO_ACCOUNT) {
+            deltas.merge(creditAccountId, amount, Long::sum);
+        }
+    }
+
+    private long checksumOf(ByteBuffer buffer, int position) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(position);
+        record.limit(position + CHECKSUMMED_BYTES);
+        checksum.reset();
+        checksum.update(record);
+        return checksum.getValue();
+    }
+
+    private MappedByteBuffer openSegment(long firstSequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(firstSequence), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+        }
+    }
+
+    private List<Long> segmentSequences() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+    }
+}
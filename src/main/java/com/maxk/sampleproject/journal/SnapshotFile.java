@@ -0,0 +1,139 @@
+package com.maxk.sampleproject.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A snapshot holds the balance delta of every account as of one journal sequence number and the low-water mark
+ * with the transfer ids journaled above it, followed by a CRC32 of its contents.
+ */
+final class SnapshotFile {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFile.class);
+    private static final int MAGIC = 0x534E4150;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    final long sequence;
+    final Map<Long, Long> deltas;
+    final long lowWaterMark;
+    final List<Long> transferIds;
+
+    private SnapshotFile(long sequence, Map<Long, Long> deltas, long lowWaterMark, List<Long> transferIds) {
+        this.sequence = sequence;
+        this.deltas = deltas;
+        this.lowWaterMark = lowWaterMark;
+        this.transferIds = transferIds;
+    }
+
+    static void write(Path directory, long sequence, Map<Long, Long> deltas, long lowWaterMark,
+                      List<Long> transferIds) throws IOException {
+        Path target = directory.resolve(fileName(sequence));
+        Path temporary = directory.resolve(fileName(sequence) + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(deltas.size());
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeLong(lowWaterMark);
+            out.writeInt(transferIds.size());
+            for (long transferId : transferIds) {
+                out.writeLong(transferId);
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path older : list(directory)) {
+            if (sequenceOf(older) < sequence) {
+                Files.deleteIfExists(older);
+            }
+        }
+    }
+
+    static Optional<SnapshotFile> readLatest(Path directory) throws IOException {
+        List<Path> snapshots = list(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return Optional.of(read(snapshots.get(i)));
+            } catch (IOException e) {
+                LOGGER.warn("Skipping unreadable journal snapshot {}", snapshots.get(i), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static SnapshotFile read(Path file) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+            new BufferedInputStream(Files.newInputStream(file)), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a journal snapshot: " + file);
+            }
+            long sequence = in.readLong();
+            int count = in.readInt();
+            Map<Long, Long> deltas = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                deltas.put(in.readLong(), in.readLong());
+            }
+            long lowWaterMark = in.readLong();
+            count = in.readInt();
+            List<Long> transferIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                transferIds.add(in.readLong());
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Checksum mismatch in journal snapshot " + file);
+            }
+            return new SnapshotFile(sequence, deltas, lowWaterMark, transferIds);
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                    && file.getFileName().toString().endsWith(SUFFIX))
+                .sorted((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)))
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static String fileName(long sequence) {
+        return String.format("%s%020d%s", PREFIX, sequence, SUFFIX);
+    }
+}
@@ -1,5 +1,11 @@
 package com.maxk.sampleproject.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -7,7 +13,9 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.PrePersist;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.Objects;
@@ -18,11 +26,33 @@ import java.util.Objects;
     @NamedQuery(
         name = "com.maxk.sampleproject.model.Account.findAll",
         query = "SELECT a FROM Account a"
+    ),
+    @NamedQuery(
+        name = "com.maxk.sampleproject.model.Account.updateBalance",
+        query = "UPDATE Account a SET a.balance = :balance, a.version = a.version + 1 WHERE a.id = :id"
+    ),
+    @NamedQuery(
+        name = "com.maxk.sampleproject.model.Account.findByIds",
+        query = "SELECT a FROM Account a WHERE a.id IN (:ids) ORDER BY a.id"
+    ),
+    @NamedQuery(
+        name = "com.maxk.sampleproject.model.Account.findPage",
+        query = "SELECT a FROM Account a WHERE a.id > :afterId ORDER BY a.id"
+    ),
+    @NamedQuery(
+        name = "com.maxk.sampleproject.model.Account.findVersion",
+        query = "SELECT a.version FROM Account a WHERE a.id = :id"
     )
 })
 public class Account {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @GenericGenerator(name = "accounts_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+            @Parameter(name = "sequence_name", value = "accounts_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+        })
     private long id;
 
     @Column(name = "name", nullable = false)
@@ -34,15 +64,28 @@ public class Account {
     private String surname;
 
     @Column(name = "balance", nullable = false)
-    @NotNull
     @Min(0)
-    private Double balance;
-
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long balance;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private long version;
+
+    /**
+     * The balance the account was created with, which its transfers are reconciled against. Null for accounts
+     * created before it was recorded.
+     */
+    @Column(name = "openingBalance")
+    @JsonIgnore
+    private Long openingBalance;
 
     public Account() {
     }
 
-    public Account(String name, String surname, Double balance) {
+    public Account(String name, String surname, long balance) {
         this.name = name;
         this.surname = surname;
         this.balance = balance;
@@ -72,14 +115,37 @@ public class Account {
         this.surname = surname;
     }
 
-    public Double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    public void setBalance(Double balance) {
+    public void setBalance(long balance) {
         this.balance = balance;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Long getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public void setOpeningBalance(Long openingBalance) {
+        this.openingBalance = openingBalance;
+    }
+
+    @PrePersist
+    void recordOpeningBalance() {
+        if (openingBalance == null) {
+            openingBalance = balance;
+        }
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(id);
@@ -0,0 +1,41 @@
+package com.maxk.sampleproject.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public enum AccountField {
+    ID("id"),
+    NAME("name"),
+    SURNAME("surname"),
+    BALANCE("balance");
+
+    private final String property;
+
+    AccountField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public static AccountField fromProperty(String property) {
+        for (AccountField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown account field: " + property);
+    }
+
+    public static List<AccountField> parse(String fields) {
+        List<AccountField> result = new ArrayList<>();
+        for (String property : fields.split(",")) {
+            AccountField field = fromProperty(property.trim());
+            if (!result.contains(field)) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+}
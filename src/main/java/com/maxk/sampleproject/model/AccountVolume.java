@@ -0,0 +1,34 @@
+package com.maxk.sampleproject.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+public class AccountVolume {
+    private long accountId;
+
+    @JsonSerialize(using = Money.Serializer.class)
+    private long volume;
+
+    public AccountVolume() {
+    }
+
+    public AccountVolume(long accountId, long volume) {
+        this.accountId = accountId;
+        this.volume = volume;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public void setVolume(long volume) {
+        this.volume = volume;
+    }
+}
@@ -0,0 +1,49 @@
+package com.maxk.sampleproject.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * An account whose balance is not its opening balance plus its transfers.
+ */
+public class BalanceDrift {
+    private long accountId;
+
+    @JsonSerialize(using = Money.Serializer.class)
+    private long balance;
+
+    @JsonSerialize(using = Money.Serializer.class)
+    private long expectedBalance;
+
+    public BalanceDrift() {
+    }
+
+    public BalanceDrift(long accountId, long balance, long expectedBalance) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.expectedBalance = expectedBalance;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    public void setBalance(long balance) {
+        this.balance = balance;
+    }
+
+    public long getExpectedBalance() {
+        return expectedBalance;
+    }
+
+    public void setExpectedBalance(long expectedBalance) {
+        this.expectedBalance = expectedBalance;
+    }
+}
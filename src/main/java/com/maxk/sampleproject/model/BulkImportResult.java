@@ -0,0 +1,53 @@
+package com.maxk.sampleproject.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResult {
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private long created;
+    private long rejected;
+    private List<String> errors = new ArrayList<>();
+
+    public BulkImportResult() {
+    }
+
+    public void created(int count) {
+        created += count;
+    }
+
+    /**
+     * Counts a rejected row. Only the first {@link #MAX_REPORTED_ERRORS} reasons are kept.
+     */
+    public void rejected(long row, String error) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("Row " + row + ": " + error);
+        }
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
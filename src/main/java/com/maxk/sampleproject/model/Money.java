@@ -0,0 +1,59 @@
+package com.maxk.sampleproject.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Money is held as a long number of minor units (cents). JSON keeps the decimal major-unit form,
+ * so {@code 12.34} on the wire is {@code 1234} in memory and in the database.
+ */
+public final class Money {
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toMajorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static String format(long minorUnits) {
+        return toMajorUnits(minorUnits).toPlainString();
+    }
+
+    public static class Serializer extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(toMajorUnits(value));
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Long> {
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.getCurrentToken() != JsonToken.VALUE_NUMBER_INT
+                && parser.getCurrentToken() != JsonToken.VALUE_NUMBER_FLOAT) {
+                return (Long) context.handleUnexpectedToken(Long.class, parser);
+            }
+            BigDecimal amount = parser.getDecimalValue();
+            try {
+                return toMinorUnits(amount);
+            } catch (ArithmeticException e) {
+                return (Long) context.handleWeirdNumberValue(Long.class, amount,
+                    "at most %d decimal places are allowed", SCALE);
+            }
+        }
+    }
+}
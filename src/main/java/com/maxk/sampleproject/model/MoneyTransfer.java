@@ -1,13 +1,20 @@
 package com.maxk.sampleproject.model;
 
-import org.hibernate.annotations.NamedQueries;
-import org.hibernate.annotations.NamedQuery;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NamedNativeQueries;
+import org.hibernate.annotations.NamedNativeQuery;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -17,14 +24,45 @@ import java.util.Objects;
 @Entity
 @Table(name = "transfers")
 @NamedQueries({
-    @NamedQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.getByAccountId",
-        query= "SELECT t FROM MoneyTransfer t WHERE " +
-            "t.accountId = :accountId OR t.destinationAccountId = :accountId " +
-            "ORDER BY t.dateTime")
+    @NamedQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.findByIdempotencyKey",
+        query = "SELECT t FROM MoneyTransfer t WHERE t.idempotencyKey = :idempotencyKey"),
+    @NamedQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.findOldestBefore",
+        query = "SELECT MIN(t.dateTime) FROM MoneyTransfer t WHERE t.dateTime < :before"),
+    @NamedQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.findBetween",
+        query = "SELECT t FROM MoneyTransfer t WHERE t.dateTime >= :from AND t.dateTime < :to " +
+            "ORDER BY t.dateTime, t.id"),
+    @NamedQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.findIdRange",
+        query = "SELECT MIN(t.id), MAX(t.id) FROM MoneyTransfer t"),
+    @NamedQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.findByIdRange",
+        query = "SELECT t FROM MoneyTransfer t WHERE t.id >= :fromId AND t.id < :toId"),
+    @NamedQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.deleteBetween",
+        query = "DELETE FROM MoneyTransfer t WHERE t.dateTime >= :from AND t.dateTime < :to")
+})
+@NamedNativeQueries({
+    // Each branch of the UNION ALL is served by its own index, where an OR across both columns is a full scan.
+    @NamedNativeQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.getByAccountId",
+        query = "SELECT t.* FROM transfers t WHERE t.accountId = :accountId " +
+            "UNION ALL " +
+            "SELECT t.* FROM transfers t WHERE t.destinationAccountId = :accountId AND t.accountId <> :accountId " +
+            "ORDER BY dateTime, id",
+        resultClass = MoneyTransfer.class),
+    @NamedNativeQuery(name = "com.maxk.sampleproject.model.MoneyTransfer.getByAccountIdSince",
+        query = "SELECT t.* FROM transfers t WHERE t.accountId = :accountId AND t.dateTime >= :since " +
+            "UNION ALL " +
+            "SELECT t.* FROM transfers t WHERE t.destinationAccountId = :accountId AND t.accountId <> :accountId " +
+            "AND t.dateTime >= :since " +
+            "ORDER BY dateTime, id",
+        resultClass = MoneyTransfer.class)
 })
 public class MoneyTransfer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfers_seq")
+    @GenericGenerator(name = "transfers_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+            @Parameter(name = "sequence_name", value = "transfers_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+        })
     private long id;
 
     @Column(name = "accountId", nullable = false)
@@ -37,7 +75,9 @@ public class MoneyTransfer {
     @Column(name = "moneyAmount", nullable = false)
     @NotNull
     @Min(0)
-    private double moneyAmount;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long moneyAmount;
 
     @Column(name = "dateTime", nullable = false)
     private LocalDateTime dateTime;
@@ -46,11 +86,15 @@ public class MoneyTransfer {
     @NotNull
     private TransferType transferType;
 
+    @Column(name = "idempotencyKey")
+    @JsonIgnore
+    private String idempotencyKey;
+
     public MoneyTransfer() {
     }
 
     public MoneyTransfer(long accountId, Long destinationAccountId,
-                         double moneyAmount, TransferType transferType) {
+                         long moneyAmount, TransferType transferType) {
         this.accountId = accountId;
         this.destinationAccountId = destinationAccountId;
         this.moneyAmount = moneyAmount;
@@ -82,11 +126,11 @@ public class MoneyTransfer {
         this.destinationAccountId = destinationAccountId;
     }
 
-    public double getMoneyAmount() {
+    public long getMoneyAmount() {
         return moneyAmount;
     }
 
-    public void setMoneyAmount(double moneyAmount) {
+    public void setMoneyAmount(long moneyAmount) {
         this.moneyAmount = moneyAmount;
     }
 
@@ -106,6 +150,14 @@ public class MoneyTransfer {
         this.transferType = transferType;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
     @Override
     public int hashCode() {return Objects.hash(id);}
 
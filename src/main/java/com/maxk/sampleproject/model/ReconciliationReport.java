@@ -0,0 +1,93 @@
+package com.maxk.sampleproject.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReconciliationReport {
+    public static final int MAX_REPORTED_DRIFTS = 100;
+
+    private LocalDateTime startedAt;
+    private long durationMillis;
+    private long transfers;
+    private long accounts;
+    private long unverified;
+    private long drifted;
+    private List<BalanceDrift> drifts = new ArrayList<>();
+
+    public ReconciliationReport() {
+    }
+
+    public ReconciliationReport(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    /**
+     * Counts a drifted account. Only the first {@link #MAX_REPORTED_DRIFTS} are listed.
+     */
+    public void drifted(BalanceDrift drift) {
+        drifted++;
+        if (drifts.size() < MAX_REPORTED_DRIFTS) {
+            drifts.add(drift);
+        }
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public long getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(long transfers) {
+        this.transfers = transfers;
+    }
+
+    public long getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(long accounts) {
+        this.accounts = accounts;
+    }
+
+    /**
+     * Accounts without a recorded opening balance, which cannot be checked.
+     */
+    public long getUnverified() {
+        return unverified;
+    }
+
+    public void setUnverified(long unverified) {
+        this.unverified = unverified;
+    }
+
+    public long getDrifted() {
+        return drifted;
+    }
+
+    public void setDrifted(long drifted) {
+        this.drifted = drifted;
+    }
+
+    public List<BalanceDrift> getDrifts() {
+        return drifts;
+    }
+
+    public void setDrifts(List<BalanceDrift> drifts) {
+        this.drifts = drifts;
+    }
+}
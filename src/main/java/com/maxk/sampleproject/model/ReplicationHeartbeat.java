@@ -0,0 +1,38 @@
+package com.maxk.sampleproject.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * The single row the replication lag monitor bumps on the primary. Replicas apply writes in commit order, so a
+ * replica that has seen a beat has also seen every write committed before it, whatever table that write touched.
+ */
+@Entity
+@Table(name = "replication_heartbeat")
+@NamedQueries({
+    @NamedQuery(name = "com.maxk.sampleproject.model.ReplicationHeartbeat.beat",
+        query = "UPDATE ReplicationHeartbeat h SET h.beat = h.beat + 1 WHERE h.id = :id"),
+    @NamedQuery(name = "com.maxk.sampleproject.model.ReplicationHeartbeat.findBeat",
+        query = "SELECT h.beat FROM ReplicationHeartbeat h WHERE h.id = :id")
+})
+public class ReplicationHeartbeat {
+    public static final long ID = 1;
+
+    @Id
+    private long id;
+
+    @Column(name = "beat", nullable = false)
+    private long beat;
+
+    public long getId() {
+        return id;
+    }
+
+    public long getBeat() {
+        return beat;
+    }
+}
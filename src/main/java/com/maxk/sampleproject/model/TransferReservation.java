@@ -0,0 +1,105 @@
+package com.maxk.sampleproject.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * An ACCOUNT_TO_ACCOUNT transfer between accounts on different shards, under the id of its transfer on the source
+ * shard. The source shard keeps it RESERVED from the debit until the destination shard has credited the amount;
+ * the destination shard keeps it CREDITED, so that a credit retried after a crash is applied only once.
+ */
+@Entity
+@Table(name = "transfer_reservations")
+@NamedQueries({
+    @NamedQuery(name = "com.maxk.sampleproject.model.TransferReservation.findByStateBefore",
+        query = "SELECT r FROM TransferReservation r WHERE r.state = :state AND r.dateTime < :before ORDER BY r.id"),
+    @NamedQuery(name = "com.maxk.sampleproject.model.TransferReservation.delete",
+        query = "DELETE FROM TransferReservation r WHERE r.id = :id AND r.state = :state")
+})
+public class TransferReservation {
+    public enum State {
+        RESERVED, CREDITED
+    }
+
+    @Id
+    private long id;
+
+    @Column(name = "accountId", nullable = false)
+    private long accountId;
+
+    @Column(name = "destinationAccountId", nullable = false)
+    private long destinationAccountId;
+
+    @Column(name = "moneyAmount", nullable = false)
+    private long moneyAmount;
+
+    @Column(name = "dateTime", nullable = false)
+    private LocalDateTime dateTime;
+
+    @Column(name = "state", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private State state;
+
+    public TransferReservation() {
+    }
+
+    private TransferReservation(long id, long accountId, long destinationAccountId, long moneyAmount,
+                                LocalDateTime dateTime, State state) {
+        this.id = id;
+        this.accountId = accountId;
+        this.destinationAccountId = destinationAccountId;
+        this.moneyAmount = moneyAmount;
+        this.dateTime = dateTime;
+        this.state = state;
+    }
+
+    public static TransferReservation reserve(MoneyTransfer transfer) {
+        return new TransferReservation(transfer.getId(), transfer.getAccountId(), transfer.getDestinationAccountId(),
+            transfer.getMoneyAmount(), transfer.getDateTime(), State.RESERVED);
+    }
+
+    public TransferReservation credited() {
+        return new TransferReservation(id, accountId, destinationAccountId, moneyAmount, dateTime, State.CREDITED);
+    }
+
+    /**
+     * The destination shard's copy of the transfer, for the history of the destination account.
+     */
+    public MoneyTransfer toTransfer() {
+        MoneyTransfer transfer = new MoneyTransfer(accountId, destinationAccountId, moneyAmount,
+            TransferType.ACCOUNT_TO_ACCOUNT);
+        transfer.setDateTime(dateTime);
+        return transfer;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getDestinationAccountId() {
+        return destinationAccountId;
+    }
+
+    public long getMoneyAmount() {
+        return moneyAmount;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    public State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,63 @@
+package com.maxk.sampleproject.model;
+
+public class TransferResult {
+    public enum Status {
+        APPLIED,
+        REJECTED
+    }
+
+    private int index;
+    private Status status;
+    private Long transferId;
+    private String error;
+
+    public TransferResult() {
+    }
+
+    public TransferResult(int index, Status status, Long transferId, String error) {
+        this.index = index;
+        this.status = status;
+        this.transferId = transferId;
+        this.error = error;
+    }
+
+    public static TransferResult applied(int index, MoneyTransfer transfer) {
+        return new TransferResult(index, Status.APPLIED, transfer.getId(), null);
+    }
+
+    public static TransferResult rejected(int index, String error) {
+        return new TransferResult(index, Status.REJECTED, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getTransferId() {
+        return transferId;
+    }
+
+    public void setTransferId(Long transferId) {
+        this.transferId = transferId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,70 @@
+package com.maxk.sampleproject.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.LocalDateTime;
+
+/**
+ * The number and amount of transfers of one {@link TransferType}, or of all types within one hour.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferTotal {
+    private TransferType transferType;
+    private LocalDateTime hour;
+    private long count;
+
+    @JsonSerialize(using = Money.Serializer.class)
+    private long amount;
+
+    public TransferTotal() {
+    }
+
+    public static TransferTotal ofType(TransferType transferType, long count, long amount) {
+        TransferTotal total = new TransferTotal();
+        total.setTransferType(transferType);
+        total.setCount(count);
+        total.setAmount(amount);
+        return total;
+    }
+
+    public static TransferTotal ofHour(LocalDateTime hour, long count, long amount) {
+        TransferTotal total = new TransferTotal();
+        total.setHour(hour);
+        total.setCount(count);
+        total.setAmount(amount);
+        return total;
+    }
+
+    public TransferType getTransferType() {
+        return transferType;
+    }
+
+    public void setTransferType(TransferType transferType) {
+        this.transferType = transferType;
+    }
+
+    public LocalDateTime getHour() {
+        return hour;
+    }
+
+    public void setHour(LocalDateTime hour) {
+        this.hour = hour;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(long amount) {
+        this.amount = amount;
+    }
+}
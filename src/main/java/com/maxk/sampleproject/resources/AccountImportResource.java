@@ -0,0 +1,153 @@
+package com.maxk.sampleproject.resources;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.BulkImportResult;
+import com.maxk.sampleproject.model.Money;
+import com.maxk.sampleproject.service.AccountImporter;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Creates accounts in bulk from a JSON array of accounts or from CSV lines of {@code name,surname,balance}.
+ * Both are read as a stream, so the body may be far larger than the heap.
+ */
+@Path("/accounts/bulk")
+@Produces(MediaType.APPLICATION_JSON)
+public class AccountImportResource {
+    public static final String TEXT_CSV = "text/csv";
+    static final String CSV_HEADER = "name,surname,balance";
+
+    private final AccountImporter importer;
+    private final ObjectReader accountReader;
+
+    public AccountImportResource(AccountImporter importer, ObjectMapper objectMapper) {
+        this.importer = importer;
+        this.accountReader = objectMapper.readerFor(Account.class);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Timed
+    @ExceptionMetered
+    public BulkImportResult importJson(InputStream input) throws IOException {
+        try (MappingIterator<Account> accounts = accountReader.readValues(input)) {
+            return importer.importAccounts(new JsonRows(accounts));
+        }
+    }
+
+    @POST
+    @Consumes(TEXT_CSV)
+    @Timed
+    @ExceptionMetered
+    public BulkImportResult importCsv(InputStream input) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            return importer.importAccounts(new CsvRows(reader));
+        }
+    }
+
+    static Account parseCsvLine(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 3) {
+            throw new IllegalArgumentException("Expected " + CSV_HEADER + " but got " + columns.length + " columns");
+        }
+        long balance;
+        try {
+            balance = Money.toMinorUnits(new BigDecimal(columns[2].trim()));
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid balance '" + columns[2].trim() + "'");
+        }
+        return new Account(columns[0].trim(), columns[1].trim(), balance);
+    }
+
+    private static class JsonRows implements Iterator<Account> {
+        private final MappingIterator<Account> accounts;
+
+        JsonRows(MappingIterator<Account> accounts) {
+            this.accounts = accounts;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return accounts.hasNextValue();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Account next() {
+            try {
+                return accounts.nextValue();
+            } catch (JsonParseException e) {
+                throw new UncheckedIOException(e);
+            } catch (JsonMappingException e) {
+                // The iterator skips the rest of a value it could not map, so the next row can still be read.
+                throw new IllegalArgumentException(e.getOriginalMessage());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class CsvRows implements Iterator<Account> {
+        private final BufferedReader reader;
+        private String line;
+        private boolean first = true;
+
+        CsvRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (line == null) {
+                    line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (first && line.trim().equalsIgnoreCase(CSV_HEADER)) {
+                        line = null;
+                    } else if (line.isBlank()) {
+                        line = null;
+                    }
+                    first = false;
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Account next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String current = line;
+            line = null;
+            return parseCsvLine(current);
+        }
+    }
+}
@@ -1,59 +1,229 @@
 package com.maxk.sampleproject.resources;
 
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
 import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
 import com.maxk.sampleproject.service.AccountService;
+import com.maxk.sampleproject.service.TransferIdempotencyStore;
 import io.dropwizard.hibernate.UnitOfWork;
+import io.dropwizard.jackson.Jackson;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Path("/accounts")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, AccountResource.APPLICATION_SMILE + ";qs=0.9",
+    AccountResource.APPLICATION_CBOR + ";qs=0.9"})
+@Consumes({MediaType.APPLICATION_JSON, AccountResource.APPLICATION_SMILE, AccountResource.APPLICATION_CBOR})
 public class AccountResource {
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1_000;
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    /**
+     * Binary encodings of the same documents, see {@link BinaryFormats}. JSON stays the default for clients that
+     * accept anything.
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    /**
+     * The session factory of the read-only methods: the read database when one is configured, else the primary.
+     */
+    public static final String READ_DATABASE = "hibernate-read";
+
+    private static final List<Variant> VARIANTS = Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE,
+        MediaType.valueOf(APPLICATION_SMILE), MediaType.valueOf(APPLICATION_CBOR)).build();
 
     private final AccountService accountService;
+    private final TransferIdempotencyStore idempotencyStore;
+    private final TransferExecutor transferExecutor;
+    private final ObjectWriter transferWriter;
 
     public AccountResource(AccountService accountService) {
+        this(accountService, Jackson.newObjectMapper());
+    }
+
+    public AccountResource(AccountService accountService, ObjectMapper objectMapper) {
+        this(accountService, objectMapper, null);
+    }
+
+    public AccountResource(AccountService accountService, ObjectMapper objectMapper,
+                           TransferIdempotencyStore idempotencyStore) {
+        this(accountService, objectMapper, idempotencyStore, TransferExecutor.DIRECT);
+    }
+
+    public AccountResource(AccountService accountService, ObjectMapper objectMapper,
+                           TransferIdempotencyStore idempotencyStore, TransferExecutor transferExecutor) {
         this.accountService = accountService;
+        this.idempotencyStore = idempotencyStore;
+        this.transferExecutor = transferExecutor;
+        this.transferWriter = objectMapper.writerFor(MoneyTransfer.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GET
     @Path("/{accountId}")
-    @UnitOfWork
-    public Account getAccount(@PathParam("accountId") Long accountId) {
-        return accountService.getAccount(accountId);
+    @Timed
+    @ExceptionMetered
+    @UnitOfWork(value = READ_DATABASE, readOnly = true)
+    public Response getAccount(@PathParam("accountId") Long accountId, @Context Request request) {
+        return conditionalGet(request, accountId, () -> accountService.getAccount(accountId));
     }
 
     @POST
+    @Timed
+    @ExceptionMetered
     @UnitOfWork
     public Account createAccount(@Valid Account account) {
         return accountService.createAccount(account);
     }
 
     @GET
-    @UnitOfWork
-    public List<Account> listAccounts() {
-        return accountService.listAccounts();
+    @Timed
+    @ExceptionMetered
+    @UnitOfWork(value = READ_DATABASE, readOnly = true)
+    public List<?> listAccounts(@QueryParam("after") @Min(0) Long after,
+                                @QueryParam("limit") @Min(1) @Max(MAX_PAGE_SIZE) Integer limit,
+                                @QueryParam("fields") String fields) {
+        if (after == null && limit == null && fields == null) {
+            return accountService.listAccounts();
+        }
+        long afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (fields == null) {
+            return accountService.listAccounts(afterId, pageSize);
+        }
+        try {
+            return accountService.listAccounts(afterId, pageSize, AccountField.parse(fields));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
     }
 
+    /**
+     * No {@code @UnitOfWork}: the service runs each attempt of the transfer in a transaction of its own,
+     * so that a transfer that lost an optimistic version check can be retried. The transfer itself runs on
+     * the {@link TransferExecutor}, which may be a different thread. The annotated metrics therefore only cover
+     * handing the transfer off; the executor times the transfer and meters its failures.
+     */
     @POST
     @Path("/transfer")
+    @Timed
+    @ExceptionMetered
+    public void transferMoney(@Suspended AsyncResponse asyncResponse,
+                              @HeaderParam(IDEMPOTENCY_KEY) @Size(min = 1, max = 255) String idempotencyKey,
+                              @Valid MoneyTransfer transfer) {
+        transfer.setIdempotencyKey(idempotencyKey);
+        applyTransfer(asyncResponse, transfer, accountService::transferMoney);
+    }
+
+    protected void applyTransfer(AsyncResponse asyncResponse, MoneyTransfer transfer,
+                                 Consumer<MoneyTransfer> action) {
+        transferExecutor.submit(asyncResponse, () -> {
+            if (idempotencyStore == null) {
+                action.accept(transfer);
+            } else {
+                idempotencyStore.transferMoney(transfer, action);
+            }
+        });
+    }
+
+    @POST
+    @Path("/transfers/batch")
+    @Timed
+    @ExceptionMetered
     @UnitOfWork
-    public void transferMoney(@Valid MoneyTransfer transfer) {
-        accountService.transferMoney(transfer);
+    public List<TransferResult> transferMoneyBatch(
+        @NotNull @Size(min = 1, max = MAX_BATCH_SIZE) @Valid List<MoneyTransfer> transfers) {
+        return accountService.transferMoneyBatch(transfers);
     }
 
     @GET
     @Path("/{accountId}/transfers")
-    @UnitOfWork
-    public List<MoneyTransfer> getTransfers(@PathParam("accountId") Long accountId) {
-        return accountService.getTransfers(accountId);
+    @Timed
+    @ExceptionMetered
+    @UnitOfWork(value = READ_DATABASE, readOnly = true)
+    public Response getTransfers(@PathParam("accountId") Long accountId, @Context Request request) {
+        return conditionalGet(request, accountId, () -> accountService.getTransfers(accountId));
+    }
+
+    /**
+     * Answers {@code If-None-Match} with 304 from the account's version alone, and otherwise loads the entity and
+     * tags it with that version. The version is read first, so the entity is never older than its tag. Each encoding
+     * gets a tag of its own, as strong tags promise identical bytes.
+     */
+    private Response conditionalGet(Request request, long accountId, Supplier<?> entity) {
+        Variant variant = request.selectVariant(VARIANTS);
+        MediaType mediaType = variant == null ? MediaType.APPLICATION_JSON_TYPE : variant.getMediaType();
+        EntityTag tag = new EntityTag(accountService.getVersion(accountId) + "-" + mediaType.getSubtype());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(entity.get(), mediaType).tag(tag).build();
+    }
+
+    /**
+     * The account is looked up in the unit of work, so that an unknown one is answered with 404 before the response
+     * is committed. The history is then streamed in a session of its own, after the unit of work has ended.
+     */
+    @GET
+    @Path("/{accountId}/transfers")
+    @Produces(APPLICATION_NDJSON + ";qs=0.5")
+    @Timed
+    @ExceptionMetered
+    @UnitOfWork(value = READ_DATABASE, readOnly = true)
+    public StreamingOutput streamTransfers(@PathParam("accountId") Long accountId) {
+        accountService.getVersion(accountId);
+        return output -> {
+            try (JsonGenerator generator = transferWriter.getFactory().createGenerator(output)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                accountService.streamTransfers(accountId, transfer -> {
+                    try {
+                        transferWriter.writeValue(generator, transfer);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
     }
 }
@@ -0,0 +1,70 @@
+package com.maxk.sampleproject.resources;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.maxk.sampleproject.model.AccountVolume;
+import com.maxk.sampleproject.model.TransferTotal;
+import com.maxk.sampleproject.service.TransferAnalytics;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+
+/**
+ * Transfer statistics served from {@link TransferAnalytics}, without touching the database.
+ * Answers 503 until the analytics have been built after startup.
+ */
+@Path("/accounts/analytics")
+@Produces(MediaType.APPLICATION_JSON)
+public class AnalyticsResource {
+    public static final int DEFAULT_TOP_ACCOUNTS = 10;
+    public static final int MAX_TOP_ACCOUNTS = 1_000;
+    public static final int DEFAULT_HOURS = 24;
+    public static final int MAX_HOURS = 24 * 31;
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final TransferAnalytics analytics;
+
+    public AnalyticsResource(TransferAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    @GET
+    @Path("/top-accounts")
+    @Timed
+    @ExceptionMetered
+    public List<AccountVolume> getTopAccounts(@QueryParam("limit") @Min(1) @Max(MAX_TOP_ACCOUNTS) Integer limit) {
+        checkReady();
+        return analytics.topAccounts(limit == null ? DEFAULT_TOP_ACCOUNTS : limit);
+    }
+
+    @GET
+    @Path("/types")
+    @Timed
+    @ExceptionMetered
+    public List<TransferTotal> getTotalsByType() {
+        checkReady();
+        return analytics.totalsByType();
+    }
+
+    @GET
+    @Path("/throughput")
+    @Timed
+    @ExceptionMetered
+    public List<TransferTotal> getThroughput(@QueryParam("hours") @Min(1) @Max(MAX_HOURS) Integer hours) {
+        checkReady();
+        return analytics.throughput(hours == null ? DEFAULT_HOURS : hours);
+    }
+
+    private void checkReady() {
+        if (!analytics.isReady()) {
+            throw new ServiceUnavailableException("Transfer analytics are still being built", RETRY_AFTER_SECONDS);
+        }
+    }
+}
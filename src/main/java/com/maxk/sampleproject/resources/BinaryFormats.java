@@ -0,0 +1,35 @@
+package com.maxk.sampleproject.resources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.jaxrs.cbor.JacksonCBORProvider;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
+import io.dropwizard.jackson.Jackson;
+
+import java.util.List;
+
+/**
+ * The binary Jackson encodings {@link AccountResource} speaks besides JSON, for clients that send
+ * {@code Accept: application/x-jackson-smile} or {@code application/cbor}. Their mappers get the modules and
+ * settings Dropwizard gives its JSON mapper, so the documents have the same shape.
+ */
+public final class BinaryFormats {
+    private BinaryFormats() {
+    }
+
+    public static ObjectMapper newSmileMapper() {
+        return Jackson.newObjectMapper(new SmileFactory());
+    }
+
+    public static ObjectMapper newCborMapper() {
+        return Jackson.newObjectMapper(new CBORFactory());
+    }
+
+    /**
+     * The message body readers and writers to register with Jersey.
+     */
+    public static List<Object> newProviders() {
+        return List.of(new JacksonSmileProvider(newSmileMapper()), new JacksonCBORProvider(newCborMapper()));
+    }
+}
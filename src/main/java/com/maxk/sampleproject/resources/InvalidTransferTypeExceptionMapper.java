@@ -0,0 +1,23 @@
+package com.maxk.sampleproject.resources;
+
+import com.maxk.sampleproject.model.InvalidTransferTypeException;
+import io.dropwizard.jersey.errors.ErrorMessage;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Answers a transfer without a valid type with 400, in the error format Dropwizard uses for its own exceptions.
+ */
+@Provider
+public class InvalidTransferTypeExceptionMapper implements ExceptionMapper<InvalidTransferTypeException> {
+    @Override
+    public Response toResponse(InvalidTransferTypeException exception) {
+        return Response.status(Response.Status.BAD_REQUEST)
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .entity(new ErrorMessage(Response.Status.BAD_REQUEST.getStatusCode(), exception.getMessage()))
+            .build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.maxk.sampleproject.resources;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.service.AccountService;
+import com.maxk.sampleproject.service.TransferIdempotencyStore;
+import com.maxk.sampleproject.service.TransferSequencer;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Size;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Routes transfers through the {@link TransferSequencer}. The transfer method deliberately has no
+ * {@code @UnitOfWork}: the sequencer commits on its own thread, so waiting callers hold no connection.
+ */
+@Path("/accounts")
+@Produces({MediaType.APPLICATION_JSON, AccountResource.APPLICATION_SMILE + ";qs=0.9",
+    AccountResource.APPLICATION_CBOR + ";qs=0.9"})
+@Consumes({MediaType.APPLICATION_JSON, AccountResource.APPLICATION_SMILE, AccountResource.APPLICATION_CBOR})
+public class SequencedAccountResource extends AccountResource {
+
+    private final TransferSequencer transferSequencer;
+
+    public SequencedAccountResource(AccountService accountService, ObjectMapper objectMapper,
+                                    TransferIdempotencyStore idempotencyStore, TransferExecutor transferExecutor,
+                                    TransferSequencer transferSequencer) {
+        super(accountService, objectMapper, idempotencyStore, transferExecutor);
+        this.transferSequencer = transferSequencer;
+    }
+
+    @Override
+    @POST
+    @Path("/transfer")
+    @Timed
+    @ExceptionMetered
+    public void transferMoney(@Suspended AsyncResponse asyncResponse,
+                              @HeaderParam(IDEMPOTENCY_KEY) @Size(min = 1, max = 255) String idempotencyKey,
+                              @Valid MoneyTransfer transfer) {
+        transfer.setIdempotencyKey(idempotencyKey);
+        applyTransfer(asyncResponse, transfer, transferSequencer::transferMoney);
+    }
+}
@@ -0,0 +1,103 @@
+package com.maxk.sampleproject.resources;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.service.AccountService;
+import com.maxk.sampleproject.service.ShardedAccountService;
+import com.maxk.sampleproject.service.TransferIdempotencyStore;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.List;
+
+/**
+ * Serves the accounts of a {@link ShardedAccountService}. None of the methods has a {@code @UnitOfWork}: the service
+ * runs every operation in transactions of its own on the shards involved, and a unit of work would hold a second
+ * connection of shard 0 for the whole request.
+ */
+@Path("/accounts")
+@Produces({MediaType.APPLICATION_JSON, AccountResource.APPLICATION_SMILE + ";qs=0.9",
+    AccountResource.APPLICATION_CBOR + ";qs=0.9"})
+@Consumes({MediaType.APPLICATION_JSON, AccountResource.APPLICATION_SMILE, AccountResource.APPLICATION_CBOR})
+public class ShardedAccountResource extends AccountResource {
+
+    public ShardedAccountResource(AccountService accountService, ObjectMapper objectMapper,
+                                  TransferIdempotencyStore idempotencyStore, TransferExecutor transferExecutor) {
+        super(accountService, objectMapper, idempotencyStore, transferExecutor);
+    }
+
+    @Override
+    @GET
+    @Path("/{accountId}")
+    @Timed
+    @ExceptionMetered
+    public Response getAccount(@PathParam("accountId") Long accountId, @Context Request request) {
+        return super.getAccount(accountId, request);
+    }
+
+    @Override
+    @POST
+    @Timed
+    @ExceptionMetered
+    public Account createAccount(@Valid Account account) {
+        return super.createAccount(account);
+    }
+
+    @Override
+    @GET
+    @Timed
+    @ExceptionMetered
+    public List<?> listAccounts(@QueryParam("after") @Min(0) Long after,
+                                @QueryParam("limit") @Min(1) @Max(MAX_PAGE_SIZE) Integer limit,
+                                @QueryParam("fields") String fields) {
+        return super.listAccounts(after, limit, fields);
+    }
+
+    @Override
+    @POST
+    @Path("/transfers/batch")
+    @Timed
+    @ExceptionMetered
+    public List<TransferResult> transferMoneyBatch(
+        @NotNull @Size(min = 1, max = MAX_BATCH_SIZE) @Valid List<MoneyTransfer> transfers) {
+        return super.transferMoneyBatch(transfers);
+    }
+
+    @Override
+    @GET
+    @Path("/{accountId}/transfers")
+    @Timed
+    @ExceptionMetered
+    public Response getTransfers(@PathParam("accountId") Long accountId, @Context Request request) {
+        return super.getTransfers(accountId, request);
+    }
+
+    @Override
+    @GET
+    @Path("/{accountId}/transfers")
+    @Produces(APPLICATION_NDJSON + ";qs=0.5")
+    @Timed
+    @ExceptionMetered
+    public StreamingOutput streamTransfers(@PathParam("accountId") Long accountId) {
+        return super.streamTransfers(accountId);
+    }
+}
@@ -0,0 +1,83 @@
+package com.maxk.sampleproject.resources;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Completes transfer requests off the Jetty worker thread. When the executor refuses the work because its
+ * queue is full, the request is answered straight away with 429 and a {@code Retry-After} hint; work it accepted
+ * but abandons, e.g. on shutdown, is answered with 503.
+ * <p>
+ * The resource method returns as soon as the transfer is handed off, so the transfer itself is timed and its
+ * failures are metered here, on the thread that runs it.
+ */
+public class TransferExecutor {
+    /**
+     * Runs transfers on the request thread, as a synchronous resource method would.
+     */
+    public static final TransferExecutor DIRECT =
+        new TransferExecutor(Runnable::run, 1, new Meter(), new Timer(), new Meter());
+
+    private final Executor executor;
+    private final long retryAfterSeconds;
+    private final Meter rejected;
+    private final Timer transfers;
+    private final Meter failures;
+
+    public TransferExecutor(Executor executor, long retryAfterSeconds, MetricRegistry metrics) {
+        this(executor, retryAfterSeconds,
+            metrics.meter(MetricRegistry.name(TransferExecutor.class, "rejected")),
+            metrics.timer(MetricRegistry.name(TransferExecutor.class, "transfers")),
+            metrics.meter(MetricRegistry.name(TransferExecutor.class, "failures")));
+    }
+
+    private TransferExecutor(Executor executor, long retryAfterSeconds, Meter rejected, Timer transfers,
+                             Meter failures) {
+        this.executor = executor;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rejected = rejected;
+        this.transfers = transfers;
+        this.failures = failures;
+    }
+
+    public void submit(AsyncResponse asyncResponse, Runnable transfer) {
+        try {
+            executor.execute(new VirtualThreadExecutor.Abandonable() {
+                @Override
+                public void run() {
+                    try (Timer.Context ignored = transfers.time()) {
+                        transfer.run();
+                    } catch (Throwable e) {
+                        failures.mark();
+                        asyncResponse.resume(e);
+                        if (e instanceof Error) {
+                            throw (Error) e;
+                        }
+                        return;
+                    }
+                    asyncResponse.resume(Response.noContent().build());
+                }
+
+                @Override
+                public void abandon(RejectedExecutionException reason) {
+                    rejected.mark();
+                    asyncResponse.resume(retryLater(Response.Status.SERVICE_UNAVAILABLE));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            asyncResponse.resume(retryLater(Response.Status.TOO_MANY_REQUESTS));
+        }
+    }
+
+    private Response retryLater(Response.Status status) {
+        return Response.status(status).header(HttpHeaders.RETRY_AFTER, retryAfterSeconds).build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.maxk.sampleproject.resources;
+
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts a virtual thread per task, which needs Java 21 or later.
+ * At most {@code maxPending} tasks may be waiting or running, and only {@code permits} of them run at once,
+ * so that blocked clients cost a parked virtual thread rather than a database connection.
+ */
+public class VirtualThreadExecutor implements Executor, Managed {
+    /**
+     * A task that is told when it was accepted but will not run after all, e.g. because the executor stopped
+     * while it was waiting for a permit.
+     */
+    public interface Abandonable extends Runnable {
+        void abandon(RejectedExecutionException reason);
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+    private static final long SHUTDOWN_SECONDS = 5;
+    private static final int FIRST_VIRTUAL_THREADS_RELEASE = 21;
+
+    private final ExecutorService threads;
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * @throws IllegalStateException if this JDK has no virtual threads, see {@link #isAvailable()}
+     */
+    public VirtualThreadExecutor(String name, int permits, int maxPending) {
+        this(newVirtualThreadPerTaskExecutor(name), permits, maxPending);
+    }
+
+    /**
+     * Runs the tasks on {@code threads}, which must start a thread per task.
+     */
+    VirtualThreadExecutor(ExecutorService threads, int permits, int maxPending) {
+        this.threads = threads;
+        this.permits = new Semaphore(permits, true);
+        this.maxPermits = permits;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Whether this JDK has virtual threads. Java 19 and 20 only have them as a preview feature, which is not
+     * supported here.
+     */
+    public static boolean isAvailable() {
+        return Runtime.version().feature() >= FIRST_VIRTUAL_THREADS_RELEASE;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Virtual threads for " + name + " need Java "
+                + FIRST_VIRTUAL_THREADS_RELEASE + " or later, this is Java " + Runtime.version().feature());
+        }
+        // Looked up reflectively, as the application is compiled for Java 11.
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor for " + name, e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor for " + name, e.getCause());
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException("More than " + maxPending + " tasks are pending");
+        }
+        try {
+            threads.execute(() -> {
+                try {
+                    permits.acquire();
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    abandon(task, e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private static void abandon(Runnable task, InterruptedException cause) {
+        RejectedExecutionException reason = new RejectedExecutionException("Interrupted while waiting to run");
+        reason.initCause(cause);
+        if (task instanceof Abandonable) {
+            ((Abandonable) task).abandon(reason);
+        } else {
+            LOGGER.warn("Dropped a task that was waiting to run", reason);
+        }
+    }
+
+    /**
+     * Tasks that have been accepted and not yet finished, running or not.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    public int getRunning() {
+        return maxPermits - permits.availablePermits();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        threads.shutdown();
+        if (!threads.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+            threads.shutdownNow();
+        }
+    }
+}
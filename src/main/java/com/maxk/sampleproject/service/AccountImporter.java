@@ -0,0 +1,92 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.BulkImportResult;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.ws.rs.BadRequestException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creates accounts from a stream of rows, committing every {@code chunkSize} valid rows in a transaction of
+ * their own. Invalid rows are skipped and reported; an input that cannot be read any further ends the import
+ * with 400 once the valid rows before it have been committed.
+ */
+public class AccountImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    private final AccountDAO accountDAO;
+    private final TransactionRunner transactionRunner;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public AccountImporter(AccountDAO accountDAO, TransactionRunner transactionRunner, Validator validator) {
+        this(accountDAO, transactionRunner, validator, DEFAULT_CHUNK_SIZE);
+    }
+
+    public AccountImporter(AccountDAO accountDAO, TransactionRunner transactionRunner, Validator validator,
+                           int chunkSize) {
+        this.accountDAO = accountDAO;
+        this.transactionRunner = transactionRunner;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Rows that cannot be turned into an account throw {@link IllegalArgumentException} from {@code next()},
+     * input that cannot be read any further throws {@link UncheckedIOException}.
+     */
+    public BulkImportResult importAccounts(Iterator<Account> rows) {
+        BulkImportResult result = new BulkImportResult();
+        List<Account> chunk = new ArrayList<>(chunkSize);
+        long row = 0;
+        try {
+            while (rows.hasNext()) {
+                row++;
+                Account account;
+                try {
+                    account = rows.next();
+                } catch (IllegalArgumentException e) {
+                    result.rejected(row, e.getMessage());
+                    continue;
+                }
+                Set<ConstraintViolation<Account>> violations = validator.validate(account);
+                if (!violations.isEmpty()) {
+                    result.rejected(row, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                    continue;
+                }
+                account.setId(0);
+                chunk.add(account);
+                if (chunk.size() == chunkSize) {
+                    save(chunk, result);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            save(chunk, result);
+            throw new BadRequestException("Unreadable input after row " + (row - 1) + ", " + result.getCreated()
+                + " accounts were created before it: " + e.getCause().getMessage(), e);
+        }
+        save(chunk, result);
+        return result;
+    }
+
+    private void save(List<Account> chunk, BulkImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        transactionRunner.inTransaction(() -> accountDAO.saveAll(chunk));
+        result.created(chunk.size());
+        chunk.clear();
+    }
+}
@@ -1,18 +1,35 @@
 package com.maxk.sampleproject.service;
 
 import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
 import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface AccountService {
     Account getAccount(long accountId);
 
+    /**
+     * A number that changes whenever the account or its transfer history does, found without loading either.
+     */
+    long getVersion(long accountId);
+
     Account createAccount(Account account);
 
     List<Account> listAccounts();
 
+    List<Account> listAccounts(long afterId, int limit);
+
+    List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields);
+
     void transferMoney(MoneyTransfer transfer);
 
+    List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers);
+
     List<MoneyTransfer> getTransfers(long accountId);
+
+    long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer);
 }
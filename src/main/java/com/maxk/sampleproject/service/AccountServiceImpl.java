@@ -1,15 +1,26 @@
 package com.maxk.sampleproject.service;
 
 import com.maxk.sampleproject.model.Account;
-import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
 import com.maxk.sampleproject.model.InvalidTransferTypeException;
+import com.maxk.sampleproject.model.Money;
 import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
 import com.maxk.sampleproject.db.AccountDAO;
 import com.maxk.sampleproject.db.MoneyTransferDAO;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 public class AccountServiceImpl implements AccountService {
     private AccountDAO accountDAO;
@@ -25,6 +36,14 @@ public class AccountServiceImpl implements AccountService {
             .orElseThrow(() -> new NotFoundException("No such account."));
     }
 
+    /**
+     * Every transfer bumps the version of the accounts it touches, even one that leaves a balance unchanged.
+     */
+    public long getVersion(long accountId) {
+        return accountDAO.findVersion(accountId)
+            .orElseThrow(() -> new NotFoundException("No such account."));
+    }
+
     public Account createAccount(Account account) {
         return accountDAO.save(account);
     }
@@ -33,20 +52,68 @@ public class AccountServiceImpl implements AccountService {
         return accountDAO.findAll();
     }
 
-    public void transferMoney(MoneyTransfer transfer) {
-        transfer.setDateTime(LocalDateTime.now());
-        transferDAO.create(transfer);
+    public List<Account> listAccounts(long afterId, int limit) {
+        return accountDAO.findPage(afterId, limit);
+    }
 
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        return accountDAO.findPage(afterId, limit, fields);
+    }
+
+    /**
+     * Accounts are checked as they are loaded, which answers a missing one with 404; the rest of the transfer is
+     * validated as a batch would be, and rejected with 400.
+     */
+    public void transferMoney(MoneyTransfer transfer) {
+        String error = TransferValidation.validate(transfer, accountId -> true);
+        if (error != null) {
+            throw new BadRequestException(error);
+        }
         Account sourceAccount = getAccount(transfer.getAccountId());
-        double sourceAccountBalance;
+        apply(transfer, sourceAccount, this::getAccount);
+    }
+
+    public List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers) {
+        SortedSet<Long> accountIds = new TreeSet<>();
+        for (MoneyTransfer transfer : transfers) {
+            accountIds.add(transfer.getAccountId());
+            if (transfer.getDestinationAccountId() != null) {
+                accountIds.add(transfer.getDestinationAccountId());
+            }
+        }
+        Map<Long, Account> accounts = accountDAO.findAllForUpdate(accountIds);
+
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            String error = TransferValidation.validate(transfers.get(i), accounts::containsKey);
+            results.add(error == null ? null : TransferResult.rejected(i, error));
+        }
+        for (int i = 0; i < transfers.size(); i++) {
+            if (results.get(i) != null) {
+                continue;
+            }
+            MoneyTransfer transfer = transfers.get(i);
+            try {
+                apply(transfer, accounts.get(transfer.getAccountId()), accounts::get);
+                results.set(i, TransferResult.applied(i, transfer));
+            } catch (InsufficientBalanceForTransferException e) {
+                results.set(i, TransferResult.rejected(i, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private void apply(MoneyTransfer transfer, Account sourceAccount, LongFunction<Account> accounts) {
+        long previousBalance = sourceAccount.getBalance();
+        long sourceAccountBalance;
         switch (transfer.getTransferType()) {
             case DEPOSIT:
-                sourceAccountBalance = sourceAccount.getBalance() + transfer.getMoneyAmount();
+                sourceAccountBalance = Math.addExact(sourceAccount.getBalance(), transfer.getMoneyAmount());
                 break;
             case WITHDRAW:
                 if (transfer.getMoneyAmount() > sourceAccount.getBalance()) {
                     throw new InsufficientBalanceForTransferException("Can't withdraw " +
-                        transfer.getMoneyAmount() + " from account " + sourceAccount.getId() +
+                        Money.format(transfer.getMoneyAmount()) + " from account " + sourceAccount.getId() +
                         " because the balance of the account is less than the withdrawn amount");
                 }
                 sourceAccountBalance = sourceAccount.getBalance() - transfer.getMoneyAmount();
@@ -54,22 +121,44 @@ public class AccountServiceImpl implements AccountService {
             case ACCOUNT_TO_ACCOUNT:
                 if (transfer.getMoneyAmount() > sourceAccount.getBalance()) {
                     throw new InsufficientBalanceForTransferException("Can't transfer " +
-                        transfer.getMoneyAmount() + " from account " + sourceAccount.getId() +
+                        Money.format(transfer.getMoneyAmount()) + " from account " + sourceAccount.getId() +
                         " because the balance of the account is less than the transferred amount");
                 }
-                Account destinationAccount = getAccount(transfer.getDestinationAccountId());
+                // A transfer to the same account must credit the instance it debits, or one update is lost.
+                Account destinationAccount = Objects.equals(transfer.getDestinationAccountId(), sourceAccount.getId())
+                    ? sourceAccount : accounts.apply(transfer.getDestinationAccountId());
+                long destinationBalance = destinationAccount.getBalance();
+                destinationAccount.setBalance(Math.addExact(destinationBalance, transfer.getMoneyAmount()));
                 sourceAccountBalance = sourceAccount.getBalance() - transfer.getMoneyAmount();
-                destinationAccount.setBalance(destinationAccount.getBalance() + transfer.getMoneyAmount());
-                accountDAO.save(destinationAccount);
+                if (destinationAccount != sourceAccount) {
+                    save(destinationAccount, destinationBalance);
+                }
                 break;
             default:
                 throw new InvalidTransferTypeException("Invalid transfer type was specified");
         }
+        transfer.setDateTime(LocalDateTime.now());
+        transferDAO.create(transfer);
         sourceAccount.setBalance(sourceAccountBalance);
-        accountDAO.save(sourceAccount);
+        save(sourceAccount, previousBalance);
+    }
+
+    /**
+     * The version also tags the account's transfer history, so it is bumped when a transfer leaves the balance as it
+     * was, e.g. for a zero amount; otherwise the balance update bumps it.
+     */
+    private void save(Account account, long previousBalance) {
+        Account saved = accountDAO.save(account);
+        if (account.getBalance() == previousBalance) {
+            accountDAO.forceVersionIncrement(saved);
+        }
     }
 
     public List<MoneyTransfer> getTransfers(long accountId) {
         return transferDAO.getByAccountId(accountId);
     }
+
+    public long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer) {
+        return transferDAO.streamByAccountId(accountId, consumer);
+    }
 }
@@ -0,0 +1,7 @@
+package com.maxk.sampleproject.service;
+
+public enum AccountServiceType {
+    DATABASE,
+    LEDGER,
+    JOURNAL
+}
@@ -0,0 +1,102 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Passes transfers to {@link TransferAnalytics} once their transaction commits. It has to run inside that
+ * transaction, so it wraps the service that does the work rather than {@link RetryingAccountService} or
+ * {@link TransferSequencer}, which open it.
+ */
+public class AnalyticsAccountService implements AccountService {
+    private final AccountService delegate;
+    private final TransferAnalytics analytics;
+    private final AccountDAO accountDAO;
+
+    public AnalyticsAccountService(AccountService delegate, TransferAnalytics analytics, AccountDAO accountDAO) {
+        this.delegate = delegate;
+        this.analytics = analytics;
+        this.accountDAO = accountDAO;
+    }
+
+    @Override
+    public Account getAccount(long accountId) {
+        return delegate.getAccount(accountId);
+    }
+
+    @Override
+    public long getVersion(long accountId) {
+        return delegate.getVersion(accountId);
+    }
+
+    @Override
+    public Account createAccount(Account account) {
+        return delegate.createAccount(account);
+    }
+
+    @Override
+    public List<Account> listAccounts() {
+        return delegate.listAccounts();
+    }
+
+    @Override
+    public List<Account> listAccounts(long afterId, int limit) {
+        return delegate.listAccounts(afterId, limit);
+    }
+
+    @Override
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        return delegate.listAccounts(afterId, limit, fields);
+    }
+
+    @Override
+    public void transferMoney(MoneyTransfer transfer) {
+        delegate.transferMoney(transfer);
+        recordOnCommit(List.of(transfer));
+    }
+
+    @Override
+    public List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers) {
+        List<TransferResult> results = delegate.transferMoneyBatch(transfers);
+        List<MoneyTransfer> applied = new ArrayList<>(results.size());
+        for (TransferResult result : results) {
+            if (result.getStatus() == TransferResult.Status.APPLIED) {
+                applied.add(transfers.get(result.getIndex()));
+            }
+        }
+        recordOnCommit(applied);
+        return results;
+    }
+
+    @Override
+    public List<MoneyTransfer> getTransfers(long accountId) {
+        return delegate.getTransfers(accountId);
+    }
+
+    @Override
+    public long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer) {
+        return delegate.streamTransfers(accountId, consumer);
+    }
+
+    private void recordOnCommit(List<MoneyTransfer> transfers) {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        boolean registered = accountDAO.afterCompletion(committed -> {
+            if (committed) {
+                transfers.forEach(analytics::record);
+            }
+        });
+        if (!registered) {
+            transfers.forEach(analytics::record);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.BalanceDrift;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.ReconciliationReport;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks that every account's balance equals its opening balance plus the transfers from and to it. The transfers
+ * table is folded into per-account sums on a fork-join pool, split into id ranges each streamed in a session of its
+ * own, together with the archive; the accounts are then compared page by page. Transfers keep committing while this
+ * runs, so an account that looks drifted is checked again on its own with its row locked, which holds off transfers
+ * on that account while its history, archive included, is streamed. Runs every {@code interval} and on demand.
+ */
+public class BalanceReconciler implements Managed {
+    static final long SCAN_SPAN = 50_000;
+    static final int PAGE_SIZE = 1_000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalanceReconciler.class);
+
+    private final AccountDAO accountDAO;
+    private final MoneyTransferDAO transferDAO;
+    private final TransactionRunner transactionRunner;
+    private final TransferArchive archive;
+    private final ForkJoinPool pool;
+    private final Duration interval;
+    private final Clock clock;
+    private final Timer runs;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReconciliationReport lastReport;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * {@code archive} may be null when transfers are not archived.
+     */
+    public BalanceReconciler(AccountDAO accountDAO, MoneyTransferDAO transferDAO, TransactionRunner transactionRunner,
+                             TransferArchive archive, int parallelism, Duration interval, Clock clock,
+                             MetricRegistry metrics) {
+        this.accountDAO = accountDAO;
+        this.transferDAO = transferDAO;
+        this.transactionRunner = transactionRunner;
+        this.archive = archive;
+        this.pool = new ForkJoinPool(parallelism);
+        this.interval = interval;
+        this.clock = clock;
+        this.runs = metrics.timer(MetricRegistry.name(BalanceReconciler.class, "runs"));
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to reconcile balances", e);
+            }
+        }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs a reconciliation on the calling thread, or returns empty when one is already running.
+     */
+    public Optional<ReconciliationReport> reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        try (Timer.Context ignored = runs.time()) {
+            ReconciliationReport report = run();
+            lastReport = report;
+            return Optional.of(report);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * The report of the last completed run, or null before the first.
+     */
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    private ReconciliationReport run() {
+        long started = System.nanoTime();
+        ReconciliationReport report = new ReconciliationReport(LocalDateTime.now(clock));
+        LongAdder transfers = new LongAdder();
+        LongSumMap net = fold(transfers);
+        report.setTransfers(transfers.sum());
+
+        List<Long> candidates = new ArrayList<>();
+        long accounts = 0;
+        long unverified = 0;
+        long afterId = 0;
+        while (true) {
+            long pageAfterId = afterId;
+            List<Account> page = transactionRunner.inTransaction(() -> accountDAO.findPage(pageAfterId, PAGE_SIZE));
+            accounts += page.size();
+            for (Account account : page) {
+                if (account.getOpeningBalance() == null) {
+                    unverified++;
+                } else if (account.getBalance() != account.getOpeningBalance() + net.get(account.getId())) {
+                    candidates.add(account.getId());
+                }
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        report.setAccounts(accounts);
+        report.setUnverified(unverified);
+        for (long accountId : candidates) {
+            BalanceDrift drift = transactionRunner.inTransaction(() -> recheck(accountId));
+            if (drift != null) {
+                report.drifted(drift);
+            }
+        }
+
+        report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        if (report.getDrifted() > 0) {
+            LOGGER.warn("{} of {} accounts have drifted from their transfers, e.g. {}", report.getDrifted(),
+                report.getAccounts(), report.getDrifts().get(0).getAccountId());
+        }
+        LOGGER.info("Reconciled {} accounts against {} transfers in {} ms, {} rechecked, {} without opening balance",
+            report.getAccounts(), report.getTransfers(), report.getDurationMillis(), candidates.size(),
+            report.getUnverified());
+        return report;
+    }
+
+    private LongSumMap fold(LongAdder transfers) {
+        while (true) {
+            transfers.reset();
+            LocalDateTime archivedUntil = archivedUntil();
+            Optional<long[]> idRange = transactionRunner.inTransaction(transferDAO::findIdRange);
+            List<ForkJoinTask<LongSumMap>> scans = new ArrayList<>();
+            idRange.ifPresent(range -> scans.add(new IdRangeScan(range[0], range[1] + 1, archivedUntil, transfers)));
+            if (archivedUntil != null) {
+                scans.add(ForkJoinTask.adapt(() -> {
+                    LongSumMap net = new LongSumMap();
+                    archive.forEach(archivedUntil, transfer -> {
+                        add(net, transfer);
+                        transfers.increment();
+                    });
+                    return net;
+                }));
+            }
+            LongSumMap net = pool.invoke(new RecursiveTask<>() {
+                @Override
+                protected LongSumMap compute() {
+                    return invokeAll(scans).stream()
+                        .map(ForkJoinTask::join)
+                        .reduce(new LongSumMap(), LongSumMap::merge);
+                }
+            });
+            // A range archived meanwhile may have had its rows deleted before the scan reached them.
+            if (Objects.equals(archivedUntil, archivedUntil())) {
+                return net;
+            }
+        }
+    }
+
+    /**
+     * Compares the account with its full history while its row is locked, so that no transfer on it can commit
+     * in between. The history is folded as it streams rather than loaded whole. Returns null when it has not
+     * drifted after all.
+     */
+    private BalanceDrift recheck(long accountId) {
+        Account account = accountDAO.findAllForUpdate(Collections.singletonList(accountId)).get(accountId);
+        if (account == null || account.getOpeningBalance() == null) {
+            return null;
+        }
+        LongSumMap net = new LongSumMap();
+        transferDAO.streamByAccountId(accountId, transfer -> add(net, transfer));
+        long expected = account.getOpeningBalance() + net.get(accountId);
+        return account.getBalance() == expected ? null : new BalanceDrift(accountId, account.getBalance(), expected);
+    }
+
+    private static void add(LongSumMap net, MoneyTransfer transfer) {
+        long amount = transfer.getMoneyAmount();
+        switch (transfer.getTransferType()) {
+            case DEPOSIT:
+                net.add(transfer.getAccountId(), amount);
+                break;
+            case WITHDRAW:
+                net.add(transfer.getAccountId(), -amount);
+                break;
+            case ACCOUNT_TO_ACCOUNT:
+                net.add(transfer.getAccountId(), -amount);
+                net.add(transfer.getDestinationAccountId(), amount);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private LocalDateTime archivedUntil() {
+        return archive == null ? null : archive.getArchivedUntil();
+    }
+
+    /**
+     * Folds {@code [fromId, toId)}, splitting it in halves down to {@link #SCAN_SPAN} ids per query.
+     * Rows dated before {@code archivedUntil} are left to the archive scan.
+     */
+    private final class IdRangeScan extends RecursiveTask<LongSumMap> {
+        private final long fromId;
+        private final long toId;
+        private final LocalDateTime archivedUntil;
+        private final LongAdder transfers;
+
+        IdRangeScan(long fromId, long toId, LocalDateTime archivedUntil, LongAdder transfers) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.archivedUntil = archivedUntil;
+            this.transfers = transfers;
+        }
+
+        @Override
+        protected LongSumMap compute() {
+            if (toId - fromId > SCAN_SPAN) {
+                long middle = fromId + (toId - fromId) / 2;
+                IdRangeScan lower = new IdRangeScan(fromId, middle, archivedUntil, transfers);
+                IdRangeScan upper = new IdRangeScan(middle, toId, archivedUntil, transfers);
+                invokeAll(lower, upper);
+                return lower.join().merge(upper.join());
+            }
+            LongSumMap net = new LongSumMap();
+            transferDAO.streamByIdRange(fromId, toId, transfer -> {
+                if (archivedUntil != null && transfer.getDateTime().isBefore(archivedUntil)) {
+                    return;
+                }
+                add(net, transfer);
+                transfers.increment();
+            });
+            return net;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Times transfers per {@link TransferType} and counts the ones that fail, whichever {@link AccountService}
+ * does the work. A timer's count and rates double as the per-type meter. Transfers without a type are timed as
+ * {@code unknown} and left to the delegate to reject.
+ */
+public class InstrumentedAccountService implements AccountService {
+    private final AccountService delegate;
+    private final Map<TransferType, Timer> transferTimers = new EnumMap<>(TransferType.class);
+    private final Timer unknownTransferTimer;
+    private final Timer batchTimer;
+    private final Counter insufficientBalance;
+    private final Counter failedTransfers;
+    private final Counter rejectedBatchTransfers;
+
+    public InstrumentedAccountService(AccountService delegate, MetricRegistry metrics) {
+        this.delegate = delegate;
+        for (TransferType transferType : TransferType.values()) {
+            transferTimers.put(transferType,
+                metrics.timer(MetricRegistry.name(AccountService.class, "transfers", transferType.name())));
+        }
+        this.unknownTransferTimer = metrics.timer(MetricRegistry.name(AccountService.class, "transfers", "unknown"));
+        this.batchTimer = metrics.timer(MetricRegistry.name(AccountService.class, "transfers", "batch"));
+        this.insufficientBalance = metrics.counter(MetricRegistry.name(AccountService.class, "insufficientBalance"));
+        this.failedTransfers = metrics.counter(MetricRegistry.name(AccountService.class, "failedTransfers"));
+        this.rejectedBatchTransfers =
+            metrics.counter(MetricRegistry.name(AccountService.class, "rejectedBatchTransfers"));
+    }
+
+    @Override
+    public Account getAccount(long accountId) {
+        return delegate.getAccount(accountId);
+    }
+
+    @Override
+    public long getVersion(long accountId) {
+        return delegate.getVersion(accountId);
+    }
+
+    @Override
+    public Account createAccount(Account account) {
+        return delegate.createAccount(account);
+    }
+
+    @Override
+    public List<Account> listAccounts() {
+        return delegate.listAccounts();
+    }
+
+    @Override
+    public List<Account> listAccounts(long afterId, int limit) {
+        return delegate.listAccounts(afterId, limit);
+    }
+
+    @Override
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        return delegate.listAccounts(afterId, limit, fields);
+    }
+
+    @Override
+    public void transferMoney(MoneyTransfer transfer) {
+        Timer timer = transfer.getTransferType() == null
+            ? unknownTransferTimer : transferTimers.get(transfer.getTransferType());
+        try (Timer.Context ignored = timer.time()) {
+            delegate.transferMoney(transfer);
+        } catch (InsufficientBalanceForTransferException e) {
+            insufficientBalance.inc();
+            failedTransfers.inc();
+            throw e;
+        } catch (RuntimeException e) {
+            failedTransfers.inc();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers) {
+        List<TransferResult> results;
+        try (Timer.Context ignored = batchTimer.time()) {
+            results = delegate.transferMoneyBatch(transfers);
+        } catch (RuntimeException e) {
+            failedTransfers.inc(transfers.size());
+            throw e;
+        }
+        for (TransferResult result : results) {
+            if (result.getStatus() == TransferResult.Status.REJECTED) {
+                rejectedBatchTransfers.inc();
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<MoneyTransfer> getTransfers(long accountId) {
+        return delegate.getTransfers(accountId);
+    }
+
+    @Override
+    public long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer) {
+        return delegate.streamTransfers(accountId, consumer);
+    }
+}
@@ -0,0 +1,232 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.journal.BalanceJournal;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.Money;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Ledger whose balances are derived from a {@link BalanceJournal} rather than updated in the accounts table.
+ * {@code accounts.balance} keeps the opening balance and the journal holds every movement since; a transfer is
+ * journaled once its transaction has committed, while its accounts are still locked.
+ *
+ * <p>A crash between the commit and the append, or before the journal is forced, loses the record but not the
+ * {@code transfers} row, so {@link #start()} journals the committed transfers above the low-water mark of the
+ * journal that it does not hold yet.
+ */
+public class JournalAccountService extends LedgerAccountService implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalAccountService.class);
+
+    private final AccountDAO accountDAO;
+    private final MoneyTransferDAO transferDAO;
+    private final BalanceJournal journal;
+    // Transfers written by transactions that have not been journaled or rolled back yet, each to a lower bound
+    // of its id; guarded by itself.
+    private final Map<MoneyTransfer, Long> inFlight = new IdentityHashMap<>();
+    private final AtomicLong highestTransferId = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    // Account id to the value of commits after the last committed transfer that involved the account.
+    private final ConcurrentMap<Long, Long> lastCommits = new ConcurrentHashMap<>();
+
+    public JournalAccountService(AccountDAO accountDAO, MoneyTransferDAO transferDAO, BalanceJournal journal) {
+        super(accountDAO, transferDAO);
+        this.accountDAO = accountDAO;
+        this.transferDAO = transferDAO;
+        this.journal = journal;
+    }
+
+    /**
+     * Replays the transfers that committed without being journaled. Runs once the journal has recovered and
+     * before any transfer is served. A new journal starts above the transfers already in the database instead,
+     * as their movements are part of the opening balances.
+     */
+    @Override
+    public void start() throws IOException {
+        long lowWaterMark = journal.getLowWaterMark();
+        boolean fresh = lowWaterMark == 0 && journal.getRecoveredSequence() == 0;
+        highestTransferId.set(Math.max(lowWaterMark - 1, 0));
+        List<MoneyTransfer> missing = new ArrayList<>();
+        transferDAO.streamByIdRange(lowWaterMark, Long.MAX_VALUE, transfer -> {
+            highestTransferId.accumulateAndGet(transfer.getId(), Math::max);
+            if (!fresh && !journal.isJournaled(transfer.getId())) {
+                missing.add(transfer);
+            }
+        });
+        if (fresh) {
+            journal.raiseLowWaterMark(highestTransferId.get() + 1);
+            journal.snapshot();
+        } else if (!missing.isEmpty()) {
+            journal(missing, lowWaterMark);
+            journal.sync();
+            LOGGER.warn("Journaled {} committed transfers missing from the balance journal", missing.size());
+        }
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public Account getAccount(long accountId) {
+        return withJournalBalance(super.getAccount(accountId));
+    }
+
+    /**
+     * Transfers leave {@code accounts.version} alone here, so the version counts the commits of this process on top
+     * of the journal sequence it recovered. Every commit appended at least one record, so a restart never hands out
+     * a version from before it again.
+     */
+    @Override
+    public long getVersion(long accountId) {
+        super.getVersion(accountId);
+        return journal.getRecoveredSequence() + lastCommits.getOrDefault(accountId, 0L);
+    }
+
+    @Override
+    public List<Account> listAccounts() {
+        return super.listAccounts().stream().map(this::withJournalBalance).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Account> listAccounts(long afterId, int limit) {
+        return super.listAccounts(afterId, limit).stream().map(this::withJournalBalance).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        if (!fields.contains(AccountField.BALANCE)) {
+            return super.listAccounts(afterId, limit, fields);
+        }
+        boolean withId = fields.contains(AccountField.ID);
+        List<AccountField> queried = fields;
+        if (!withId) {
+            queried = new ArrayList<>(fields);
+            queried.add(AccountField.ID);
+        }
+        List<Map<String, Object>> page = super.listAccounts(afterId, limit, queried);
+        String balance = AccountField.BALANCE.getProperty();
+        for (Map<String, Object> row : page) {
+            long accountId = (Long) (withId ? row.get(AccountField.ID.getProperty())
+                : row.remove(AccountField.ID.getProperty()));
+            long openingBalance = Money.toMinorUnits((BigDecimal) row.get(balance));
+            row.put(balance, Money.toMajorUnits(openingBalance + journal.delta(accountId)));
+        }
+        return page;
+    }
+
+    /**
+     * Registers the transfer before it gets an id. Ids come from a sequence, so the highest id written so far bounds
+     * the new one from below.
+     */
+    @Override
+    protected void write(MoneyTransfer transfer) {
+        synchronized (inFlight) {
+            inFlight.put(transfer, highestTransferId.get() + 1);
+        }
+        try {
+            super.write(transfer);
+        } catch (RuntimeException e) {
+            forget(List.of(transfer));
+            throw e;
+        }
+        highestTransferId.accumulateAndGet(transfer.getId(), Math::max);
+    }
+
+    /**
+     * Journals the movements of committed transfers only, so that a crash before the commit leaves nothing behind to
+     * replay. The accounts stay locked until they are appended. Transfers whose append fails stay in flight, which
+     * holds the low-water mark below them until a restart replays them.
+     */
+    @Override
+    protected void completed(List<MoneyTransfer> transfers, boolean committed) {
+        if (committed && !transfers.isEmpty()) {
+            journal(transfers, lowWaterMark());
+        }
+        forget(transfers);
+    }
+
+    /**
+     * No transfer below the lowest id still in flight can commit without having been journaled already.
+     */
+    private long lowWaterMark() {
+        synchronized (inFlight) {
+            long lowWaterMark = highestTransferId.get() + 1;
+            for (long lowerBound : inFlight.values()) {
+                lowWaterMark = Math.min(lowWaterMark, lowerBound);
+            }
+            return lowWaterMark;
+        }
+    }
+
+    private void forget(List<MoneyTransfer> transfers) {
+        synchronized (inFlight) {
+            for (MoneyTransfer transfer : transfers) {
+                inFlight.remove(transfer);
+            }
+        }
+    }
+
+    private void journal(List<MoneyTransfer> transfers, long lowWaterMark) {
+        long[] accountIds = new long[transfers.size() * 2];
+        int touched = 0;
+        for (MoneyTransfer transfer : transfers) {
+            long debitAccountId = BalanceJournal.NO_ACCOUNT;
+            long creditAccountId = BalanceJournal.NO_ACCOUNT;
+            switch (transfer.getTransferType()) {
+                case DEPOSIT:
+                    creditAccountId = transfer.getAccountId();
+                    break;
+                case WITHDRAW:
+                    debitAccountId = transfer.getAccountId();
+                    break;
+                case ACCOUNT_TO_ACCOUNT:
+                    debitAccountId = transfer.getAccountId();
+                    creditAccountId = transfer.getDestinationAccountId();
+                    break;
+                default:
+                    break;
+            }
+            journal.append(debitAccountId, creditAccountId, transfer.getMoneyAmount(), transfer.getId(),
+                lowWaterMark);
+            accountIds[touched++] = debitAccountId;
+            accountIds[touched++] = creditAccountId;
+        }
+        long commit = commits.incrementAndGet();
+        for (long accountId : accountIds) {
+            if (accountId != BalanceJournal.NO_ACCOUNT) {
+                lastCommits.merge(accountId, commit, Math::max);
+            }
+        }
+    }
+
+    @Override
+    protected void persistBalance(long accountId, long balance) {
+        // The accounts row keeps the opening balance; the record appended in completed() is the update.
+    }
+
+    private Account withJournalBalance(Account account) {
+        Account copy = new Account(account.getName(), account.getSurname(),
+            account.getBalance() + journal.delta(account.getId()));
+        copy.setId(account.getId());
+        copy.setVersion(account.getVersion());
+        copy.setOpeningBalance(account.getOpeningBalance());
+        return copy;
+    }
+}
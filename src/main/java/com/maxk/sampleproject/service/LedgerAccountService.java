@@ -0,0 +1,304 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.InvalidTransferTypeException;
+import com.maxk.sampleproject.model.Money;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
+
+import javax.ws.rs.NotFoundException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps balances in memory behind striped locks and writes every change through to the DAOs.
+ * Stripes stay locked until the surrounding transaction completes, so the database sees updates
+ * in ledger order; a rollback drops the cached balances so they are reloaded on next use.
+ */
+public class LedgerAccountService implements AccountService {
+    public static final int DEFAULT_LOCK_STRIPES = 1024;
+
+    private final AccountDAO accountDAO;
+    private final MoneyTransferDAO transferDAO;
+    private final ConcurrentMap<Long, Long> balances = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+
+    public LedgerAccountService(AccountDAO accountDAO, MoneyTransferDAO transferDAO) {
+        this(accountDAO, transferDAO, DEFAULT_LOCK_STRIPES);
+    }
+
+    public LedgerAccountService(AccountDAO accountDAO, MoneyTransferDAO transferDAO, int lockStripes) {
+        if (lockStripes <= 0 || Integer.bitCount(lockStripes) != 1) {
+            throw new IllegalArgumentException("Number of lock stripes must be a power of two");
+        }
+        this.accountDAO = accountDAO;
+        this.transferDAO = transferDAO;
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Account getAccount(long accountId) {
+        return accountDAO.findById(accountId)
+            .orElseThrow(() -> new NotFoundException("No such account."));
+    }
+
+    /**
+     * {@link AccountDAO#updateBalance} bumps the version with the balance.
+     */
+    public long getVersion(long accountId) {
+        return accountDAO.findVersion(accountId)
+            .orElseThrow(() -> new NotFoundException("No such account."));
+    }
+
+    public Account createAccount(Account account) {
+        return accountDAO.save(account);
+    }
+
+    public List<Account> listAccounts() {
+        return accountDAO.findAll();
+    }
+
+    public List<Account> listAccounts(long afterId, int limit) {
+        return accountDAO.findPage(afterId, limit);
+    }
+
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        return accountDAO.findPage(afterId, limit, fields);
+    }
+
+    public void transferMoney(MoneyTransfer transfer) {
+        if (transfer.getTransferType() == null) {
+            throw new InvalidTransferTypeException("Invalid transfer type was specified");
+        }
+        Set<Long> accountIds = accountIdsOf(List.of(transfer));
+        int[] lockedStripes = lock(accountIds);
+        List<MoneyTransfer> written = new ArrayList<>(1);
+        boolean unlockOnCompletion = false;
+        boolean applied = false;
+        try {
+            unlockOnCompletion = unlockOnCompletion(lockedStripes, accountIds, written);
+            apply(transfer, written);
+            applied = true;
+        } catch (RuntimeException e) {
+            evict(accountIds);
+            throw e;
+        } finally {
+            if (!unlockOnCompletion) {
+                complete(applied, lockedStripes, accountIds, written);
+            }
+        }
+    }
+
+    public List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers) {
+        Set<Long> accountIds = accountIdsOf(transfers);
+        int[] lockedStripes = lock(accountIds);
+        List<MoneyTransfer> written = new ArrayList<>(transfers.size());
+        boolean unlockOnCompletion = false;
+        boolean applied = false;
+        try {
+            unlockOnCompletion = unlockOnCompletion(lockedStripes, accountIds, written);
+            Set<Long> missingAccountIds = new HashSet<>();
+            for (long accountId : accountIds) {
+                try {
+                    balanceOf(accountId);
+                } catch (NotFoundException e) {
+                    missingAccountIds.add(accountId);
+                }
+            }
+            List<TransferResult> results = new ArrayList<>(transfers.size());
+            for (int i = 0; i < transfers.size(); i++) {
+                String error = TransferValidation.validate(transfers.get(i), id -> !missingAccountIds.contains(id));
+                results.add(error == null ? null : TransferResult.rejected(i, error));
+            }
+            for (int i = 0; i < transfers.size(); i++) {
+                if (results.get(i) != null) {
+                    continue;
+                }
+                try {
+                    apply(transfers.get(i), written);
+                    results.set(i, TransferResult.applied(i, transfers.get(i)));
+                } catch (InsufficientBalanceForTransferException e) {
+                    results.set(i, TransferResult.rejected(i, e.getMessage()));
+                }
+            }
+            applied = true;
+            return results;
+        } catch (RuntimeException e) {
+            evict(accountIds);
+            throw e;
+        } finally {
+            if (!unlockOnCompletion) {
+                complete(applied, lockedStripes, accountIds, written);
+            }
+        }
+    }
+
+    public List<MoneyTransfer> getTransfers(long accountId) {
+        return transferDAO.getByAccountId(accountId);
+    }
+
+    public long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer) {
+        return transferDAO.streamByAccountId(accountId, consumer);
+    }
+
+    private void apply(MoneyTransfer transfer, List<MoneyTransfer> written) {
+        long sourceAccountId = transfer.getAccountId();
+        long sourceAccountBalance = balanceOf(sourceAccountId);
+        switch (transfer.getTransferType()) {
+            case DEPOSIT:
+                record(transfer, written);
+                update(sourceAccountId, Math.addExact(sourceAccountBalance, transfer.getMoneyAmount()));
+                break;
+            case WITHDRAW:
+                if (transfer.getMoneyAmount() > sourceAccountBalance) {
+                    throw new InsufficientBalanceForTransferException("Can't withdraw " +
+                        Money.format(transfer.getMoneyAmount()) + " from account " + sourceAccountId +
+                        " because the balance of the account is less than the withdrawn amount");
+                }
+                record(transfer, written);
+                update(sourceAccountId, sourceAccountBalance - transfer.getMoneyAmount());
+                break;
+            case ACCOUNT_TO_ACCOUNT:
+                if (transfer.getMoneyAmount() > sourceAccountBalance) {
+                    throw new InsufficientBalanceForTransferException("Can't transfer " +
+                        Money.format(transfer.getMoneyAmount()) + " from account " + sourceAccountId +
+                        " because the balance of the account is less than the transferred amount");
+                }
+                long destinationAccountId = destinationOf(transfer);
+                long destinationAccountBalance = balanceOf(destinationAccountId);
+                record(transfer, written);
+                update(destinationAccountId, Math.addExact(destinationAccountBalance, transfer.getMoneyAmount()));
+                update(sourceAccountId, balanceOf(sourceAccountId) - transfer.getMoneyAmount());
+                break;
+            default:
+                throw new InvalidTransferTypeException("Invalid transfer type was specified");
+        }
+    }
+
+    private void record(MoneyTransfer transfer, List<MoneyTransfer> written) {
+        write(transfer);
+        written.add(transfer);
+    }
+
+    protected void write(MoneyTransfer transfer) {
+        transfer.setDateTime(LocalDateTime.now());
+        transferDAO.create(transfer);
+    }
+
+    private long balanceOf(long accountId) {
+        Long balance = balances.get(accountId);
+        if (balance == null) {
+            balance = getAccount(accountId).getBalance();
+            balances.put(accountId, balance);
+        }
+        return balance;
+    }
+
+    protected void persistBalance(long accountId, long balance) {
+        accountDAO.updateBalance(accountId, balance);
+    }
+
+    private void update(long accountId, long balance) {
+        persistBalance(accountId, balance);
+        balances.put(accountId, balance);
+    }
+
+    /**
+     * Called once the transaction that wrote {@code transfers} has completed, while their accounts are still locked.
+     */
+    protected void completed(List<MoneyTransfer> transfers, boolean committed) {
+    }
+
+    /**
+     * Registered before any balance changes, so that a transfer failing halfway is evicted on rollback too.
+     */
+    private boolean unlockOnCompletion(int[] lockedStripes, Collection<Long> accountIds,
+                                       List<MoneyTransfer> written) {
+        return accountDAO.afterCompletion(committed -> complete(committed, lockedStripes, accountIds, written));
+    }
+
+    private void complete(boolean committed, int[] lockedStripes, Collection<Long> accountIds,
+                          List<MoneyTransfer> written) {
+        try {
+            if (!committed) {
+                evict(accountIds);
+            }
+            completed(written, committed);
+        } finally {
+            unlock(lockedStripes);
+        }
+    }
+
+    /**
+     * Drops cached balances that may have got ahead of the database; they are reloaded on next use.
+     */
+    private void evict(Collection<Long> accountIds) {
+        balances.keySet().removeAll(accountIds);
+    }
+
+    private long destinationOf(MoneyTransfer transfer) {
+        if (transfer.getDestinationAccountId() == null) {
+            throw new NotFoundException("No such account.");
+        }
+        return transfer.getDestinationAccountId();
+    }
+
+    private Set<Long> accountIdsOf(List<MoneyTransfer> transfers) {
+        Set<Long> accountIds = new HashSet<>();
+        for (MoneyTransfer transfer : transfers) {
+            accountIds.add(transfer.getAccountId());
+            if (transfer.getTransferType() == TransferType.ACCOUNT_TO_ACCOUNT && transfer.getDestinationAccountId() != null) {
+                accountIds.add(transfer.getDestinationAccountId());
+            }
+        }
+        return accountIds;
+    }
+
+    private int[] lock(Collection<Long> accountIds) {
+        int[] candidates = new int[accountIds.size()];
+        int count = 0;
+        for (long accountId : accountIds) {
+            candidates[count++] = stripeOf(accountId);
+        }
+        Arrays.sort(candidates);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || candidates[i] != candidates[unique - 1]) {
+                candidates[unique++] = candidates[i];
+            }
+        }
+        int[] lockedStripes = unique == count ? candidates : Arrays.copyOf(candidates, unique);
+        for (int stripe : lockedStripes) {
+            stripes[stripe].lock();
+        }
+        return lockedStripes;
+    }
+
+    private void unlock(int[] lockedStripes) {
+        for (int i = lockedStripes.length - 1; i >= 0; i--) {
+            stripes[lockedStripes[i]].unlock();
+        }
+    }
+
+    private int stripeOf(long accountId) {
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (stripes.length - 1);
+    }
+}
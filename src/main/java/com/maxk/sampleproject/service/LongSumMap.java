@@ -0,0 +1,91 @@
+package com.maxk.sampleproject.service;
+
+/**
+ * Sums per {@code long} key in open-addressed primitive arrays, so folding millions of transfers allocates no
+ * boxes or entries. Not thread-safe; each fork-join task folds into a map of its own and the maps are merged.
+ */
+final class LongSumMap {
+    private static final int MIN_CAPACITY = 16;
+
+    // Key 0 marks a free slot, so a sum for key 0 is kept aside.
+    private long[] keys;
+    private long[] sums;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroKeySum;
+
+    LongSumMap() {
+        keys = new long[MIN_CAPACITY];
+        sums = new long[MIN_CAPACITY];
+    }
+
+    void add(long key, long amount) {
+        if (key == 0) {
+            hasZeroKey = true;
+            zeroKeySum += amount;
+            return;
+        }
+        int slot = slotOf(key);
+        if (keys[slot] == key) {
+            sums[slot] += amount;
+            return;
+        }
+        keys[slot] = key;
+        sums[slot] = amount;
+        if (++size > keys.length * 3 / 4) {
+            resize();
+        }
+    }
+
+    long get(long key) {
+        if (key == 0) {
+            return zeroKeySum;
+        }
+        int slot = slotOf(key);
+        return keys[slot] == key ? sums[slot] : 0;
+    }
+
+    int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Adds the sums of the smaller map into the larger one and returns the larger.
+     */
+    LongSumMap merge(LongSumMap other) {
+        LongSumMap into = size >= other.size ? this : other;
+        LongSumMap from = into == this ? other : this;
+        if (from.hasZeroKey) {
+            into.add(0, from.zeroKeySum);
+        }
+        for (int i = 0; i < from.keys.length; i++) {
+            if (from.keys[i] != 0) {
+                into.add(from.keys[i], from.sums[i]);
+            }
+        }
+        return into;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldSums = sums;
+        keys = new long[oldKeys.length * 2];
+        sums = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                sums[slot] = oldSums[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.db.ReplicationLagMonitor;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Serves reads from a service over the read replica while {@link ReplicationLagMonitor} finds it fresh enough,
+ * and from the primary in a transaction of its own otherwise. The replica's reads run in the resource method's
+ * {@code @UnitOfWork}, which is bound to the replica. Writes always go to the primary.
+ */
+public class ReadRoutingAccountService implements AccountService {
+    private final AccountService delegate;
+    private final AccountService replica;
+    private final ReplicationLagMonitor lagMonitor;
+    private final TransactionRunner transactionRunner;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    public ReadRoutingAccountService(AccountService delegate, AccountService replica, ReplicationLagMonitor lagMonitor,
+                                     TransactionRunner transactionRunner, MetricRegistry metrics) {
+        this.delegate = delegate;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        this.transactionRunner = transactionRunner;
+        this.replicaReads = metrics.counter(MetricRegistry.name(ReadRoutingAccountService.class, "replicaReads"));
+        this.primaryReads = metrics.counter(MetricRegistry.name(ReadRoutingAccountService.class, "primaryReads"));
+    }
+
+    @Override
+    public Account getAccount(long accountId) {
+        return read(service -> service.getAccount(accountId));
+    }
+
+    @Override
+    public long getVersion(long accountId) {
+        return read(service -> service.getVersion(accountId));
+    }
+
+    @Override
+    public Account createAccount(Account account) {
+        return delegate.createAccount(account);
+    }
+
+    @Override
+    public List<Account> listAccounts() {
+        return read(AccountService::listAccounts);
+    }
+
+    @Override
+    public List<Account> listAccounts(long afterId, int limit) {
+        return read(service -> service.listAccounts(afterId, limit));
+    }
+
+    @Override
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        return read(service -> service.listAccounts(afterId, limit, fields));
+    }
+
+    @Override
+    public void transferMoney(MoneyTransfer transfer) {
+        delegate.transferMoney(transfer);
+    }
+
+    @Override
+    public List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers) {
+        return delegate.transferMoneyBatch(transfers);
+    }
+
+    @Override
+    public List<MoneyTransfer> getTransfers(long accountId) {
+        return read(service -> service.getTransfers(accountId));
+    }
+
+    /**
+     * Streaming opens a session of its own on either side, so the primary needs no transaction here.
+     */
+    @Override
+    public long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer) {
+        if (lagMonitor.isFresh()) {
+            replicaReads.inc();
+            return replica.streamTransfers(accountId, consumer);
+        }
+        primaryReads.inc();
+        return delegate.streamTransfers(accountId, consumer);
+    }
+
+    private <T> T read(Function<AccountService, T> read) {
+        if (lagMonitor.isFresh()) {
+            replicaReads.inc();
+            return read.apply(replica);
+        }
+        primaryReads.inc();
+        return transactionRunner.inTransaction(() -> read.apply(delegate));
+    }
+}
@@ -0,0 +1,144 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import org.hibernate.StaleStateException;
+
+import javax.persistence.OptimisticLockException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs each transfer in a transaction of its own and retries it, with full-jitter exponential backoff,
+ * when the commit loses an optimistic version check to a concurrent transfer on the same account.
+ * Callers must not wrap {@link #transferMoney} in a unit of work; every other method is passed through.
+ */
+public class RetryingAccountService implements AccountService {
+    private final AccountService delegate;
+    private final TransactionRunner transactionRunner;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public RetryingAccountService(AccountService delegate, TransactionRunner transactionRunner, int maxAttempts,
+                                  long initialBackoffNanos, long maxBackoffNanos, MetricRegistry metrics) {
+        this.delegate = delegate;
+        this.transactionRunner = transactionRunner;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.conflicts = metrics.counter(MetricRegistry.name(RetryingAccountService.class, "conflicts"));
+        this.retries = metrics.counter(MetricRegistry.name(RetryingAccountService.class, "retries"));
+        this.exhausted = metrics.counter(MetricRegistry.name(RetryingAccountService.class, "exhausted"));
+    }
+
+    @Override
+    public Account getAccount(long accountId) {
+        return delegate.getAccount(accountId);
+    }
+
+    @Override
+    public long getVersion(long accountId) {
+        return delegate.getVersion(accountId);
+    }
+
+    @Override
+    public Account createAccount(Account account) {
+        return delegate.createAccount(account);
+    }
+
+    @Override
+    public List<Account> listAccounts() {
+        return delegate.listAccounts();
+    }
+
+    @Override
+    public List<Account> listAccounts(long afterId, int limit) {
+        return delegate.listAccounts(afterId, limit);
+    }
+
+    @Override
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        return delegate.listAccounts(afterId, limit, fields);
+    }
+
+    @Override
+    public void transferMoney(MoneyTransfer transfer) {
+        inTransaction(transfer, () -> delegate.transferMoney(transfer));
+    }
+
+    /**
+     * Runs work that persists {@code transfer} in a transaction of its own, retried like {@link #transferMoney}.
+     */
+    public void inTransaction(MoneyTransfer transfer, Runnable work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionRunner.inTransaction(work);
+                return;
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflicts.inc();
+                if (attempt >= maxAttempts) {
+                    exhausted.inc();
+                    throw new ClientErrorException("Account was modified concurrently, retry the transfer",
+                        Response.Status.CONFLICT, e);
+                }
+            }
+            // The rolled back attempt left the generated id behind; persist it afresh next time.
+            transfer.setId(0);
+            transfer.setDateTime(null);
+            retries.inc();
+            backOff(attempt);
+        }
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off a transfer retry", e);
+        }
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers) {
+        return delegate.transferMoneyBatch(transfers);
+    }
+
+    @Override
+    public List<MoneyTransfer> getTransfers(long accountId) {
+        return delegate.getTransfers(accountId);
+    }
+
+    @Override
+    public long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer) {
+        return delegate.streamTransfers(accountId, consumer);
+    }
+}
@@ -0,0 +1,330 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.db.ShardRouter;
+import com.maxk.sampleproject.db.ShardRouter.Shard;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.Money;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferReservation;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.NotFoundException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Spreads accounts over the databases of a {@link ShardRouter}, running every operation in transactions of its
+ * own on the shards involved. A transfer between accounts on different shards is reserved on the source shard,
+ * where the debit commits together with a {@link TransferReservation}, and then committed on the destination shard,
+ * which credits the amount once per reservation id; the reservation is released last. Reservations still held
+ * {@code recoveryInterval} after they were made, e.g. after a crash, are committed again on start and periodically,
+ * and CREDITED rows are deleted once {@code creditedRetention} old and released on the source shard. Transfers are
+ * retried on conflicts by the shard's {@link RetryingAccountService}, so callers must not open a transaction around
+ * them, which would hold a second connection of shard 0.
+ */
+public class ShardedAccountService implements AccountService, Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedAccountService.class);
+
+    private final ShardRouter shards;
+    private final List<RetryingAccountService> services = new ArrayList<>();
+    private final Duration recoveryInterval;
+    private final Duration creditedRetention;
+    private final Clock clock;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final Counter crossShardTransfers;
+    private final Counter recoveredTransfers;
+    private ScheduledExecutorService scheduler;
+
+    public ShardedAccountService(ShardRouter shards, Duration recoveryInterval, Duration creditedRetention, Clock clock,
+                                 MetricRegistry metrics,
+                                 BiFunction<AccountService, TransactionRunner, RetryingAccountService> retrying) {
+        this.shards = shards;
+        for (Shard shard : shards.getShards()) {
+            services.add(retrying.apply(new AccountServiceImpl(shard.getAccountDAO(), shard.getTransferDAO()),
+                shard.getTransactionRunner()));
+        }
+        this.recoveryInterval = recoveryInterval;
+        this.creditedRetention = creditedRetention;
+        this.clock = clock;
+        this.crossShardTransfers = metrics.counter(
+            MetricRegistry.name(ShardedAccountService.class, "crossShardTransfers"));
+        this.recoveredTransfers = metrics.counter(
+            MetricRegistry.name(ShardedAccountService.class, "recoveredTransfers"));
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transfer-reservation-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                recover();
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to recover reserved transfers", e);
+            }
+        }, 0, recoveryInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public Account getAccount(long accountId) {
+        Shard shard = shardOf(accountId);
+        return shard.inTransaction(() -> serviceOf(shard).getAccount(accountId));
+    }
+
+    /**
+     * A transfer between shards bumps the destination's version when it is committed there.
+     */
+    @Override
+    public long getVersion(long accountId) {
+        Shard shard = shardOf(accountId);
+        return shard.inTransaction(() -> serviceOf(shard).getVersion(accountId));
+    }
+
+    /**
+     * New accounts go to the shards in turn.
+     */
+    @Override
+    public Account createAccount(Account account) {
+        Shard shard = shards.get(Math.floorMod(nextShard.getAndIncrement(), shards.size()));
+        return shard.inTransaction(() -> serviceOf(shard).createAccount(account));
+    }
+
+    /**
+     * Shards hold consecutive id ranges, so concatenating them keeps the accounts in id order.
+     */
+    @Override
+    public List<Account> listAccounts() {
+        List<Account> accounts = new ArrayList<>();
+        for (Shard shard : shards.getShards()) {
+            accounts.addAll(shard.inTransaction(() -> serviceOf(shard).listAccounts()));
+        }
+        return accounts;
+    }
+
+    @Override
+    public List<Account> listAccounts(long afterId, int limit) {
+        List<Account> page = new ArrayList<>(limit);
+        for (int i = ShardRouter.shardOf(afterId); i < shards.size() && page.size() < limit; i++) {
+            Shard shard = shards.get(i);
+            int remaining = limit - page.size();
+            page.addAll(shard.inTransaction(() -> serviceOf(shard).listAccounts(afterId, remaining)));
+        }
+        return page;
+    }
+
+    @Override
+    public List<Map<String, Object>> listAccounts(long afterId, int limit, List<AccountField> fields) {
+        List<Map<String, Object>> page = new ArrayList<>(limit);
+        for (int i = ShardRouter.shardOf(afterId); i < shards.size() && page.size() < limit; i++) {
+            Shard shard = shards.get(i);
+            int remaining = limit - page.size();
+            page.addAll(shard.inTransaction(() -> serviceOf(shard).listAccounts(afterId, remaining, fields)));
+        }
+        return page;
+    }
+
+    @Override
+    public void transferMoney(MoneyTransfer transfer) {
+        Shard source = shardOf(transfer.getAccountId());
+        if (transfer.getTransferType() != TransferType.ACCOUNT_TO_ACCOUNT
+            || transfer.getDestinationAccountId() == null
+            || ShardRouter.shardOf(transfer.getDestinationAccountId()) == source.getIndex()) {
+            serviceOf(source).transferMoney(transfer);
+            return;
+        }
+        // Nothing could commit the reservation to a missing account, so check before debiting.
+        getAccount(transfer.getDestinationAccountId());
+        serviceOf(source).inTransaction(transfer, () -> reserve(source, transfer));
+        TransferReservation reservation = TransferReservation.reserve(transfer);
+        crossShardTransfers.inc();
+        try {
+            commit(reservation);
+        } catch (RuntimeException e) {
+            // The debit stands; recovery credits the destination later.
+            LOGGER.warn("Failed to commit transfer {}, leaving it to recovery", reservation.getId(), e);
+        }
+    }
+
+    /**
+     * Applies each transfer in a transaction of its own; a batch is not atomic across shards.
+     */
+    @Override
+    public List<TransferResult> transferMoneyBatch(List<MoneyTransfer> transfers) {
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            MoneyTransfer transfer = transfers.get(i);
+            String error = TransferValidation.validate(transfer, this::exists);
+            if (error != null) {
+                results.add(TransferResult.rejected(i, error));
+                continue;
+            }
+            try {
+                transferMoney(transfer);
+                results.add(TransferResult.applied(i, transfer));
+            } catch (InsufficientBalanceForTransferException e) {
+                results.add(TransferResult.rejected(i, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The account's shard holds its outgoing transfers and a copy of every incoming one, wherever it came from.
+     */
+    @Override
+    public List<MoneyTransfer> getTransfers(long accountId) {
+        Shard shard = shardOf(accountId);
+        return shard.inTransaction(() -> serviceOf(shard).getTransfers(accountId));
+    }
+
+    @Override
+    public long streamTransfers(long accountId, Consumer<MoneyTransfer> consumer) {
+        return serviceOf(shardOf(accountId)).streamTransfers(accountId, consumer);
+    }
+
+    /**
+     * Commits the reservations made more than {@code recoveryInterval} ago that are still held, and prunes old
+     * CREDITED rows. Returns how many reservations were committed.
+     */
+    public int recover() {
+        LocalDateTime before = LocalDateTime.now(clock).minus(recoveryInterval);
+        int recovered = 0;
+        for (Shard shard : shards.getShards()) {
+            List<TransferReservation> reserved = shard.inTransaction(() -> shard.getReservationDAO()
+                .findByStateBefore(TransferReservation.State.RESERVED, before));
+            for (TransferReservation reservation : reserved) {
+                try {
+                    commit(reservation);
+                    recovered++;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to commit reserved transfer {}", reservation.getId(), e);
+                }
+            }
+        }
+        if (recovered > 0) {
+            recoveredTransfers.inc(recovered);
+            LOGGER.info("Committed {} reserved transfers", recovered);
+        }
+        pruneCredited();
+        return recovered;
+    }
+
+    /**
+     * A CREDITED row only guards against its reservation being committed twice, so it can go once the source shard
+     * has released the reservation. The retention covers a recovery on another node that read it before then.
+     */
+    private void pruneCredited() {
+        LocalDateTime before = LocalDateTime.now(clock).minus(creditedRetention);
+        int pruned = 0;
+        for (Shard shard : shards.getShards()) {
+            List<TransferReservation> credited = shard.inTransaction(() -> shard.getReservationDAO()
+                .findByStateBefore(TransferReservation.State.CREDITED, before));
+            for (TransferReservation reservation : credited) {
+                try {
+                    Shard source = shards.forAccount(reservation.getAccountId());
+                    if (source.inTransaction(() -> source.getReservationDAO().findById(reservation.getId())
+                        .isPresent())) {
+                        continue;
+                    }
+                    pruned += shard.inTransaction(() -> shard.getReservationDAO()
+                        .delete(reservation.getId(), TransferReservation.State.CREDITED));
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to prune credited transfer {}", reservation.getId(), e);
+                }
+            }
+        }
+        if (pruned > 0) {
+            LOGGER.info("Pruned {} credited transfers", pruned);
+        }
+    }
+
+    private void reserve(Shard source, MoneyTransfer transfer) {
+        Account sourceAccount = serviceOf(source).getAccount(transfer.getAccountId());
+        if (transfer.getMoneyAmount() > sourceAccount.getBalance()) {
+            throw new InsufficientBalanceForTransferException("Can't transfer " +
+                Money.format(transfer.getMoneyAmount()) + " from account " + sourceAccount.getId() +
+                " because the balance of the account is less than the transferred amount");
+        }
+        transfer.setDateTime(LocalDateTime.now(clock));
+        source.getTransferDAO().create(transfer);
+        sourceAccount.setBalance(sourceAccount.getBalance() - transfer.getMoneyAmount());
+        save(source, sourceAccount, transfer.getMoneyAmount());
+        source.getReservationDAO().create(TransferReservation.reserve(transfer));
+    }
+
+    private void commit(TransferReservation reservation) {
+        Shard destination = shards.forAccount(reservation.getDestinationAccountId());
+        destination.inTransaction(() -> {
+            if (destination.getReservationDAO().findById(reservation.getId()).isPresent()) {
+                return;
+            }
+            Account account = serviceOf(destination).getAccount(reservation.getDestinationAccountId());
+            account.setBalance(Math.addExact(account.getBalance(), reservation.getMoneyAmount()));
+            save(destination, account, reservation.getMoneyAmount());
+            destination.getTransferDAO().create(reservation.toTransfer());
+            destination.getReservationDAO().create(reservation.credited());
+        });
+        Shard source = shards.forAccount(reservation.getAccountId());
+        source.inTransaction(() -> source.getReservationDAO()
+            .delete(reservation.getId(), TransferReservation.State.RESERVED));
+    }
+
+    /**
+     * A zero amount leaves the balance alone, so the version, which tags the transfer history too, is bumped instead.
+     */
+    private static void save(Shard shard, Account account, long amount) {
+        Account saved = shard.getAccountDAO().save(account);
+        if (amount == 0) {
+            shard.getAccountDAO().forceVersionIncrement(saved);
+        }
+    }
+
+    private boolean exists(long accountId) {
+        if (!shards.contains(accountId)) {
+            return false;
+        }
+        Shard shard = shards.forAccount(accountId);
+        return shard.inTransaction(() -> shard.getAccountDAO().findById(accountId).isPresent());
+    }
+
+    private Shard shardOf(long accountId) {
+        if (!shards.contains(accountId)) {
+            throw new NotFoundException("No such account.");
+        }
+        return shards.forAccount(accountId);
+    }
+
+    private RetryingAccountService serviceOf(Shard shard) {
+        return services.get(shard.getIndex());
+    }
+}
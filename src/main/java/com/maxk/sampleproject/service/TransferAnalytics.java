@@ -0,0 +1,335 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.AccountVolume;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferTotal;
+import com.maxk.sampleproject.model.TransferType;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transfer totals kept in memory for the analytics endpoints: the volume each account took part in, count and
+ * amount per {@link TransferType}, and count and amount per hour. They are built once by a scan of the transfers
+ * table, split into id ranges on a fork-join pool, and of the archive; {@link #record} then keeps them current as
+ * transfers commit. Transfers committed during the scan are held back and added afterwards unless the scan saw them.
+ */
+public class TransferAnalytics implements Managed {
+    static final long SCAN_SPAN = 50_000;
+    /**
+     * Transfers dated this long before the scan started are assumed to have committed before it.
+     */
+    private static final Duration IN_FLIGHT_SLACK = Duration.ofMinutes(1);
+    private static final TransferType[] TRANSFER_TYPES = TransferType.values();
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferAnalytics.class);
+
+    private final MoneyTransferDAO transferDAO;
+    private final TransactionRunner transactionRunner;
+    private final TransferArchive archive;
+    private final ForkJoinPool pool;
+    private final Clock clock;
+    private final ConcurrentMap<Long, LongAdder> volumes = new ConcurrentHashMap<>();
+    private final LongAdder[] typeCounts = new LongAdder[TRANSFER_TYPES.length];
+    private final LongAdder[] typeAmounts = new LongAdder[TRANSFER_TYPES.length];
+    private final ConcurrentNavigableMap<Long, Totals> hours = new ConcurrentSkipListMap<>();
+    private final Object lock = new Object();
+    private List<MoneyTransfer> heldBack = new ArrayList<>();
+    private volatile boolean ready;
+
+    /**
+     * {@code archive} may be null when transfers are not archived.
+     */
+    public TransferAnalytics(MoneyTransferDAO transferDAO, TransactionRunner transactionRunner,
+                             TransferArchive archive, int parallelism, Clock clock) {
+        this.transferDAO = transferDAO;
+        this.transactionRunner = transactionRunner;
+        this.archive = archive;
+        this.pool = new ForkJoinPool(parallelism);
+        this.clock = clock;
+        for (int i = 0; i < TRANSFER_TYPES.length; i++) {
+            typeCounts[i] = new LongAdder();
+            typeAmounts[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void start() {
+        Thread builder = new Thread(() -> {
+            try {
+                build();
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to build transfer analytics", e);
+            } finally {
+                pool.shutdown();
+            }
+        }, "transfer-analytics");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    void build() {
+        long started = System.nanoTime();
+        LocalDateTime recentSince = LocalDateTime.now(clock).minus(IN_FLIGHT_SLACK);
+        Set<Long> recentIds = ConcurrentHashMap.newKeySet();
+        Aggregate total;
+        while (true) {
+            recentIds.clear();
+            LocalDateTime archivedUntil = archivedUntil();
+            Optional<long[]> idRange = transactionRunner.inTransaction(transferDAO::findIdRange);
+            List<ForkJoinTask<Aggregate>> scans = new ArrayList<>();
+            idRange.ifPresent(range ->
+                scans.add(new IdRangeScan(range[0], range[1] + 1, archivedUntil, recentSince, recentIds)));
+            if (archivedUntil != null) {
+                scans.add(ForkJoinTask.adapt(() -> {
+                    Aggregate aggregate = new Aggregate();
+                    archive.forEach(archivedUntil, aggregate::add);
+                    return aggregate;
+                }));
+            }
+            total = pool.invoke(new RecursiveTask<>() {
+                @Override
+                protected Aggregate compute() {
+                    return invokeAll(scans).stream()
+                        .map(ForkJoinTask::join)
+                        .reduce(new Aggregate(), Aggregate::merge);
+                }
+            });
+            // A range archived meanwhile may have had its rows deleted before the scan reached them.
+            if (Objects.equals(archivedUntil, archivedUntil())) {
+                break;
+            }
+        }
+        int heldBackCount;
+        synchronized (lock) {
+            total.addTo(this);
+            heldBackCount = heldBack.size();
+            for (MoneyTransfer transfer : heldBack) {
+                if (!recentIds.contains(transfer.getId())) {
+                    add(transfer);
+                }
+            }
+            heldBack = null;
+            ready = true;
+        }
+        LOGGER.info("Built transfer analytics for {} accounts in {} ms, {} transfers committed meanwhile",
+            volumes.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), heldBackCount);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Adds a committed transfer to the totals.
+     */
+    public void record(MoneyTransfer transfer) {
+        if (ready) {
+            add(transfer);
+            return;
+        }
+        synchronized (lock) {
+            if (ready) {
+                add(transfer);
+            } else {
+                heldBack.add(transfer);
+            }
+        }
+    }
+
+    /**
+     * The accounts with the highest volume, highest first.
+     */
+    public List<AccountVolume> topAccounts(int limit) {
+        Comparator<AccountVolume> byVolume = Comparator.comparingLong(AccountVolume::getVolume)
+            .thenComparing(Comparator.comparingLong(AccountVolume::getAccountId).reversed());
+        PriorityQueue<AccountVolume> top = new PriorityQueue<>(limit + 1, byVolume);
+        for (Map.Entry<Long, LongAdder> entry : volumes.entrySet()) {
+            top.add(new AccountVolume(entry.getKey(), entry.getValue().sum()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<AccountVolume> result = new ArrayList<>(top);
+        result.sort(byVolume.reversed());
+        return result;
+    }
+
+    public List<TransferTotal> totalsByType() {
+        List<TransferTotal> totals = new ArrayList<>(TRANSFER_TYPES.length);
+        for (TransferType transferType : TRANSFER_TYPES) {
+            totals.add(TransferTotal.ofType(transferType, typeCounts[transferType.ordinal()].sum(),
+                typeAmounts[transferType.ordinal()].sum()));
+        }
+        return totals;
+    }
+
+    /**
+     * Totals for each of the last {@code count} hours up to the current one, oldest first, empty hours included.
+     */
+    public List<TransferTotal> throughput(int count) {
+        long last = hourOf(LocalDateTime.now(clock));
+        List<TransferTotal> totals = new ArrayList<>(count);
+        for (long hour = last - count + 1; hour <= last; hour++) {
+            Totals found = hours.get(hour);
+            totals.add(TransferTotal.ofHour(LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC),
+                found == null ? 0 : found.count.sum(), found == null ? 0 : found.amount.sum()));
+        }
+        return totals;
+    }
+
+    private void add(MoneyTransfer transfer) {
+        long amount = transfer.getMoneyAmount();
+        volumes.computeIfAbsent(transfer.getAccountId(), id -> new LongAdder()).add(amount);
+        Long destination = transfer.getDestinationAccountId();
+        if (destination != null && destination != transfer.getAccountId()) {
+            volumes.computeIfAbsent(destination, id -> new LongAdder()).add(amount);
+        }
+        typeCounts[transfer.getTransferType().ordinal()].increment();
+        typeAmounts[transfer.getTransferType().ordinal()].add(amount);
+        Totals hour = hours.computeIfAbsent(hourOf(transfer.getDateTime()), key -> new Totals());
+        hour.count.increment();
+        hour.amount.add(amount);
+    }
+
+    private LocalDateTime archivedUntil() {
+        return archive == null ? null : archive.getArchivedUntil();
+    }
+
+    private static long hourOf(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    private static final class Totals {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder amount = new LongAdder();
+    }
+
+    /**
+     * Scans {@code [fromId, toId)}, splitting it in halves down to {@link #SCAN_SPAN} ids per query.
+     * Rows dated before {@code archivedUntil} are left to the archive scan.
+     */
+    private final class IdRangeScan extends RecursiveTask<Aggregate> {
+        private final long fromId;
+        private final long toId;
+        private final LocalDateTime archivedUntil;
+        private final LocalDateTime recentSince;
+        private final Set<Long> recentIds;
+
+        IdRangeScan(long fromId, long toId, LocalDateTime archivedUntil, LocalDateTime recentSince,
+                    Set<Long> recentIds) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.archivedUntil = archivedUntil;
+            this.recentSince = recentSince;
+            this.recentIds = recentIds;
+        }
+
+        @Override
+        protected Aggregate compute() {
+            if (toId - fromId > SCAN_SPAN) {
+                long middle = fromId + (toId - fromId) / 2;
+                IdRangeScan lower = new IdRangeScan(fromId, middle, archivedUntil, recentSince, recentIds);
+                IdRangeScan upper = new IdRangeScan(middle, toId, archivedUntil, recentSince, recentIds);
+                invokeAll(lower, upper);
+                return lower.join().merge(upper.join());
+            }
+            Aggregate aggregate = new Aggregate();
+            transferDAO.streamByIdRange(fromId, toId, transfer -> {
+                if (archivedUntil != null && transfer.getDateTime().isBefore(archivedUntil)) {
+                    return;
+                }
+                aggregate.add(transfer);
+                if (!transfer.getDateTime().isBefore(recentSince)) {
+                    recentIds.add(transfer.getId());
+                }
+            });
+            return aggregate;
+        }
+    }
+
+    /**
+     * Totals of part of the scan, private to one task until merged.
+     */
+    private static final class Aggregate {
+        private final Map<Long, Long> volumes = new HashMap<>();
+        private final long[] typeCounts = new long[TRANSFER_TYPES.length];
+        private final long[] typeAmounts = new long[TRANSFER_TYPES.length];
+        private final Map<Long, long[]> hours = new HashMap<>();
+
+        void add(MoneyTransfer transfer) {
+            long amount = transfer.getMoneyAmount();
+            volumes.merge(transfer.getAccountId(), amount, Long::sum);
+            Long destination = transfer.getDestinationAccountId();
+            if (destination != null && destination != transfer.getAccountId()) {
+                volumes.merge(destination, amount, Long::sum);
+            }
+            typeCounts[transfer.getTransferType().ordinal()]++;
+            typeAmounts[transfer.getTransferType().ordinal()] += amount;
+            long[] hour = hours.computeIfAbsent(hourOf(transfer.getDateTime()), key -> new long[2]);
+            hour[0]++;
+            hour[1] += amount;
+        }
+
+        Aggregate merge(Aggregate other) {
+            Aggregate into = volumes.size() >= other.volumes.size() ? this : other;
+            Aggregate from = into == this ? other : this;
+            from.volumes.forEach((accountId, volume) -> into.volumes.merge(accountId, volume, Long::sum));
+            for (int i = 0; i < TRANSFER_TYPES.length; i++) {
+                into.typeCounts[i] += from.typeCounts[i];
+                into.typeAmounts[i] += from.typeAmounts[i];
+            }
+            from.hours.forEach((hour, totals) -> into.hours.merge(hour, totals, (a, b) -> {
+                a[0] += b[0];
+                a[1] += b[1];
+                return a;
+            }));
+            return into;
+        }
+
+        void addTo(TransferAnalytics analytics) {
+            volumes.forEach((accountId, volume) ->
+                analytics.volumes.computeIfAbsent(accountId, id -> new LongAdder()).add(volume));
+            for (int i = 0; i < TRANSFER_TYPES.length; i++) {
+                analytics.typeCounts[i].add(typeCounts[i]);
+                analytics.typeAmounts[i].add(typeAmounts[i]);
+            }
+            hours.forEach((hour, totals) -> {
+                Totals live = analytics.hours.computeIfAbsent(hour, key -> new Totals());
+                live.count.add(totals[0]);
+                live.amount.add(totals[1]);
+            });
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.InvalidTransferTypeException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.NotFoundException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies a transfer carrying an idempotency key at most once. Outcomes of recent keys, including
+ * rejections, are kept in a bounded cache; older keys are found through the unique column on
+ * {@code transfers}. Concurrent requests with the same key wait for the first one instead of racing it.
+ * A rejection is kept as its kind and message, and every replay throws an exception of its own.
+ */
+public class TransferIdempotencyStore {
+    private final Cache<String, Outcome> outcomes;
+    private final ConcurrentMap<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+    private final MoneyTransferDAO transferDAO;
+    private final TransactionRunner transactionRunner;
+    private final Counter replayed;
+    private final Counter mismatched;
+
+    public TransferIdempotencyStore(Cache<String, Outcome> outcomes, MoneyTransferDAO transferDAO,
+                                    TransactionRunner transactionRunner, MetricRegistry metrics) {
+        this.outcomes = outcomes;
+        this.transferDAO = transferDAO;
+        this.transactionRunner = transactionRunner;
+        this.replayed = metrics.counter(MetricRegistry.name(TransferIdempotencyStore.class, "replayed"));
+        this.mismatched = metrics.counter(MetricRegistry.name(TransferIdempotencyStore.class, "mismatched"));
+    }
+
+    /**
+     * Runs {@code transfer} through {@code action}, which must commit it, unless a transfer with the same key
+     * has already been applied or rejected, in which case that outcome is returned again.
+     */
+    public void transferMoney(MoneyTransfer transfer, Consumer<MoneyTransfer> action) {
+        String key = transfer.getIdempotencyKey();
+        if (key == null) {
+            action.accept(transfer);
+            return;
+        }
+        while (true) {
+            Outcome outcome = outcomes.getIfPresent(key);
+            if (outcome != null) {
+                replay(outcome, transfer);
+                return;
+            }
+            CompletableFuture<Outcome> pending = new CompletableFuture<>();
+            CompletableFuture<Outcome> running = inFlight.putIfAbsent(key, pending);
+            if (running != null) {
+                try {
+                    outcome = running.join();
+                } catch (CompletionException e) {
+                    // The first request failed without an outcome worth keeping; try again ourselves.
+                    continue;
+                }
+                replay(outcome, transfer);
+                return;
+            }
+            try {
+                outcome = apply(transfer, action);
+                outcomes.put(key, outcome);
+                pending.complete(outcome);
+            } catch (RuntimeException e) {
+                pending.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, pending);
+            }
+            if (outcome.transfer != transfer) {
+                replay(outcome, transfer);
+            } else if (outcome.rejection != null) {
+                throw outcome.rejection.toException(outcome.message);
+            }
+            return;
+        }
+    }
+
+    private Outcome apply(MoneyTransfer transfer, Consumer<MoneyTransfer> action) {
+        Optional<MoneyTransfer> stored = findStored(transfer.getIdempotencyKey());
+        if (stored.isPresent()) {
+            return Outcome.applied(stored.get());
+        }
+        try {
+            action.accept(transfer);
+            return Outcome.applied(transfer);
+        } catch (InsufficientBalanceForTransferException e) {
+            return Outcome.rejected(transfer, Rejection.INSUFFICIENT_BALANCE, e.getMessage());
+        } catch (InvalidTransferTypeException e) {
+            return Outcome.rejected(transfer, Rejection.INVALID_TRANSFER_TYPE, e.getMessage());
+        } catch (NotFoundException e) {
+            return Outcome.rejected(transfer, Rejection.NOT_FOUND, e.getMessage());
+        } catch (RuntimeException e) {
+            // Another node may have committed the same key first, in which case the unique index rejected ours.
+            return findStored(transfer.getIdempotencyKey()).map(Outcome::applied).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<MoneyTransfer> findStored(String key) {
+        return transactionRunner.inTransaction(() -> transferDAO.findByIdempotencyKey(key));
+    }
+
+    private void replay(Outcome outcome, MoneyTransfer transfer) {
+        if (!outcome.matches(transfer)) {
+            mismatched.inc();
+            throw new ClientErrorException("Idempotency-Key was already used for a different transfer", 422);
+        }
+        replayed.inc();
+        if (outcome.rejection != null) {
+            throw outcome.rejection.toException(outcome.message);
+        }
+        transfer.setId(outcome.transferId);
+        transfer.setDateTime(outcome.transfer.getDateTime());
+    }
+
+    private enum Rejection {
+        INSUFFICIENT_BALANCE(InsufficientBalanceForTransferException::new),
+        INVALID_TRANSFER_TYPE(InvalidTransferTypeException::new),
+        NOT_FOUND(NotFoundException::new);
+
+        private final Function<String, RuntimeException> exception;
+
+        Rejection(Function<String, RuntimeException> exception) {
+            this.exception = exception;
+        }
+
+        RuntimeException toException(String message) {
+            return exception.apply(message);
+        }
+    }
+
+    public static final class Outcome {
+        private final MoneyTransfer transfer;
+        private final long transferId;
+        private final Rejection rejection;
+        private final String message;
+
+        private Outcome(MoneyTransfer transfer, long transferId, Rejection rejection, String message) {
+            this.transfer = transfer;
+            this.transferId = transferId;
+            this.rejection = rejection;
+            this.message = message;
+        }
+
+        static Outcome applied(MoneyTransfer transfer) {
+            return new Outcome(transfer, transfer.getId(), null, null);
+        }
+
+        static Outcome rejected(MoneyTransfer transfer, Rejection rejection, String message) {
+            return new Outcome(transfer, 0, rejection, message);
+        }
+
+        private boolean matches(MoneyTransfer other) {
+            return transfer.getAccountId() == other.getAccountId()
+                && Objects.equals(transfer.getDestinationAccountId(), other.getDestinationAccountId())
+                && transfer.getMoneyAmount() == other.getMoneyAmount()
+                && transfer.getTransferType() == other.getTransferType();
+        }
+    }
+}
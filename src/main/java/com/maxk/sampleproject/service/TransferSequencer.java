@@ -0,0 +1,166 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.InvalidTransferTypeException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies transfers on a single writer thread and commits them in groups: a batch is committed once
+ * it holds {@code batchSize} transfers or {@code maxBatchDelayNanos} after its first transfer arrived.
+ * Callers are completed only after the batch containing their transfer has been committed.
+ */
+public class TransferSequencer implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferSequencer.class);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final AccountService accountService;
+    private final TransactionRunner transactionRunner;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final int batchSize;
+    private final long maxBatchDelayNanos;
+    private final Thread writer;
+    private volatile boolean running;
+
+    public TransferSequencer(AccountService accountService, TransactionRunner transactionRunner,
+                             int queueCapacity, int batchSize, long maxBatchDelayNanos) {
+        this.accountService = accountService;
+        this.transactionRunner = transactionRunner;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxBatchDelayNanos = maxBatchDelayNanos;
+        this.writer = new Thread(this::writeLoop, "transfer-sequencer");
+        this.writer.setDaemon(true);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        running = false;
+        writer.join();
+        PendingTransfer pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException("Transfer sequencer is stopped"));
+        }
+    }
+
+    public void transferMoney(MoneyTransfer transfer) {
+        try {
+            submit(transfer).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> submit(MoneyTransfer transfer) {
+        if (!running) {
+            throw new IllegalStateException("Transfer sequencer is not running");
+        }
+        PendingTransfer pending = new PendingTransfer(transfer);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting a transfer", e);
+        }
+        return pending.result;
+    }
+
+    private void writeLoop() {
+        List<PendingTransfer> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTransfer first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingTransfer next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected failure in transfer sequencer", e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        try {
+            transactionRunner.inTransaction(() -> {
+                for (PendingTransfer pending : batch) {
+                    pending.failure = null;
+                    try {
+                        accountService.transferMoney(pending.transfer);
+                    } catch (InsufficientBalanceForTransferException | InvalidTransferTypeException
+                        | WebApplicationException e) {
+                        pending.failure = e;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            LOGGER.warn("Group commit of {} transfers failed, committing them one by one", batch.size(), e);
+            for (PendingTransfer pending : batch) {
+                // The rolled back group left the generated id behind; persist it afresh.
+                pending.transfer.setId(0);
+                pending.transfer.setDateTime(null);
+                commit(List.of(pending));
+            }
+            return;
+        }
+        for (PendingTransfer pending : batch) {
+            if (pending.failure == null) {
+                pending.result.complete(null);
+            } else {
+                pending.result.completeExceptionally(pending.failure);
+            }
+        }
+    }
+
+    private static class PendingTransfer {
+        private final MoneyTransfer transfer;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private RuntimeException failure;
+
+        private PendingTransfer(MoneyTransfer transfer) {
+            this.transfer = transfer;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+
+import java.util.function.LongPredicate;
+
+final class TransferValidation {
+    private TransferValidation() {
+    }
+
+    static String validate(MoneyTransfer transfer, LongPredicate accountExists) {
+        if (transfer.getTransferType() == null) {
+            return "Invalid transfer type was specified";
+        }
+        if (!accountExists.test(transfer.getAccountId())) {
+            return "No such account: " + transfer.getAccountId();
+        }
+        if (transfer.getTransferType() == TransferType.ACCOUNT_TO_ACCOUNT) {
+            if (transfer.getDestinationAccountId() == null) {
+                return "Destination account is required for " + TransferType.ACCOUNT_TO_ACCOUNT;
+            }
+            if (!accountExists.test(transfer.getDestinationAccountId())) {
+                return "No such account: " + transfer.getDestinationAccountId();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,216 @@
+package com.maxk.sampleproject.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primes a freshly started instance before it takes traffic: opens {@code connections} pooled connections at once,
+ * and {@code readConnections} more on a separate read database, loads the accounts of the latest transfers into the
+ * account cache, and then repeats the read paths of the account service, DAOs and JSON serialisation on them
+ * {@code iterations} times so the JIT compiles them. The reads run in transactions of {@code readTransactionRunner},
+ * as they would in a resource method bound to the read database. With a
+ * {@code writeService}, every tenth iteration also moves money between two synthetic accounts in a transaction that
+ * is rolled back. Runs on a thread of its own and gives up after {@code timeout}; {@link #isDone()} tells the
+ * readiness health check when it is over, successful or not.
+ */
+public class WarmUp implements Managed {
+    static final long RECENT_TRANSFERS = 10_000;
+    static final int WRITE_EVERY = 10;
+    private static final List<AccountField> FIELDS = Arrays.asList(AccountField.ID, AccountField.BALANCE);
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+
+    private final AccountService accountService;
+    private final AccountService writeService;
+    private final AccountDAO accountDAO;
+    private final MoneyTransferDAO transferDAO;
+    private final TransactionRunner transactionRunner;
+    private final TransactionRunner readTransactionRunner;
+    private final ObjectMapper objectMapper;
+    private final int connections;
+    private final int readConnections;
+    private final int accounts;
+    private final int iterations;
+    private final Duration timeout;
+    private volatile boolean done;
+
+    /**
+     * {@code writeService} may be null to keep to reads, e.g. when its writes cannot be rolled back.
+     * {@code readTransactionRunner} is {@code transactionRunner} itself when reads share the primary database,
+     * and {@code readConnections} is then ignored.
+     */
+    public WarmUp(AccountService accountService, AccountService writeService, AccountDAO accountDAO,
+                  MoneyTransferDAO transferDAO, TransactionRunner transactionRunner,
+                  TransactionRunner readTransactionRunner, ObjectMapper objectMapper, int connections,
+                  int readConnections, int accounts, int iterations, Duration timeout) {
+        this.accountService = accountService;
+        this.writeService = writeService;
+        this.accountDAO = accountDAO;
+        this.transferDAO = transferDAO;
+        this.transactionRunner = transactionRunner;
+        this.readTransactionRunner = readTransactionRunner;
+        this.objectMapper = objectMapper;
+        this.connections = connections;
+        this.readConnections = readConnections;
+        this.accounts = accounts;
+        this.iterations = iterations;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void start() {
+        Thread thread = new Thread(this::run, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    void run() {
+        long started = System.nanoTime();
+        long deadline = started + timeout.toNanos();
+        int completed = 0;
+        try {
+            fillConnectionPool(transactionRunner, connections);
+            if (readTransactionRunner != transactionRunner) {
+                fillConnectionPool(readTransactionRunner, readConnections);
+            }
+            List<Long> accountIds = transactionRunner.inTransaction(this::recentAccountIds);
+            for (; completed < iterations && System.nanoTime() - deadline < 0; completed++) {
+                iteration(completed, accountIds);
+            }
+            LOGGER.info("Warmed up with {} iterations over {} accounts in {} ms", completed, accountIds.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            LOGGER.error("Warm-up failed after {} iterations, taking traffic anyway", completed, e);
+        } finally {
+            done = true;
+        }
+    }
+
+    /**
+     * Holds a connection in each of {@code connections} threads until all of them have one, so that the pool opens
+     * that many rather than handing the same one around. Beginning the transaction takes the connection. When one
+     * thread cannot get a connection, the others let theirs go rather than hold them until the timeout.
+     */
+    private void fillConnectionPool(TransactionRunner runner, int connections) {
+        ExecutorService executor = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "warm-up-connections");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CountDownLatch acquired = new CountDownLatch(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                executor.execute(() -> {
+                    try {
+                        runner.inTransaction(() -> {
+                            acquired.countDown();
+                            Uninterruptibles.awaitUninterruptibly(acquired, timeout.toNanos(), TimeUnit.NANOSECONDS);
+                        });
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Warm-up could not hold a connection, releasing the others", e);
+                        while (acquired.getCount() > 0) {
+                            acquired.countDown();
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The accounts of the latest transfers, which are likely to be asked for first, or else the first accounts.
+     */
+    private List<Long> recentAccountIds() {
+        Set<Long> ids = new LinkedHashSet<>();
+        transferDAO.findIdRange().ifPresent(range ->
+            transferDAO.streamByIdRange(Math.max(range[0], range[1] - RECENT_TRANSFERS), range[1] + 1, transfer -> {
+                if (ids.size() < accounts) {
+                    ids.add(transfer.getAccountId());
+                }
+                if (ids.size() < accounts && transfer.getDestinationAccountId() != null) {
+                    ids.add(transfer.getDestinationAccountId());
+                }
+            }));
+        if (ids.isEmpty()) {
+            accountDAO.findPage(0, accounts).forEach(account -> ids.add(account.getId()));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private void iteration(int iteration, List<Long> accountIds) {
+        if (!accountIds.isEmpty()) {
+            long accountId = accountIds.get(iteration % accountIds.size());
+            readTransactionRunner.inTransaction(() -> {
+                accountService.getVersion(accountId);
+                serialise(accountService.getAccount(accountId));
+                serialise(accountService.getTransfers(accountId));
+            });
+        }
+        if (iteration % WRITE_EVERY == 0) {
+            readTransactionRunner.inTransaction(() -> {
+                serialise(accountService.listAccounts(0, accounts));
+                serialise(accountService.listAccounts(0, accounts, FIELDS));
+            });
+            if (writeService != null) {
+                transactionRunner.inRolledBackTransaction(this::syntheticTransfers);
+            }
+        }
+    }
+
+    private void syntheticTransfers() {
+        Account source = writeService.createAccount(new Account("warm-up", "warm-up", 100_00L));
+        Account destination = writeService.createAccount(new Account("warm-up", "warm-up", 0L));
+        writeService.transferMoney(new MoneyTransfer(source.getId(), null, 10_00L, TransferType.DEPOSIT));
+        writeService.transferMoney(new MoneyTransfer(source.getId(), null, 10_00L, TransferType.WITHDRAW));
+        writeService.transferMoney(new MoneyTransfer(source.getId(), destination.getId(), 10_00L,
+            TransferType.ACCOUNT_TO_ACCOUNT));
+        writeService.transferMoneyBatch(List.of(
+            new MoneyTransfer(destination.getId(), source.getId(), 5_00L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(source.getId(), destination.getId(), 5_00L, TransferType.ACCOUNT_TO_ACCOUNT)));
+    }
+
+    private void serialise(Object value) {
+        try {
+            objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
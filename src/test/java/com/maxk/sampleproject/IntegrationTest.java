@@ -33,8 +33,8 @@ public class IntegrationTest {
 
     private static final String TMP_FILE = createTempFile();
     private static final String CONFIG_PATH = ResourceHelpers.resourceFilePath("test-sample.yml");
-    private static final double INITIAL_BALANCE_1 = 1500d, INITIAL_BALANCE_2 = 2000d,
-        DEPOSIT = 1000d, WITHDRAWN = 500d, TRANSFERRED = 2000d;
+    private static final long INITIAL_BALANCE_1 = 1500L, INITIAL_BALANCE_2 = 2000L,
+        DEPOSIT = 1000L, WITHDRAWN = 500L, TRANSFERRED = 2000L;
     private static Account firstAccount, secondAccount;
 
     public static final DropwizardAppExtension<SampleApplicationConfiguration> RULE = new DropwizardAppExtension<>(
@@ -186,7 +186,7 @@ public class IntegrationTest {
     }
 
     private void assertTransfer(MoneyTransfer actualTransfer, long accountId, Long destinationAccountId,
-                                double moneyAmount, TransferType transferType) {
+                                long moneyAmount, TransferType transferType) {
         assertThat(actualTransfer.getId()).isGreaterThan(0);
         assertEquals(actualTransfer.getAccountId(), accountId);
         assertEquals(actualTransfer.getDestinationAccountId(), destinationAccountId);
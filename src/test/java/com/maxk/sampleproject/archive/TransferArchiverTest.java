@@ -0,0 +1,120 @@
+package com.maxk.sampleproject.archive;
+
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TransferArchiverTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 12, 0);
+
+    @TempDir
+    public Path directory;
+
+    private List<MoneyTransfer> table;
+    private MoneyTransferDAO transferDAO;
+    private TransferArchive archive;
+    private TransferArchiver archiver;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        table = new ArrayList<>();
+        transferDAO = mock(MoneyTransferDAO.class);
+        when(transferDAO.findOldestBefore(any())).thenAnswer(invocation -> {
+            LocalDateTime before = invocation.getArgument(0);
+            return table.stream().map(MoneyTransfer::getDateTime).filter(before::isAfter).min(Comparator.naturalOrder());
+        });
+        when(transferDAO.streamBetween(any(), any(), any())).thenAnswer(invocation -> {
+            Consumer<MoneyTransfer> consumer = invocation.getArgument(2);
+            List<MoneyTransfer> rows = between(invocation.getArgument(0), invocation.getArgument(1));
+            rows.forEach(consumer);
+            return (long) rows.size();
+        });
+        when(transferDAO.deleteBetween(any(), any())).thenAnswer(invocation -> {
+            List<MoneyTransfer> rows = between(invocation.getArgument(0), invocation.getArgument(1));
+            table.removeAll(rows);
+            return rows.size();
+        });
+        TransactionRunner transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+
+        archive = new TransferArchive(directory);
+        archive.start();
+        archiver = new TransferArchiver(archive, transferDAO, transactionRunner, Duration.ofDays(30),
+            Duration.ofDays(1), Duration.ofHours(1), Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC),
+            new MetricRegistry());
+    }
+
+    @Test
+    public void testMovesOldTransfersIntoDailySegments() throws Exception {
+        MoneyTransfer old = insert(1, 2L, NOW.minusDays(40));
+        MoneyTransfer older = insert(2, null, NOW.minusDays(45));
+        MoneyTransfer recent = insert(1, null, NOW.minusDays(10));
+
+        assertThat(archiver.archive()).isEqualTo(2);
+
+        assertThat(table).containsExactly(recent);
+        assertThat(archive.getSegmentCount()).isEqualTo(2);
+        assertThat(archive.getArchivedUntil()).isEqualTo(NOW.minusDays(40).toLocalDate().plusDays(1).atStartOfDay());
+        assertThat(archive.find(1, null, archive.getArchivedUntil())).containsExactly(old);
+        assertThat(archive.find(2, null, archive.getArchivedUntil())).containsExactly(older, old);
+
+        TransferArchive reopened = new TransferArchive(directory);
+        reopened.start();
+        assertThat(reopened.find(2, null, reopened.getArchivedUntil())).containsExactly(older, old);
+    }
+
+    @Test
+    public void testLeftoverRowsAreFoldedIntoTheExistingSegment() throws Exception {
+        MoneyTransfer first = insert(1, null, NOW.minusDays(40));
+        archiver.archive();
+        // A row the previous run archived but did not delete, and one it did not see.
+        table.add(first);
+        MoneyTransfer late = insert(1, null, NOW.minusDays(40).plusMinutes(1));
+
+        assertThat(archiver.archive()).isEqualTo(2);
+
+        assertThat(table).isEmpty();
+        assertThat(archive.getSegmentCount()).isEqualTo(1);
+        assertThat(archive.find(1, null, archive.getArchivedUntil())).containsExactly(first, late);
+    }
+
+    private MoneyTransfer insert(long accountId, Long destinationAccountId, LocalDateTime dateTime) {
+        MoneyTransfer transfer = new MoneyTransfer(accountId, destinationAccountId, 100L,
+            destinationAccountId == null ? TransferType.DEPOSIT : TransferType.ACCOUNT_TO_ACCOUNT);
+        transfer.setId(table.size() + 1);
+        transfer.setDateTime(dateTime);
+        table.add(transfer);
+        return transfer;
+    }
+
+    private List<MoneyTransfer> between(LocalDateTime from, LocalDateTime to) {
+        return table.stream()
+            .filter(transfer -> !transfer.getDateTime().isBefore(from) && transfer.getDateTime().isBefore(to))
+            .sorted(TransferSegment.ORDER)
+            .collect(Collectors.toList());
+    }
+}
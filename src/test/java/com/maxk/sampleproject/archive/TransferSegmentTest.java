@@ -0,0 +1,95 @@
+package com.maxk.sampleproject.archive;
+
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TransferSegmentTest {
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final long FROM = TransferSegment.epochSecond(START);
+    private static final long TO = FROM + 86_400;
+
+    @TempDir
+    public Path directory;
+
+    @Test
+    public void testFindsTransfersOfAnAccountAcrossBlocks() throws IOException {
+        List<MoneyTransfer> transfers = new ArrayList<>();
+        for (int i = 0; i < TransferSegment.BLOCK_ROWS * 2 + 10; i++) {
+            long accountId = i % 7 + 1;
+            MoneyTransfer transfer = i % 3 == 0
+                ? new MoneyTransfer(accountId, accountId % 7 + 1, i * 10L, TransferType.ACCOUNT_TO_ACCOUNT)
+                : new MoneyTransfer(accountId, null, i * 10L, TransferType.DEPOSIT);
+            transfer.setId(1_000 + i);
+            transfer.setDateTime(START.plusSeconds(i / 2).plusNanos(i * 1_000L));
+            transfers.add(transfer);
+        }
+
+        TransferSegment segment = write(transfers);
+
+        assertThat(segment.size()).isEqualTo(transfers.size());
+        for (long accountId = 1; accountId <= 7; accountId++) {
+            long id = accountId;
+            List<MoneyTransfer> expected = transfers.stream()
+                .filter(transfer -> transfer.getAccountId() == id
+                    || Long.valueOf(id).equals(transfer.getDestinationAccountId()))
+                .collect(Collectors.toList());
+            assertThat(segment.find(accountId)).as("account %d", accountId).containsExactlyElementsOf(expected);
+        }
+        assertThat(segment.find(8)).isEmpty();
+
+        List<MoneyTransfer> all = new ArrayList<>();
+        segment.forEach(all::add);
+        assertThat(all).containsExactlyElementsOf(transfers);
+    }
+
+    @Test
+    public void testCorruptSegmentIsRefused() throws IOException {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 100L, TransferType.DEPOSIT);
+        transfer.setId(1);
+        transfer.setDateTime(START);
+        Path file = write(List.of(transfer)).file;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 0);
+        }
+
+        assertThatExceptionOfType(IOException.class).isThrownBy(() -> TransferSegment.open(file))
+            .withMessageContaining("Checksum mismatch");
+    }
+
+    @Test
+    public void testUncommittedWriterLeavesNothingBehind() throws IOException {
+        try (TransferSegment.Writer writer = TransferSegment.writer(directory, FROM, TO)) {
+            MoneyTransfer transfer = new MoneyTransfer(1, null, 100L, TransferType.DEPOSIT);
+            transfer.setDateTime(START);
+            writer.append(transfer);
+        }
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private TransferSegment write(List<MoneyTransfer> transfers) throws IOException {
+        try (TransferSegment.Writer writer = TransferSegment.writer(directory, FROM, TO)) {
+            transfers.forEach(writer::append);
+            return writer.commit();
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.maxk.sampleproject.db;
 
 import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
 import io.dropwizard.testing.junit5.DAOTestExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.hibernate.StaleStateException;
 import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,22 +36,73 @@ public class AccountDAOTest {
 
     @Test
     public void testCreateAndFindAccount() {
-        Account johnDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("John", "Doe", 100d)));
-        assertAccount(johnDoe, "John", "Doe", 100d);
+        Account johnDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("John", "Doe", 100L)));
+        assertAccount(johnDoe, "John", "Doe", 100L);
         assertThat(accountDAO.findById(johnDoe.getId())).isEqualTo(Optional.of(johnDoe));
     }
 
     @Test
     public void testUpdateAccount() {
-        Account janeDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("Jane", "Doe", 100d)));
-        assertAccount(janeDoe, "Jane", "Doe", 100d);
-        janeDoe.setBalance(500d);
+        Account janeDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("Jane", "Doe", 100L)));
+        assertAccount(janeDoe, "Jane", "Doe", 100L);
+        janeDoe.setBalance(500L);
         Account updatedAccount = daoTestRule.inTransaction(() -> accountDAO.save(janeDoe));
         assertEquals(janeDoe.getId(), updatedAccount.getId());
-        assertAccount(updatedAccount, "Jane", "Doe", 500d);
+        assertAccount(updatedAccount, "Jane", "Doe", 500L);
     }
 
-    private void assertAccount(Account account, String name, String surname, double balance) {
+    @Test
+    public void testStaleUpdateIsRejected() {
+        Account janeDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("Jane", "Doe", 100L)));
+        assertThat(janeDoe.getVersion()).isZero();
+        daoTestRule.inTransaction(() -> accountDAO.updateBalance(janeDoe.getId(), 200L));
+
+        janeDoe.setBalance(500L);
+        assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> daoTestRule.inTransaction(() -> accountDAO.save(janeDoe)))
+            .satisfies(e -> assertThat(e).hasRootCauseInstanceOf(StaleStateException.class));
+    }
+
+    @Test
+    public void testOpeningBalanceIsRecordedOnCreate() {
+        Account johnDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("John", "Doe", 100L)));
+        johnDoe.setBalance(500L);
+        daoTestRule.inTransaction(() -> accountDAO.save(johnDoe));
+
+        assertThat(johnDoe.getOpeningBalance()).isEqualTo(100L);
+    }
+
+    @Test
+    public void testFindVersionFollowsUpdates() {
+        Account janeDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("Jane", "Doe", 100L)));
+        daoTestRule.inTransaction(() -> accountDAO.updateBalance(janeDoe.getId(), 200L));
+
+        assertThat(accountDAO.findVersion(janeDoe.getId())).contains(1L);
+        assertThat(accountDAO.findVersion(janeDoe.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    public void testForceVersionIncrementBumpsUnchangedAccount() {
+        Account janeDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("Jane", "Doe", 100L)));
+        daoTestRule.inTransaction(() ->
+            accountDAO.forceVersionIncrement(accountDAO.findById(janeDoe.getId()).orElseThrow()));
+
+        assertThat(accountDAO.findVersion(janeDoe.getId())).contains(1L);
+    }
+
+    @Test
+    public void testSaveAllAssignsDistinctIds() {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            accounts.add(new Account("John", "Doe", i));
+        }
+        daoTestRule.inTransaction(() -> accountDAO.saveAll(accounts));
+
+        assertThat(accounts).extracting(Account::getId).doesNotHaveDuplicates().allMatch(id -> id > 0);
+        assertThat(accountDAO.findAll()).hasSize(120);
+    }
+
+    private void assertAccount(Account account, String name, String surname, long balance) {
         assertThat(account.getId()).isGreaterThan(0);
         assertThat(account.getName()).isEqualTo(name);
         assertThat(account.getSurname()).isEqualTo(surname);
@@ -61,24 +117,59 @@ public class AccountDAOTest {
     @Test
     public void testFindAll() {
         daoTestRule.inTransaction(() -> {
-            accountDAO.save(new Account("John", "Doe", 100d));
-            accountDAO.save(new Account("Jane", "Doe", 200d));
-            accountDAO.save(new Account("Bilbo", "Baggins", 300d));
+            accountDAO.save(new Account("John", "Doe", 100L));
+            accountDAO.save(new Account("Jane", "Doe", 200L));
+            accountDAO.save(new Account("Bilbo", "Baggins", 300L));
         });
 
         List<Account> accounts = accountDAO.findAll();
         assertThat(accounts).extracting("name").containsOnly("John", "Jane", "Bilbo");
         assertThat(accounts).extracting("surname").containsOnly("Doe", "Doe", "Baggins");
-        assertThat(accounts).extracting("balance").containsOnly(100d, 200d, 300d);
+        assertThat(accounts).extracting("balance").containsOnly(100L, 200L, 300L);
+    }
+
+    @Test
+    public void testFindPage() {
+        List<Account> saved = daoTestRule.inTransaction(() -> List.of(
+            accountDAO.save(new Account("John", "Doe", 100L)),
+            accountDAO.save(new Account("Jane", "Doe", 200L)),
+            accountDAO.save(new Account("Bilbo", "Baggins", 300L))));
+
+        List<Account> firstPage = accountDAO.findPage(0, 2);
+        assertThat(firstPage).extracting("name").containsExactly("John", "Jane");
+        List<Account> secondPage = accountDAO.findPage(firstPage.get(1).getId(), 2);
+        assertThat(secondPage).extracting("name").containsExactly("Bilbo");
+        assertThat(accountDAO.findPage(saved.get(2).getId(), 2)).isEmpty();
+    }
+
+    @Test
+    public void testFindPageProjection() {
+        Account johnDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("John", "Doe", 100L)));
+
+        List<Map<String, Object>> page = accountDAO.findPage(0, 10, List.of(AccountField.ID, AccountField.BALANCE));
+
+        assertThat(page).hasSize(1);
+        assertThat(page.get(0)).containsOnlyKeys("id", "balance");
+        assertThat(page.get(0)).containsEntry("id", johnDoe.getId()).containsEntry("balance", new BigDecimal("1.00"));
+    }
+
+    @Test
+    public void testFindAllForUpdate() {
+        Account johnDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("John", "Doe", 100L)));
+        Account janeDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("Jane", "Doe", 200L)));
+
+        Map<Long, Account> accounts = daoTestRule.inTransaction(() ->
+            accountDAO.findAllForUpdate(List.of(janeDoe.getId(), johnDoe.getId(), Long.MAX_VALUE)));
+
+        assertThat(accounts.keySet()).containsExactly(johnDoe.getId(), janeDoe.getId());
+        assertThat(accounts).containsValues(johnDoe, janeDoe);
     }
 
     @Test
     public void testHandlesNullValues() {
         assertThatExceptionOfType(ConstraintViolationException.class).isThrownBy(()->
-            daoTestRule.inTransaction(() -> accountDAO.save(new Account(null, "NotNull", 0d))));
-        assertThatExceptionOfType(ConstraintViolationException.class).isThrownBy(()->
-            daoTestRule.inTransaction(() -> accountDAO.save(new Account("NotNull", null, 0d))));
+            daoTestRule.inTransaction(() -> accountDAO.save(new Account(null, "NotNull", 0L))));
         assertThatExceptionOfType(ConstraintViolationException.class).isThrownBy(()->
-            daoTestRule.inTransaction(() -> accountDAO.save(new Account("NotNull", "NotNull", null))));
+            daoTestRule.inTransaction(() -> accountDAO.save(new Account("NotNull", null, 0L))));
     }
 }
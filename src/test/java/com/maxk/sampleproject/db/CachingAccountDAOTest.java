@@ -0,0 +1,91 @@
+package com.maxk.sampleproject.db;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.maxk.sampleproject.model.Account;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class CachingAccountDAOTest {
+
+    public DAOTestExtension daoTestRule = DAOTestExtension.newBuilder()
+        .addEntityClass(Account.class)
+        .build();
+
+    private Cache<Long, Account> cache;
+    private CachingAccountDAO accountDAO;
+    private Account johnDoe;
+
+    @BeforeEach
+    public void setUp() {
+        cache = Caffeine.newBuilder().maximumSize(100).recordStats().build();
+        accountDAO = new CachingAccountDAO(daoTestRule.getSessionFactory(), cache);
+        johnDoe = daoTestRule.inTransaction(() -> accountDAO.save(new Account("John", "Doe", 100L)));
+    }
+
+    @Test
+    public void testFindByIdIsServedFromCache() {
+        daoTestRule.inTransaction(() -> accountDAO.findById(johnDoe.getId()));
+        Account found = daoTestRule.inTransaction(() -> accountDAO.findById(johnDoe.getId()).orElseThrow());
+
+        assertThat(found).isEqualTo(johnDoe).isNotSameAs(cache.asMap().get(johnDoe.getId()));
+        assertThat(cache.stats().hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSaveRefreshesCacheOnCommit() {
+        Account found = daoTestRule.inTransaction(() -> accountDAO.findById(johnDoe.getId()).orElseThrow());
+        found.setBalance(500L);
+        daoTestRule.inTransaction(() -> accountDAO.save(found));
+
+        assertThat(cache.getIfPresent(johnDoe.getId())).extracting(Account::getBalance).isEqualTo(500L);
+        daoTestRule.getSessionFactory().getCurrentSession().clear();
+        assertThat(accountDAO.findById(johnDoe.getId())).hasValueSatisfying(
+            account -> assertThat(account.getBalance()).isEqualTo(500L));
+    }
+
+    @Test
+    public void testFindVersionFollowsWrites() {
+        Account found = daoTestRule.inTransaction(() -> accountDAO.findById(johnDoe.getId()).orElseThrow());
+        found.setBalance(500L);
+        daoTestRule.inTransaction(() -> accountDAO.save(found));
+        assertThat(daoTestRule.inTransaction(() -> accountDAO.findVersion(johnDoe.getId()))).contains(1L);
+
+        daoTestRule.inTransaction(() -> accountDAO.updateBalance(johnDoe.getId(), 300L));
+        assertThat(daoTestRule.inTransaction(() -> accountDAO.findVersion(johnDoe.getId()))).contains(2L);
+    }
+
+    @Test
+    public void testRowLoadedDuringWriteIsNotCached() {
+        CachingAccountDAO racingDAO = new CachingAccountDAO(daoTestRule.getSessionFactory(), cache) {
+            @Override
+            protected Account get(Object id) {
+                Account loaded = super.get(id);
+                // Another transaction commits a new balance after the row was read but before it is cached.
+                daoTestRule.inTransaction(() -> updateBalance((Long) id, 300L));
+                return loaded;
+            }
+        };
+        cache.invalidateAll();
+
+        assertThat(racingDAO.findById(johnDoe.getId())).hasValueSatisfying(
+            account -> assertThat(account.getBalance()).isEqualTo(100L));
+        assertThat(cache.getIfPresent(johnDoe.getId())).isNull();
+    }
+
+    @Test
+    public void testUpdateBalanceInvalidatesCache() {
+        daoTestRule.inTransaction(() -> accountDAO.updateBalance(johnDoe.getId(), 300L));
+
+        assertThat(cache.getIfPresent(johnDoe.getId())).isNull();
+        daoTestRule.getSessionFactory().getCurrentSession().clear();
+        assertThat(accountDAO.findById(johnDoe.getId())).hasValueSatisfying(
+            account -> assertThat(account.getBalance()).isEqualTo(300L));
+    }
+}
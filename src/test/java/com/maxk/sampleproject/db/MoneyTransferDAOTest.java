@@ -1,5 +1,8 @@
 package com.maxk.sampleproject.db;
 
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.archive.TransferArchiver;
 import com.maxk.sampleproject.model.MoneyTransfer;
 import com.maxk.sampleproject.model.TransferType;
 import io.dropwizard.testing.junit5.DAOTestExtension;
@@ -8,7 +11,12 @@ import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,12 +40,12 @@ public class MoneyTransferDAOTest {
     @Test
     public void testCreateMoneyTransfer() {
         MoneyTransfer transferToCreate = new MoneyTransfer(1, 2L,
-            100d, TransferType.ACCOUNT_TO_ACCOUNT);
+            100L, TransferType.ACCOUNT_TO_ACCOUNT);
         MoneyTransfer transfer = daoTestRule.inTransaction(() -> moneyTransferDAO.create(transferToCreate));
         assertThat(transfer.getId()).isGreaterThan(0);
         assertThat(transfer.getAccountId()).isEqualTo(1);
         assertThat(transfer.getDestinationAccountId()).isEqualTo(2);
-        assertThat(transfer.getMoneyAmount()).isEqualTo(100d);
+        assertThat(transfer.getMoneyAmount()).isEqualTo(100L);
         assertThat(transfer.getTransferType()).isEqualTo(TransferType.ACCOUNT_TO_ACCOUNT);
         assertThat(transfer.getDateTime()).isEqualTo(transferToCreate.getDateTime());
     }
@@ -48,11 +56,11 @@ public class MoneyTransferDAOTest {
         List<MoneyTransfer> expectedSecondAccountTransfers = new ArrayList<>();
         daoTestRule.inTransaction(() -> {
             MoneyTransfer transfer1 = moneyTransferDAO.create(new MoneyTransfer(1, null,
-                100d, TransferType.DEPOSIT));
+                100L, TransferType.DEPOSIT));
             MoneyTransfer transfer2 = moneyTransferDAO.create(new MoneyTransfer(2, null,
-                200d, TransferType.WITHDRAW));
+                200L, TransferType.WITHDRAW));
             MoneyTransfer transfer3 = moneyTransferDAO.create(new MoneyTransfer(1, 2L,
-                300d, TransferType.ACCOUNT_TO_ACCOUNT));
+                300L, TransferType.ACCOUNT_TO_ACCOUNT));
             expectedFirstAccountTransfers.add(transfer1);
             expectedFirstAccountTransfers.add(transfer3);
             expectedSecondAccountTransfers.add(transfer2);
@@ -67,16 +75,57 @@ public class MoneyTransferDAOTest {
             expectedSecondAccountTransfers.toArray(new MoneyTransfer[2]));
     }
 
+    @Test
+    public void testStreamByAccountId() {
+        daoTestRule.inTransaction(() -> {
+            moneyTransferDAO.create(new MoneyTransfer(1, null, 100L, TransferType.DEPOSIT));
+            moneyTransferDAO.create(new MoneyTransfer(2, null, 200L, TransferType.WITHDRAW));
+            moneyTransferDAO.create(new MoneyTransfer(2, 1L, 300L, TransferType.ACCOUNT_TO_ACCOUNT));
+        });
+
+        List<MoneyTransfer> streamed = new ArrayList<>();
+        long count = moneyTransferDAO.streamByAccountId(1, streamed::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(streamed).extracting("moneyAmount").containsExactlyInAnyOrder(100L, 300L);
+    }
+
+    @Test
+    public void testHistoryReadsArchivedTransfersBeforeRecentOnes(@TempDir Path directory) throws Exception {
+        TransferArchive archive = new TransferArchive(directory);
+        archive.start();
+        MoneyTransferDAO archivingDAO = new MoneyTransferDAO(daoTestRule.getSessionFactory(), new MetricRegistry(),
+            archive);
+        MoneyTransfer old = new MoneyTransfer(1, null, 100L, TransferType.DEPOSIT);
+        old.setDateTime(LocalDateTime.now().minusDays(40).withNano(0));
+        MoneyTransfer recent = new MoneyTransfer(2, 1L, 200L, TransferType.ACCOUNT_TO_ACCOUNT);
+        recent.setDateTime(LocalDateTime.now().withNano(0));
+        daoTestRule.inTransaction(() -> {
+            archivingDAO.create(old);
+            archivingDAO.create(recent);
+        });
+        TransferArchiver archiver = new TransferArchiver(archive, archivingDAO,
+            new TransactionRunner(daoTestRule.getSessionFactory()), Duration.ofDays(30), Duration.ofDays(1),
+            Duration.ofHours(1), Clock.systemDefaultZone(), new MetricRegistry());
+
+        assertThat(archiver.archive()).isEqualTo(1);
+
+        assertThat(archivingDAO.getByAccountId(1)).containsExactly(old, recent);
+        List<MoneyTransfer> streamed = new ArrayList<>();
+        assertThat(archivingDAO.streamByAccountId(1, streamed::add)).isEqualTo(2);
+        assertThat(streamed).containsExactly(old, recent);
+    }
+
     @Test
     public void testHandlesNullValues() {
         assertThatExceptionOfType(ConstraintViolationException.class).isThrownBy(()->
             daoTestRule.inTransaction(() -> moneyTransferDAO.create(
                 new MoneyTransfer(1, 2L,
-                    100d, null))));
+                    100L, null))));
         assertThatExceptionOfType(ConstraintViolationException.class).isThrownBy(()->
             daoTestRule.inTransaction(() -> {
                 MoneyTransfer transfer = new MoneyTransfer(1, 2L,
-                    100d, null);
+                    100L, null);
                 transfer.setDateTime(null);
                 moneyTransferDAO.create(transfer);
             }));
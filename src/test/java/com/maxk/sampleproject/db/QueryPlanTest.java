@@ -0,0 +1,154 @@
+package com.maxk.sampleproject.db;
+
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.ReplicationHeartbeat;
+import com.maxk.sampleproject.model.TransferReservation;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.hibernate.Session;
+import org.hibernate.annotations.NamedNativeQueries;
+import org.hibernate.annotations.NamedNativeQuery;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN for every named query of the mapped entities against H2 and fails when one reads a whole table or
+ * index, unless it is known to. The schema is built by migrations.xml, as {@code db migrate} builds it, so the plans
+ * see the indexes the application gets.
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class QueryPlanTest {
+    private static final Set<String> SCANS = Set.of(
+        // Lists every account by design.
+        "com.maxk.sampleproject.model.Account.findAll",
+        // Only run by shard recovery over a table that holds transfers in flight.
+        "com.maxk.sampleproject.model.TransferReservation.findByStateBefore");
+    // An index named without a condition, e.g. "/* PUBLIC.TRANSFERS.tableScan */", unless H2 answers MIN/MAX from
+    // the ends of the index ("/* direct lookup */").
+    private static final Pattern SCAN = Pattern.compile("/\\* [\\w.]+ \\*/(?!\\s*/\\* direct lookup \\*/)");
+
+    public DAOTestExtension daoTestRule = DAOTestExtension.newBuilder()
+        .addEntityClass(Account.class)
+        .addEntityClass(MoneyTransfer.class)
+        .addEntityClass(TransferReservation.class)
+        .addEntityClass(ReplicationHeartbeat.class)
+        .setHbm2DdlAuto("none")
+        .build();
+
+    @BeforeEach
+    public void migrate() {
+        daoTestRule.getSessionFactory().getCurrentSession().doWork(connection -> {
+            try {
+                new Liquibase("migrations.xml", new ClassLoaderResourceAccessor(), new JdbcConnection(connection))
+                    .update(new Contexts());
+            } catch (LiquibaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testNamedQueriesDoNotScan() {
+        List<String> names = namedQueries();
+        assertThat(names).containsAll(SCANS);
+        for (String name : names) {
+            boolean scans = SCAN.matcher(explain(name)).find();
+            assertThat(scans).as(name).isEqualTo(SCANS.contains(name));
+        }
+    }
+
+    @Test
+    public void testTransfersByAccountIdUsesBothIndexes() {
+        String plan = explain("com.maxk.sampleproject.model.MoneyTransfer.getByAccountId");
+
+        assertThat(plan).containsIgnoringCase("idx_transfers_account_datetime");
+        assertThat(plan).containsIgnoringCase("idx_transfers_destination_datetime");
+    }
+
+    private List<String> namedQueries() {
+        List<String> names = new ArrayList<>();
+        for (EntityType<?> entity : daoTestRule.getSessionFactory().getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            List<NamedQuery> queries = new ArrayList<>();
+            List<NamedNativeQuery> nativeQueries = new ArrayList<>();
+            if (type.isAnnotationPresent(NamedQueries.class)) {
+                queries.addAll(List.of(type.getAnnotation(NamedQueries.class).value()));
+            }
+            if (type.isAnnotationPresent(NamedQuery.class)) {
+                queries.add(type.getAnnotation(NamedQuery.class));
+            }
+            if (type.isAnnotationPresent(NamedNativeQueries.class)) {
+                nativeQueries.addAll(List.of(type.getAnnotation(NamedNativeQueries.class).value()));
+            }
+            if (type.isAnnotationPresent(NamedNativeQuery.class)) {
+                nativeQueries.add(type.getAnnotation(NamedNativeQuery.class));
+            }
+            queries.forEach(query -> names.add(query.name()));
+            nativeQueries.forEach(query -> names.add(query.name()));
+        }
+        return names;
+    }
+
+    private String explain(String namedQuery) {
+        Session session = daoTestRule.getSessionFactory().getCurrentSession();
+        Query<?> query = session.getNamedQuery(namedQuery);
+        String sql;
+        if (query instanceof NativeQuery) {
+            sql = query.getQueryString().replaceAll(":\\w+", "?");
+        } else {
+            sql = ((SessionFactoryImplementor) daoTestRule.getSessionFactory()).getQueryPlanCache()
+                .getHQLQueryPlan(query.getQueryString(), false, Collections.emptyMap())
+                .getSqlStrings()[0];
+        }
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                ParameterMetaData parameters = statement.getParameterMetaData();
+                for (int i = 1; i <= parameters.getParameterCount(); i++) {
+                    switch (parameters.getParameterType(i)) {
+                        case Types.TIMESTAMP:
+                            statement.setTimestamp(i, new Timestamp(0));
+                            break;
+                        case Types.VARCHAR:
+                            statement.setString(i, "x");
+                            break;
+                        default:
+                            statement.setLong(i, 1L);
+                    }
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package com.maxk.sampleproject.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplicationLagMonitorTest {
+    private ReplicationHeartbeatDAO primaryDAO;
+    private ReplicationHeartbeatDAO replicaDAO;
+    private Clock clock;
+    private ReplicationLagMonitor lagMonitor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        primaryDAO = mock(ReplicationHeartbeatDAO.class);
+        replicaDAO = mock(ReplicationHeartbeatDAO.class);
+        TransactionRunner transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+        clock = mock(Clock.class);
+        lagMonitor = new ReplicationLagMonitor(primaryDAO, transactionRunner, replicaDAO, transactionRunner,
+            Duration.ofSeconds(5), Duration.ofSeconds(1), clock);
+    }
+
+    private void check(long millis, long primaryBeat, long replicaBeat) {
+        when(clock.millis()).thenReturn(millis);
+        when(primaryDAO.beat()).thenReturn(primaryBeat);
+        when(replicaDAO.findBeat()).thenReturn(replicaBeat);
+        lagMonitor.check();
+    }
+
+    @Test
+    public void testLagIsTheAgeOfTheOldestReadingTheReplicaMisses() {
+        assertThat(lagMonitor.isFresh()).isFalse();
+
+        check(1_000, 10, 10);
+        assertThat(lagMonitor.getLagMillis()).isZero();
+
+        check(2_000, 20, 10);
+        check(3_000, 30, 10);
+        check(4_000, 40, 25);
+        assertThat(lagMonitor.getLagMillis()).isEqualTo(1_000);
+        assertThat(lagMonitor.isFresh()).isTrue();
+
+        check(10_000, 40, 25);
+        assertThat(lagMonitor.getLagMillis()).isEqualTo(7_000);
+        assertThat(lagMonitor.isFresh()).isFalse();
+
+        check(11_000, 40, 40);
+        assertThat(lagMonitor.getLagMillis()).isZero();
+        assertThat(lagMonitor.isFresh()).isTrue();
+    }
+
+    @Test
+    public void testEveryCheckBeats() {
+        check(1_000, 1, 1);
+        check(2_000, 2, 1);
+        check(3_000, 3, 1);
+        assertThat(lagMonitor.getLagMillis()).isEqualTo(1_000);
+
+        check(4_000, 4, 3);
+        assertThat(lagMonitor.getLagMillis()).isZero();
+        verify(primaryDAO, times(4)).beat();
+    }
+
+    @Test
+    public void testLagGrowsBetweenChecks() {
+        check(1_000, 10, 10);
+        when(clock.millis()).thenReturn(7_000L);
+        assertThat(lagMonitor.getLagMillis()).isEqualTo(6_000);
+        assertThat(lagMonitor.isFresh()).isFalse();
+    }
+
+    @Test
+    public void testUnreadableReplicaIsStale() {
+        check(1_000, 10, 10);
+        when(replicaDAO.findBeat()).thenThrow(new IllegalStateException("Connection refused"));
+        lagMonitor.check();
+        assertThat(lagMonitor.getLagMillis()).isEqualTo(-1);
+        assertThat(lagMonitor.isFresh()).isFalse();
+    }
+}
@@ -0,0 +1,117 @@
+package com.maxk.sampleproject.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalanceJournalTest {
+    private static final long SEGMENT_SIZE = BalanceJournal.RECORD_SIZE * 4;
+
+    @TempDir
+    public Path directory;
+
+    private final List<BalanceJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (BalanceJournal journal : journals) {
+            journal.stop();
+        }
+    }
+
+    private BalanceJournal start() throws IOException {
+        BalanceJournal journal = new BalanceJournal(directory, SEGMENT_SIZE,
+            TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1));
+        journal.start();
+        journals.add(journal);
+        return journal;
+    }
+
+    @Test
+    public void testRecoversByReplayingJournal() throws IOException {
+        BalanceJournal journal = start();
+        journal.append(BalanceJournal.NO_ACCOUNT, 1, 100, 0, 0);
+        journal.append(1, 2, 30, 0, 0);
+        journal.append(2, BalanceJournal.NO_ACCOUNT, 10, 0, 0);
+
+        BalanceJournal recovered = start();
+
+        assertThat(recovered.delta(1)).isEqualTo(70);
+        assertThat(recovered.delta(2)).isEqualTo(20);
+        assertThat(recovered.append(1, 2, 5, 0, 0)).isEqualTo(4);
+    }
+
+    @Test
+    public void testSnapshotDropsCoveredSegments() throws IOException {
+        BalanceJournal journal = start();
+        for (int i = 0; i < 10; i++) {
+            journal.append(BalanceJournal.NO_ACCOUNT, 1, 1, 0, 0);
+        }
+        assertThat(files("journal-")).hasSize(3);
+
+        journal.snapshot();
+        journal.append(1, 2, 4, 0, 0);
+
+        assertThat(files("journal-")).hasSize(1);
+        assertThat(files("snapshot-")).hasSize(1);
+        BalanceJournal recovered = start();
+        assertThat(recovered.delta(1)).isEqualTo(6);
+        assertThat(recovered.delta(2)).isEqualTo(4);
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws IOException {
+        BalanceJournal journal = start();
+        journal.append(BalanceJournal.NO_ACCOUNT, 1, 100, 0, 0);
+        journal.append(BalanceJournal.NO_ACCOUNT, 1, 50, 0, 0);
+        try (FileChannel channel = FileChannel.open(files("journal-").get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1}), BalanceJournal.RECORD_SIZE + 24);
+        }
+
+        BalanceJournal recovered = start();
+
+        assertThat(recovered.delta(1)).isEqualTo(100);
+        assertThat(recovered.append(BalanceJournal.NO_ACCOUNT, 1, 7, 0, 0)).isEqualTo(2);
+        assertThat(start().delta(1)).isEqualTo(107);
+    }
+
+    @Test
+    public void testLowWaterMarkSurvivesSnapshot() throws IOException {
+        BalanceJournal journal = start();
+        journal.append(BalanceJournal.NO_ACCOUNT, 1, 10, 5, 5);
+        journal.append(BalanceJournal.NO_ACCOUNT, 1, 10, 7, 5);
+        journal.snapshot();
+        journal.append(BalanceJournal.NO_ACCOUNT, 1, 10, 9, 7);
+        journal.append(BalanceJournal.NO_ACCOUNT, 1, 10, 8, 6);
+
+        BalanceJournal recovered = start();
+
+        assertThat(recovered.getLowWaterMark()).isEqualTo(7);
+        assertThat(recovered.isJournaled(7)).isTrue();
+        assertThat(recovered.isJournaled(8)).isTrue();
+        assertThat(recovered.isJournaled(9)).isTrue();
+        assertThat(recovered.isJournaled(10)).isFalse();
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
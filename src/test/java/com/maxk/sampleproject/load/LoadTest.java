@@ -0,0 +1,204 @@
+package com.maxk.sampleproject.load;
+
+import com.maxk.sampleproject.SampleApplication;
+import com.maxk.sampleproject.SampleApplicationConfiguration;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Open-loop load test: requests are issued on a fixed schedule whether or not earlier ones have completed,
+ * and latency is measured from the scheduled send time, so queueing in the server shows up in the percentiles
+ * instead of silently lowering the request rate.
+ *
+ * <p>Excluded from the default build; run it with
+ * {@code mvn test -Dtest=LoadTest -Dsurefire.excludedGroups= -Dload.rate=500 -Dload.duration=60}.
+ * {@code load.mix} weighs the endpoints, e.g. {@code get=60,list=10,transfer=25,history=5}.
+ */
+@Tag("load")
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class LoadTest {
+    private static final String TMP_FILE = createTempFile();
+    private static final String CONFIG_PATH = ResourceHelpers.resourceFilePath("test-sample.yml");
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup", 5);
+    private static final int ACCOUNTS = Integer.getInteger("load.accounts", 100);
+    private static final String MIX = System.getProperty("load.mix", "get=60,list=10,transfer=25,history=5");
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    public static final DropwizardAppExtension<SampleApplicationConfiguration> RULE = new DropwizardAppExtension<>(
+            SampleApplication.class, CONFIG_PATH,
+            ConfigOverride.config("database.url", "jdbc:h2:" + TMP_FILE));
+
+    private static HttpClient client;
+    private static String baseUrl;
+
+    @BeforeAll
+    public static void initialize() throws Exception {
+        RULE.getApplication().run("db", "migrate", CONFIG_PATH);
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        baseUrl = "http://localhost:" + RULE.getLocalPort() + "/accounts";
+        for (int i = 0; i < ACCOUNTS; i++) {
+            HttpResponse<Void> response = client.send(
+                post("", "{\"name\": \"Load\", \"surname\": \"Test\", \"balance\": 1000000000.00}"),
+                HttpResponse.BodyHandlers.discarding());
+            assertThat(response.statusCode()).isEqualTo(200);
+        }
+    }
+
+    private static String createTempFile() {
+        try {
+            return File.createTempFile("load-sample", null).getAbsolutePath();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void testOpenLoop() {
+        List<Endpoint> endpoints = endpoints();
+        int totalWeight = endpoints.stream().mapToInt(endpoint -> endpoint.weight).sum();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled >= end) {
+                break;
+            }
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Endpoint endpoint = pick(endpoints, ThreadLocalRandom.current().nextInt(totalWeight));
+            long accountId = ThreadLocalRandom.current().nextLong(ACCOUNTS) + 1;
+            boolean measured = scheduled >= measureFrom;
+            inFlight.add(client.sendAsync(endpoint.request.apply(accountId), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    if (!measured) {
+                        return;
+                    }
+                    endpoint.latencyMicros.recordValue(Math.min(HIGHEST_LATENCY_MICROS,
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled)));
+                    if (failure != null || response.statusCode() >= 500) {
+                        endpoint.failures.incrementAndGet();
+                    }
+                }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).exceptionally(failure -> null).join();
+
+        report(endpoints);
+        for (Endpoint endpoint : endpoints) {
+            assertThat(endpoint.failures.get()).as(endpoint.name + " failures").isZero();
+        }
+    }
+
+    private List<Endpoint> endpoints() {
+        Map<String, LongFunction<HttpRequest>> requests = new LinkedHashMap<>();
+        requests.put("get", accountId -> get("/" + accountId));
+        requests.put("list", accountId -> get("?after=" + accountId + "&limit=100"));
+        requests.put("transfer", accountId -> post("/transfer", "{\"accountId\": " + accountId
+            + ", \"destinationAccountId\": " + (accountId % ACCOUNTS + 1)
+            + ", \"moneyAmount\": 0.01, \"transferType\": \"ACCOUNT_TO_ACCOUNT\"}"));
+        requests.put("history", accountId -> get("/" + accountId + "/transfers"));
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (String entry : MIX.split(",")) {
+            String[] nameAndWeight = entry.trim().split("=");
+            LongFunction<HttpRequest> request = requests.get(nameAndWeight[0]);
+            if (request == null) {
+                throw new IllegalArgumentException("Unknown endpoint in load.mix: " + nameAndWeight[0]
+                    + ", expected one of " + requests.keySet());
+            }
+            endpoints.add(new Endpoint(nameAndWeight[0], Integer.parseInt(nameAndWeight[1]), request));
+        }
+        return endpoints;
+    }
+
+    private static Endpoint pick(List<Endpoint> endpoints, int ticket) {
+        for (Endpoint endpoint : endpoints) {
+            ticket -= endpoint.weight;
+            if (ticket < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Endpoint weights must be positive");
+    }
+
+    private static void report(List<Endpoint> endpoints) {
+        System.out.printf("%nOpen-loop load test: %d req/s offered for %ds after %ds warm-up%n",
+            RATE, DURATION_SECONDS, WARMUP_SECONDS);
+        System.out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+            "endpoint", "requests", "failed", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Endpoint endpoint : endpoints) {
+            ConcurrentHistogram latency = endpoint.latencyMicros;
+            System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                endpoint.name, latency.getTotalCount(), endpoint.failures.get(),
+                latency.getTotalCount() / (double) DURATION_SECONDS,
+                latency.getValueAtPercentile(50) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0,
+                latency.getValueAtPercentile(99.9) / 1000.0,
+                latency.getMaxValue() / 1000.0);
+        }
+    }
+
+    private static HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofMinutes(1))
+            .header("Accept", "application/json")
+            .GET()
+            .build();
+    }
+
+    private static HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofMinutes(1))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+
+    private static class Endpoint {
+        private final String name;
+        private final int weight;
+        private final LongFunction<HttpRequest> request;
+        private final ConcurrentHistogram latencyMicros = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        private final AtomicLong failures = new AtomicLong();
+
+        private Endpoint(String name, int weight, LongFunction<HttpRequest> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.maxk.sampleproject.resources;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.BulkImportResult;
+import com.maxk.sampleproject.service.AccountImporter;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.BadRequestException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class AccountImportResourceTest {
+    private static final int CHUNK_SIZE = 2;
+
+    private List<List<Account>> chunks;
+    private AccountImportResource resource;
+
+    @BeforeEach
+    public void setup() {
+        chunks = new ArrayList<>();
+        AccountDAO accountDAO = mock(AccountDAO.class);
+        doAnswer(invocation -> chunks.add(new ArrayList<>(invocation.getArgument(0))))
+            .when(accountDAO).saveAll(anyList());
+        TransactionRunner transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(transactionRunner).inTransaction(any(Runnable.class));
+        AccountImporter importer =
+            new AccountImporter(accountDAO, transactionRunner, Validators.newValidator(), CHUNK_SIZE);
+        resource = new AccountImportResource(importer, Jackson.newObjectMapper());
+    }
+
+    @Test
+    public void testJsonIsSavedInChunks() throws Exception {
+        BulkImportResult result = resource.importJson(body("["
+            + "{\"name\":\"John\",\"surname\":\"Doe\",\"balance\":1.50},"
+            + "{\"name\":\"Jane\",\"surname\":\"Doe\",\"balance\":2},"
+            + "{\"name\":\"Max\",\"surname\":\"Smith\",\"balance\":0}]"));
+
+        assertThat(result.getCreated()).isEqualTo(3);
+        assertThat(result.getRejected()).isZero();
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0)).extracting(Account::getBalance).containsExactly(150L, 200L);
+        assertThat(chunks.get(1)).extracting(Account::getName).containsExactly("Max");
+    }
+
+    @Test
+    public void testInvalidJsonRowsAreSkipped() throws Exception {
+        BulkImportResult result = resource.importJson(body("["
+            + "{\"name\":\"John\",\"surname\":\"Doe\",\"balance\":1.505},"
+            + "{\"name\":\"Jane\",\"balance\":2},"
+            + "{\"name\":\"Max\",\"surname\":\"Smith\",\"balance\":3}]"));
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(result.getErrors()).hasSize(2);
+        assertThat(result.getErrors().get(0)).startsWith("Row 1: ");
+        assertThat(result.getErrors().get(1)).isEqualTo("Row 2: surname must not be null");
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.get(0)).extracting(Account::getName).containsExactly("Max");
+    }
+
+    @Test
+    public void testMalformedJsonKeepsTheRowsBeforeIt() {
+        assertThatExceptionOfType(BadRequestException.class).isThrownBy(() -> resource.importJson(body("["
+            + "{\"name\":\"John\",\"surname\":\"Doe\",\"balance\":1},"
+            + "{\"name\":\"Jane\",\"surname\"")))
+            .withMessageContaining("1 accounts were created");
+        assertThat(chunks).hasSize(1);
+    }
+
+    @Test
+    public void testCsvWithHeader() throws Exception {
+        BulkImportResult result = resource.importCsv(body("name,surname,balance\n"
+            + "John,Doe,10.25\n"
+            + "\n"
+            + "Jane,Doe,-1\n"
+            + "Max,Smith\n"
+            + "Anna,Smith,abc\n"
+            + "Lee,Park,0\n"));
+
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getErrors()).containsExactly(
+            "Row 2: balance must be greater than or equal to 0",
+            "Row 3: Expected name,surname,balance but got 2 columns",
+            "Row 4: Invalid balance 'abc'");
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.get(0)).extracting(Account::getBalance).containsExactly(1025L, 0L);
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,7 +1,15 @@
 package com.maxk.sampleproject.resources;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.cbor.JacksonCBORProvider;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
 import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.AccountField;
+import com.maxk.sampleproject.model.InvalidTransferTypeException;
 import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
 import com.maxk.sampleproject.service.AccountService;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import io.dropwizard.testing.junit5.ResourceExtension;
@@ -14,15 +22,25 @@ import org.mockito.ArgumentCaptor;
 
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,6 +50,9 @@ public class AccountResourceTest {
     private static final AccountService ACCOUNT_SERVICE = mock(AccountService.class);
     private static final ResourceExtension RULE = ResourceExtension.builder()
             .addResource(new AccountResource(ACCOUNT_SERVICE))
+            .addProvider(new JacksonSmileProvider(BinaryFormats.newSmileMapper()))
+            .addProvider(new JacksonCBORProvider(BinaryFormats.newCborMapper()))
+            .addProvider(new InvalidTransferTypeExceptionMapper())
             .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
             .build();
     private ArgumentCaptor<Account> accountCaptor = ArgumentCaptor.forClass(Account.class);
@@ -71,6 +92,32 @@ public class AccountResourceTest {
         verify(ACCOUNT_SERVICE).getAccount(2L);
     }
 
+    @Test
+    public void testGetAccountNotModified() {
+        when(ACCOUNT_SERVICE.getVersion(1L)).thenReturn(3L);
+        when(ACCOUNT_SERVICE.getAccount(1L)).thenReturn(account);
+
+        Response first = RULE.target("/accounts/1").request().get();
+        EntityTag tag = first.getEntityTag();
+        Response second = RULE.target("/accounts/1").request().header(HttpHeaders.IF_NONE_MATCH, tag).get();
+
+        assertThat(first.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        assertThat(tag.isWeak()).isFalse();
+        assertThat(second.getStatus()).isEqualTo(Response.Status.NOT_MODIFIED.getStatusCode());
+        assertThat(second.getEntityTag()).isEqualTo(tag);
+        verify(ACCOUNT_SERVICE).getAccount(1L);
+    }
+
+    @Test
+    public void testGetAccountNotFoundSkipsLoading() {
+        when(ACCOUNT_SERVICE.getVersion(2L)).thenThrow(new NotFoundException());
+
+        Response response = RULE.target("/accounts/2").request().get();
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.NOT_FOUND.getStatusCode());
+        verify(ACCOUNT_SERVICE, never()).getAccount(2L);
+    }
+
     @Test
     public void testCreateAccount() {
         when(ACCOUNT_SERVICE.createAccount(any(Account.class))).thenReturn(account);
@@ -85,7 +132,7 @@ public class AccountResourceTest {
 
     @Test
     public void testCreateAccountFailureMinBalance() {
-        account.setBalance(-1d);
+        account.setBalance(-1L);
 
         Response response = RULE.target("/accounts")
             .request(MediaType.APPLICATION_JSON_TYPE)
@@ -108,6 +155,53 @@ public class AccountResourceTest {
         assertThat(response).containsAll(accounts);
     }
 
+    @Test
+    public void testListAccountsPage() {
+        List<Account> accounts = Collections.singletonList(account);
+        when(ACCOUNT_SERVICE.listAccounts(5L, 10)).thenReturn(accounts);
+
+        List<Account> response = RULE.target("/accounts")
+            .queryParam("after", 5)
+            .queryParam("limit", 10)
+            .request().get(new GenericType<>() {
+            });
+
+        verify(ACCOUNT_SERVICE).listAccounts(5L, 10);
+        assertThat(response).containsAll(accounts);
+    }
+
+    @Test
+    public void testListAccountsProjection() {
+        List<Map<String, Object>> rows = List.of(Map.of("id", 1, "balance", 100.0));
+        when(ACCOUNT_SERVICE.listAccounts(0L, AccountResource.DEFAULT_PAGE_SIZE,
+            List.of(AccountField.ID, AccountField.BALANCE))).thenReturn(rows);
+
+        List<Map<String, Object>> response = RULE.target("/accounts")
+            .queryParam("fields", "id,balance")
+            .request().get(new GenericType<>() {
+            });
+
+        assertThat(response).isEqualTo(rows);
+    }
+
+    @Test
+    public void testListAccountsUnknownField() {
+        Response response = RULE.target("/accounts")
+            .queryParam("fields", "id,password")
+            .request().get();
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    public void testListAccountsLimitTooLarge() {
+        Response response = RULE.target("/accounts")
+            .queryParam("limit", AccountResource.MAX_PAGE_SIZE + 1)
+            .request().get();
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
     @Test
     public void testTransferMoneySuccess() {
         Response response = RULE.target("/accounts/transfer")
@@ -121,7 +215,7 @@ public class AccountResourceTest {
 
     @Test
     public void testTransferMoneyFailureMinMoneyAmount() {
-        transfer.setMoneyAmount(-1d);
+        transfer.setMoneyAmount(-1L);
         Response response = RULE.target("/accounts/transfer")
             .request(MediaType.APPLICATION_JSON_TYPE)
             .post(Entity.entity(transfer, MediaType.APPLICATION_JSON_TYPE));
@@ -130,6 +224,90 @@ public class AccountResourceTest {
         assertThat(response.readEntity(String.class)).contains("moneyAmount must be greater than or equal to 0");
     }
 
+    @Test
+    public void testTransferMoneyAmountIsReadInMinorUnits() {
+        Response response = RULE.target("/accounts/transfer")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .post(Entity.json("{\"accountId\": 1, \"moneyAmount\": 12.34, \"transferType\": \"DEPOSIT\"}"));
+
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.NO_CONTENT);
+        verify(ACCOUNT_SERVICE).transferMoney(transferCaptor.capture());
+        assertThat(transferCaptor.getValue().getMoneyAmount()).isEqualTo(1234L);
+    }
+
+    @Test
+    public void testTransferMoneyIdempotencyKeyIsPassedOn() {
+        Response response = RULE.target("/accounts/transfer")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .header(AccountResource.IDEMPOTENCY_KEY, "7d0c5c1e")
+            .post(Entity.json("{\"accountId\": 1, \"moneyAmount\": 1.00, \"transferType\": \"DEPOSIT\"}"));
+
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.NO_CONTENT);
+        verify(ACCOUNT_SERVICE).transferMoney(transferCaptor.capture());
+        assertThat(transferCaptor.getValue().getIdempotencyKey()).isEqualTo("7d0c5c1e");
+    }
+
+    @Test
+    public void testTransferMoneyIdempotencyKeyIsNotReadFromBody() {
+        Response response = RULE.target("/accounts/transfer")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .post(Entity.json("{\"accountId\": 1, \"moneyAmount\": 1.00, \"transferType\": \"DEPOSIT\", "
+                + "\"idempotencyKey\": \"7d0c5c1e\"}"));
+
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.NO_CONTENT);
+        verify(ACCOUNT_SERVICE).transferMoney(transferCaptor.capture());
+        assertThat(transferCaptor.getValue().getIdempotencyKey()).isNull();
+    }
+
+    @Test
+    public void testTransferMoneyFailureSubCentAmount() {
+        Response response = RULE.target("/accounts/transfer")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .post(Entity.json("{\"accountId\": 1, \"moneyAmount\": 0.001, \"transferType\": \"DEPOSIT\"}"));
+
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    public void testTransferMoneyFailureInvalidType() {
+        doThrow(new InvalidTransferTypeException("Invalid transfer type was specified"))
+            .when(ACCOUNT_SERVICE).transferMoney(any());
+
+        Response response = RULE.target("/accounts/transfer")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .post(Entity.json("{\"accountId\": 1, \"moneyAmount\": 1.00, \"transferType\": \"DEPOSIT\"}"));
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+        assertThat(response.readEntity(String.class)).contains("Invalid transfer type was specified");
+    }
+
+    @Test
+    public void testTransferMoneyBatch() {
+        transfer.setAccountId(1);
+        transfer.setMoneyAmount(10L);
+        transfer.setTransferType(TransferType.DEPOSIT);
+        List<TransferResult> results = List.of(TransferResult.applied(0, transfer));
+        when(ACCOUNT_SERVICE.transferMoneyBatch(any())).thenReturn(results);
+
+        List<TransferResult> response = RULE.target("/accounts/transfers/batch")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .post(Entity.entity(List.of(transfer), MediaType.APPLICATION_JSON_TYPE), new GenericType<>() {
+            });
+
+        verify(ACCOUNT_SERVICE).transferMoneyBatch(List.of(transfer));
+        assertThat(response).extracting("status").containsExactly(TransferResult.Status.APPLIED);
+        assertThat(response).extracting("transferId").containsExactly(2L);
+    }
+
+    @Test
+    public void testTransferMoneyBatchFailureEmpty() {
+        Response response = RULE.target("/accounts/transfers/batch")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .post(Entity.entity(List.of(), MediaType.APPLICATION_JSON_TYPE));
+
+        assertThat(response.getStatus()).isEqualTo(422);
+    }
+
     @Test
     public void testGetTransfers() {
         List<MoneyTransfer> transfers = Collections.singletonList(transfer);
@@ -142,4 +320,108 @@ public class AccountResourceTest {
         verify(ACCOUNT_SERVICE).getTransfers(1);
         assertThat(response).containsAll(transfers);
     }
+
+    @Test
+    public void testGetTransfersTagFollowsVersionAndEncoding() {
+        when(ACCOUNT_SERVICE.getVersion(1L)).thenReturn(3L);
+        when(ACCOUNT_SERVICE.getTransfers(1)).thenReturn(Collections.singletonList(transfer));
+
+        EntityTag json = RULE.target("/accounts/1/transfers").request(MediaType.APPLICATION_JSON).get()
+            .getEntityTag();
+        EntityTag cbor = RULE.target("/accounts/1/transfers").request(AccountResource.APPLICATION_CBOR).get()
+            .getEntityTag();
+        assertThat(cbor).isNotEqualTo(json);
+
+        when(ACCOUNT_SERVICE.getVersion(1L)).thenReturn(4L);
+        Response changed = RULE.target("/accounts/1/transfers").request(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, json).get();
+
+        assertThat(changed.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        assertThat(changed.getEntityTag()).isNotEqualTo(json);
+    }
+
+    @Test
+    public void testGetTransfersInBinaryFormats() throws IOException {
+        List<MoneyTransfer> transfers = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            MoneyTransfer transfer = new MoneyTransfer(1, 2L, 12_34L * i, TransferType.ACCOUNT_TO_ACCOUNT);
+            transfer.setId(i);
+            transfers.add(transfer);
+        }
+        when(ACCOUNT_SERVICE.getTransfers(1)).thenReturn(transfers);
+
+        byte[] json = getTransfers(MediaType.APPLICATION_JSON);
+        byte[] smile = getTransfers(AccountResource.APPLICATION_SMILE);
+        byte[] cbor = getTransfers(AccountResource.APPLICATION_CBOR);
+
+        assertThat(readTransfers(BinaryFormats.newSmileMapper(), smile)).usingFieldByFieldElementComparator()
+            .containsExactlyElementsOf(transfers);
+        assertThat(readTransfers(BinaryFormats.newCborMapper(), cbor)).usingFieldByFieldElementComparator()
+            .containsExactlyElementsOf(transfers);
+        // Smile writes each property name once per document and back-references it; CBOR only drops the quotes.
+        assertThat(smile.length).isLessThan(cbor.length);
+        assertThat(cbor.length).isLessThan(json.length);
+    }
+
+    @Test
+    public void testGetTransfersDefaultsToJson() {
+        when(ACCOUNT_SERVICE.getTransfers(1)).thenReturn(Collections.singletonList(transfer));
+
+        Response response = RULE.target("/accounts/1/transfers").request(MediaType.WILDCARD).get();
+
+        assertThat(response.getMediaType().isCompatible(MediaType.APPLICATION_JSON_TYPE)).isTrue();
+    }
+
+    @Test
+    public void testCreateAccountFromCbor() throws IOException {
+        ObjectMapper cborMapper = BinaryFormats.newCborMapper();
+        when(ACCOUNT_SERVICE.createAccount(any(Account.class))).thenReturn(account);
+
+        Response response = RULE.target("/accounts").request(AccountResource.APPLICATION_CBOR)
+            .post(Entity.entity(cborMapper.writeValueAsBytes(new Account("John", "Doe", 100_00L)),
+                AccountResource.APPLICATION_CBOR));
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        verify(ACCOUNT_SERVICE).createAccount(accountCaptor.capture());
+        assertThat(accountCaptor.getValue().getBalance()).isEqualTo(100_00L);
+        assertThat(cborMapper.readValue(response.readEntity(byte[].class), Account.class).getId()).isEqualTo(1);
+    }
+
+    private byte[] getTransfers(String mediaType) {
+        return RULE.target("/accounts/1/transfers").request(mediaType).get(byte[].class);
+    }
+
+    private static List<MoneyTransfer> readTransfers(ObjectMapper mapper, byte[] content) throws IOException {
+        return mapper.readValue(content, new TypeReference<List<MoneyTransfer>>() {
+        });
+    }
+
+    @Test
+    public void testStreamTransfers() {
+        doAnswer(invocation -> {
+            Consumer<MoneyTransfer> consumer = invocation.getArgument(1);
+            consumer.accept(transfer);
+            consumer.accept(transfer);
+            return 2L;
+        }).when(ACCOUNT_SERVICE).streamTransfers(eq(1L), any());
+
+        String response = RULE.target("/accounts/1/transfers")
+            .request(AccountResource.APPLICATION_NDJSON).get(String.class);
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":2,").isEqualTo(lines[1]);
+        verify(ACCOUNT_SERVICE).streamTransfers(eq(1L), any());
+    }
+
+    @Test
+    public void testStreamTransfersNotFound() {
+        when(ACCOUNT_SERVICE.getVersion(2L)).thenThrow(new NotFoundException());
+
+        Response response = RULE.target("/accounts/2/transfers")
+            .request(AccountResource.APPLICATION_NDJSON).get();
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.NOT_FOUND.getStatusCode());
+        verify(ACCOUNT_SERVICE, never()).streamTransfers(eq(2L), any());
+    }
 }
@@ -5,6 +5,7 @@ import com.maxk.sampleproject.db.AccountDAO;
 import com.maxk.sampleproject.db.MoneyTransferDAO;
 import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
 import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
 import com.maxk.sampleproject.model.TransferType;
 import com.maxk.sampleproject.service.AccountService;
 import com.maxk.sampleproject.service.AccountServiceImpl;
@@ -16,14 +17,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -90,10 +95,10 @@ public class AccountServiceTest {
 
     @Test
     public void testDepositMoney() {
-        account.setBalance(100d);
+        account.setBalance(100L);
         when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
         transfer.setAccountId(account.getId());
-        transfer.setMoneyAmount(100d);
+        transfer.setMoneyAmount(100L);
         transfer.setTransferType(TransferType.DEPOSIT);
 
         ACCOUNT_SERVICE.transferMoney(transfer);
@@ -105,10 +110,10 @@ public class AccountServiceTest {
 
     @Test
     public void testWithdrawMoney() {
-        account.setBalance(100d);
+        account.setBalance(100L);
         when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
         transfer.setAccountId(account.getId());
-        transfer.setMoneyAmount(100d);
+        transfer.setMoneyAmount(100L);
         transfer.setTransferType(TransferType.WITHDRAW);
 
         ACCOUNT_SERVICE.transferMoney(transfer);
@@ -120,10 +125,10 @@ public class AccountServiceTest {
 
     @Test
     public void testWithdrawMoneyMoreThanBalance() {
-        account.setBalance(100d);
+        account.setBalance(100L);
         when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
         transfer.setAccountId(account.getId());
-        transfer.setMoneyAmount(200d);
+        transfer.setMoneyAmount(200L);
         transfer.setTransferType(TransferType.WITHDRAW);
 
         Assertions.assertThrows(InsufficientBalanceForTransferException.class, () -> ACCOUNT_SERVICE.transferMoney(transfer));
@@ -131,15 +136,15 @@ public class AccountServiceTest {
 
     @Test
     public void testTransferMoney() {
-        account.setBalance(100d);
+        account.setBalance(100L);
         when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
         Account secondAccount = new Account();
         secondAccount.setId(account.getId() + 1);
-        secondAccount.setBalance(200d);
+        secondAccount.setBalance(200L);
         when(ACCOUNT_DAO.findById(secondAccount.getId())).thenReturn(Optional.of(secondAccount));
         transfer.setAccountId(account.getId());
         transfer.setDestinationAccountId(secondAccount.getId());
-        transfer.setMoneyAmount(100d);
+        transfer.setMoneyAmount(100L);
         transfer.setTransferType(TransferType.ACCOUNT_TO_ACCOUNT);
 
         ACCOUNT_SERVICE.transferMoney(transfer);
@@ -148,25 +153,110 @@ public class AccountServiceTest {
         verify(ACCOUNT_DAO, times(2)).save(accountCaptor.capture());
         List<Account> savedAccounts = accountCaptor.getAllValues();
         assertThat(savedAccounts).extracting("id").containsExactly(2L, 1L);
-        assertThat(savedAccounts).extracting("balance").containsExactly(300d, 0d);
+        assertThat(savedAccounts).extracting("balance").containsExactly(300L, 0L);
     }
 
     @Test
     public void testTransferMoneyMoreThanBalance() {
-        account.setBalance(100d);
+        account.setBalance(100L);
         when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
         Account secondAccount = new Account();
         secondAccount.setId(account.getId() + 1);
-        secondAccount.setBalance(200d);
+        secondAccount.setBalance(200L);
         when(ACCOUNT_DAO.findById(secondAccount.getId())).thenReturn(Optional.of(secondAccount));
         transfer.setAccountId(account.getId());
         transfer.setDestinationAccountId(secondAccount.getId());
-        transfer.setMoneyAmount(400d);
+        transfer.setMoneyAmount(400L);
         transfer.setTransferType(TransferType.ACCOUNT_TO_ACCOUNT);
 
         Assertions.assertThrows(InsufficientBalanceForTransferException.class, () -> ACCOUNT_SERVICE.transferMoney(transfer));
     }
 
+    @Test
+    public void testTransferMoneyWithoutDestinationIsRejected() {
+        account.setBalance(100L);
+        when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
+        transfer.setAccountId(account.getId());
+        transfer.setMoneyAmount(10L);
+        transfer.setTransferType(TransferType.ACCOUNT_TO_ACCOUNT);
+
+        Assertions.assertThrows(BadRequestException.class, () -> ACCOUNT_SERVICE.transferMoney(transfer));
+        verify(TRANSFER_DAO, never()).create(any(MoneyTransfer.class));
+        verify(ACCOUNT_DAO, never()).save(any(Account.class));
+    }
+
+    @Test
+    public void testZeroAmountTransferBumpsVersion() {
+        account.setBalance(100L);
+        when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
+        when(ACCOUNT_DAO.save(account)).thenReturn(account);
+        transfer.setAccountId(account.getId());
+        transfer.setMoneyAmount(0L);
+        transfer.setTransferType(TransferType.DEPOSIT);
+
+        ACCOUNT_SERVICE.transferMoney(transfer);
+
+        verify(TRANSFER_DAO).create(transfer);
+        verify(ACCOUNT_DAO).forceVersionIncrement(account);
+    }
+
+    @Test
+    public void testTransferToSameAccountBumpsVersion() {
+        account.setBalance(100L);
+        when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
+        when(ACCOUNT_DAO.save(account)).thenReturn(account);
+        transfer.setAccountId(account.getId());
+        transfer.setDestinationAccountId(account.getId());
+        transfer.setMoneyAmount(60L);
+        transfer.setTransferType(TransferType.ACCOUNT_TO_ACCOUNT);
+
+        ACCOUNT_SERVICE.transferMoney(transfer);
+
+        verify(TRANSFER_DAO).create(transfer);
+        verify(ACCOUNT_DAO).save(accountCaptor.capture());
+        assertThat(accountCaptor.getValue().getBalance()).isEqualTo(100L);
+        verify(ACCOUNT_DAO).forceVersionIncrement(account);
+    }
+
+    @Test
+    public void testBalanceChangeDoesNotForceVersion() {
+        account.setBalance(100L);
+        when(ACCOUNT_DAO.findById(account.getId())).thenReturn(Optional.of(account));
+        transfer.setAccountId(account.getId());
+        transfer.setMoneyAmount(10L);
+        transfer.setTransferType(TransferType.DEPOSIT);
+
+        ACCOUNT_SERVICE.transferMoney(transfer);
+
+        verify(ACCOUNT_DAO, never()).forceVersionIncrement(any());
+    }
+
+    @Test
+    public void testTransferMoneyBatch() {
+        account.setBalance(100L);
+        Account secondAccount = new Account();
+        secondAccount.setId(account.getId() + 1);
+        secondAccount.setBalance(200L);
+        when(ACCOUNT_DAO.findAllForUpdate(any())).thenReturn(Map.of(1L, account, 2L, secondAccount));
+        List<MoneyTransfer> transfers = List.of(
+            new MoneyTransfer(1, 2L, 150L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(2, 1L, 150L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(1, 2L, 150L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(1, 3L, 10L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(1, null, 10L, null));
+
+        List<TransferResult> results = ACCOUNT_SERVICE.transferMoneyBatch(transfers);
+
+        assertThat(results).extracting("status").containsExactly(
+            TransferResult.Status.REJECTED, TransferResult.Status.APPLIED, TransferResult.Status.APPLIED,
+            TransferResult.Status.REJECTED, TransferResult.Status.REJECTED);
+        assertThat(results).extracting("index").containsExactly(0, 1, 2, 3, 4);
+        verify(ACCOUNT_DAO).findAllForUpdate(Set.of(1L, 2L, 3L));
+        verify(TRANSFER_DAO, times(2)).create(any(MoneyTransfer.class));
+        assertThat(account.getBalance()).isEqualTo(100L);
+        assertThat(secondAccount.getBalance()).isEqualTo(200L);
+    }
+
     @Test
     public void testGetTransfers() {
         List<MoneyTransfer> transfers = Collections.singletonList(transfer);
@@ -0,0 +1,95 @@
+package com.maxk.sampleproject.resources;
+
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
+import com.maxk.sampleproject.service.AccountService;
+import io.dropwizard.hibernate.UnitOfWork;
+import io.dropwizard.hibernate.UnitOfWorkApplicationListener;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class ShardedAccountResourceTest {
+    private static final AccountService ACCOUNT_SERVICE = mock(AccountService.class);
+    private static final SessionFactory SESSION_FACTORY = mock(SessionFactory.class);
+    private static final ResourceExtension RULE = ResourceExtension.builder()
+            .addResource(new ShardedAccountResource(ACCOUNT_SERVICE, Jackson.newObjectMapper(), null,
+                TransferExecutor.DIRECT))
+            .addProvider(unitOfWork())
+            .build();
+
+    private static UnitOfWorkApplicationListener unitOfWork() {
+        UnitOfWorkApplicationListener listener = new UnitOfWorkApplicationListener("hibernate", SESSION_FACTORY);
+        listener.registerSessionFactory(AccountResource.READ_DATABASE, SESSION_FACTORY);
+        return listener;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reset(ACCOUNT_SERVICE, SESSION_FACTORY);
+    }
+
+    @Test
+    public void testEveryUnitOfWorkIsOverridden() throws NoSuchMethodException {
+        for (Method method : AccountResource.class.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(UnitOfWork.class)) {
+                Method override = ShardedAccountResource.class.getDeclaredMethod(method.getName(),
+                    method.getParameterTypes());
+                assertThat(override.isAnnotationPresent(UnitOfWork.class)).as(method.getName()).isFalse();
+                assertThat(override.isAnnotationPresent(GET.class) || override.isAnnotationPresent(POST.class))
+                    .as(method.getName()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testGetAccountOpensNoSession() {
+        Account account = new Account();
+        account.setId(1L);
+        when(ACCOUNT_SERVICE.getVersion(1L)).thenReturn(3L);
+        when(ACCOUNT_SERVICE.getAccount(1L)).thenReturn(account);
+
+        Response response = RULE.target("/accounts/1").request().get();
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        verifyZeroInteractions(SESSION_FACTORY);
+    }
+
+    @Test
+    public void testTransferMoneyBatchOpensNoSession() {
+        MoneyTransfer transfer = new MoneyTransfer();
+        transfer.setAccountId(1L);
+        transfer.setMoneyAmount(10L);
+        transfer.setTransferType(TransferType.DEPOSIT);
+        when(ACCOUNT_SERVICE.transferMoneyBatch(any())).thenReturn(List.of(TransferResult.applied(0, transfer)));
+
+        Response response = RULE.target("/accounts/transfers/batch")
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .post(Entity.entity(List.of(transfer), MediaType.APPLICATION_JSON_TYPE));
+
+        assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+        verifyZeroInteractions(SESSION_FACTORY);
+    }
+}
@@ -0,0 +1,113 @@
+package com.maxk.sampleproject.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class TransferExecutorTest {
+    private AsyncResponse asyncResponse;
+    private MetricRegistry metrics;
+    private List<Runnable> queued;
+
+    @BeforeEach
+    public void setup() {
+        asyncResponse = mock(AsyncResponse.class);
+        metrics = new MetricRegistry();
+        queued = new ArrayList<>();
+    }
+
+    @Test
+    public void testTransferIsResumedWithNoContent() {
+        TransferExecutor executor = new TransferExecutor(queued::add, 1, metrics);
+
+        executor.submit(asyncResponse, () -> { });
+        assertThat(queued).hasSize(1);
+        queued.get(0).run();
+
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(response.capture());
+        assertThat(response.getValue().getStatus()).isEqualTo(204);
+        assertThat(metrics.timer(MetricRegistry.name(TransferExecutor.class, "transfers")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailureOnTheWorkerIsMetered() {
+        TransferExecutor executor = new TransferExecutor(queued::add, 1, metrics);
+        InsufficientBalanceForTransferException failure = new InsufficientBalanceForTransferException("Insufficient");
+
+        executor.submit(asyncResponse, () -> {
+            throw failure;
+        });
+        queued.get(0).run();
+
+        verify(asyncResponse).resume(failure);
+        assertThat(metrics.timer(MetricRegistry.name(TransferExecutor.class, "transfers")).getCount()).isEqualTo(1);
+        assertThat(metrics.meter(MetricRegistry.name(TransferExecutor.class, "failures")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testErrorIsResumedBeforeItPropagates() {
+        TransferExecutor executor = new TransferExecutor(queued::add, 1, metrics);
+        StackOverflowError failure = new StackOverflowError();
+
+        executor.submit(asyncResponse, () -> {
+            throw failure;
+        });
+
+        assertThatThrownBy(() -> queued.get(0).run()).isSameAs(failure);
+        verify(asyncResponse).resume(failure);
+    }
+
+    @Test
+    public void testFailureIsResumedWithTheException() {
+        InsufficientBalanceForTransferException failure = new InsufficientBalanceForTransferException("Insufficient");
+
+        TransferExecutor.DIRECT.submit(asyncResponse, () -> {
+            throw failure;
+        });
+
+        verify(asyncResponse).resume(failure);
+    }
+
+    @Test
+    public void testAbandonedTransferIsResumedWithServiceUnavailable() {
+        TransferExecutor executor = new TransferExecutor(queued::add, 2, metrics);
+
+        executor.submit(asyncResponse, () -> { });
+        ((VirtualThreadExecutor.Abandonable) queued.get(0)).abandon(new RejectedExecutionException());
+
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(response.capture());
+        assertThat(response.getValue().getStatus()).isEqualTo(503);
+        assertThat(response.getValue().getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+    }
+
+    @Test
+    public void testFullQueueIsRejectedWithRetryAfter() {
+        TransferExecutor executor = new TransferExecutor(command -> {
+            throw new RejectedExecutionException();
+        }, 3, metrics);
+
+        executor.submit(asyncResponse, () -> { });
+
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(response.capture());
+        assertThat(response.getValue().getStatus()).isEqualTo(429);
+        assertThat(response.getValue().getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+        assertThat(metrics.meter(MetricRegistry.name(TransferExecutor.class, "rejected")).getCount()).isEqualTo(1);
+    }
+}
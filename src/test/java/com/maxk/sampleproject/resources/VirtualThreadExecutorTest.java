@@ -0,0 +1,128 @@
+package com.maxk.sampleproject.resources;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * The permits and the pending limit do not depend on the kind of thread, so they are tested on a platform thread
+ * per task, which every JDK has.
+ */
+public class VirtualThreadExecutorTest {
+    private static final int PERMITS = 2;
+    private static final int MAX_PENDING = 4;
+
+    private VirtualThreadExecutor executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = new VirtualThreadExecutor(Executors.newCachedThreadPool(), PERMITS, MAX_PENDING);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        executor.stop();
+    }
+
+    @Test
+    public void testMissingVirtualThreadsAreRefused() {
+        assumeFalse(VirtualThreadExecutor.isAvailable());
+
+        assertThatIllegalStateException().isThrownBy(() -> new VirtualThreadExecutor("test", PERMITS, MAX_PENDING))
+            .withMessageContaining("Java 21");
+    }
+
+    @Test
+    public void testConcurrencyIsCappedByPermits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(MAX_PENDING);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < MAX_PENDING; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                finished.countDown();
+            });
+        }
+        waitFor(() -> executor.getRunning() == PERMITS);
+
+        assertThat(executor.getPending()).isEqualTo(MAX_PENDING);
+        assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(() -> executor.execute(() -> { }));
+
+        release.countDown();
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(PERMITS);
+        waitFor(() -> executor.getPending() == 0);
+        assertThat(executor.getRunning()).isZero();
+    }
+
+    @Test
+    public void testFailingTaskReleasesItsPermit() throws Exception {
+        executor.execute(() -> {
+            throw new IllegalStateException("Failed");
+        });
+
+        waitFor(() -> executor.getPending() == 0);
+        assertThat(executor.getRunning()).isZero();
+    }
+
+    @Test
+    public void testTaskWaitingAtStopIsAbandoned() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < PERMITS; i++) {
+            // The holders outlive the interrupt so that the permits stay taken while the waiter is interrupted.
+            executor.execute(() -> {
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        // keep holding the permit
+                    }
+                }
+            });
+        }
+        waitFor(() -> executor.getRunning() == PERMITS);
+        CountDownLatch abandoned = new CountDownLatch(1);
+        executor.execute(new VirtualThreadExecutor.Abandonable() {
+            @Override
+            public void run() {
+            }
+
+            @Override
+            public void abandon(RejectedExecutionException reason) {
+                abandoned.countDown();
+            }
+        });
+
+        executor.stop();
+
+        assertThat(abandoned.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
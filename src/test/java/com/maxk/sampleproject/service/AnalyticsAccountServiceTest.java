@@ -0,0 +1,73 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AnalyticsAccountServiceTest {
+    private AccountService delegate;
+    private TransferAnalytics analytics;
+    private AccountDAO accountDAO;
+    private AnalyticsAccountService accountService;
+
+    @BeforeEach
+    public void setup() {
+        delegate = mock(AccountService.class);
+        analytics = mock(TransferAnalytics.class);
+        accountDAO = mock(AccountDAO.class);
+        accountService = new AnalyticsAccountService(delegate, analytics, accountDAO);
+    }
+
+    @Test
+    public void testTransferIsRecordedOnCommitOnly() {
+        when(accountDAO.afterCompletion(any())).thenReturn(true);
+        MoneyTransfer committed = new MoneyTransfer(1, null, 100L, TransferType.DEPOSIT);
+        MoneyTransfer rolledBack = new MoneyTransfer(1, null, 200L, TransferType.DEPOSIT);
+
+        accountService.transferMoney(committed);
+        accountService.transferMoney(rolledBack);
+
+        List<Consumer<Boolean>> callbacks = captureCallbacks(2);
+        verify(analytics, never()).record(any());
+        callbacks.get(0).accept(true);
+        callbacks.get(1).accept(false);
+        verify(analytics).record(committed);
+        verify(analytics, never()).record(rolledBack);
+    }
+
+    @Test
+    public void testOnlyAppliedBatchTransfersAreRecorded() {
+        MoneyTransfer applied = new MoneyTransfer(1, null, 100L, TransferType.DEPOSIT);
+        MoneyTransfer rejected = new MoneyTransfer(1, null, 200L, TransferType.WITHDRAW);
+        List<MoneyTransfer> batch = List.of(rejected, applied);
+        when(delegate.transferMoneyBatch(batch)).thenReturn(List.of(
+            TransferResult.rejected(0, "Insufficient"), TransferResult.applied(1, applied)));
+
+        accountService.transferMoneyBatch(batch);
+
+        // Without an active transaction the transfers count straight away.
+        verify(analytics).record(applied);
+        verify(analytics, never()).record(rejected);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Consumer<Boolean>> captureCallbacks(int times) {
+        ArgumentCaptor<Consumer<Boolean>> callbacks = ArgumentCaptor.forClass(Consumer.class);
+        verify(accountDAO, times(times)).afterCompletion(callbacks.capture());
+        return callbacks.getAllValues();
+    }
+}
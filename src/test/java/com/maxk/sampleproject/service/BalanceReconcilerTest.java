@@ -0,0 +1,214 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.archive.TransferArchive;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.BalanceDrift;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.ReconciliationReport;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BalanceReconcilerTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 12, 30);
+
+    private final Map<Long, Account> accounts = new ConcurrentSkipListMap<>();
+    private final List<MoneyTransfer> archived = new CopyOnWriteArrayList<>();
+    private List<MoneyTransfer> table;
+    private List<MoneyTransfer> scanned;
+    private AccountDAO accountDAO;
+    private MoneyTransferDAO transferDAO;
+    private TransactionRunner transactionRunner;
+    private BalanceReconciler reconciler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        table = new CopyOnWriteArrayList<>();
+        scanned = table;
+        transferDAO = mock(MoneyTransferDAO.class);
+        when(transferDAO.findIdRange()).thenAnswer(invocation -> scanned.isEmpty() ? Optional.empty()
+            : Optional.of(new long[]{
+                scanned.stream().mapToLong(MoneyTransfer::getId).min().getAsLong(),
+                scanned.stream().mapToLong(MoneyTransfer::getId).max().getAsLong()}));
+        when(transferDAO.streamByIdRange(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            long fromId = invocation.getArgument(0);
+            long toId = invocation.getArgument(1);
+            Consumer<MoneyTransfer> consumer = invocation.getArgument(2);
+            return scanned.stream()
+                .filter(transfer -> transfer.getId() >= fromId && transfer.getId() < toId)
+                .peek(consumer)
+                .count();
+        });
+        // Like the DAO, the history of an account includes its archived transfers.
+        when(transferDAO.streamByAccountId(anyLong(), any())).thenAnswer(invocation -> {
+            long accountId = invocation.getArgument(0);
+            Consumer<MoneyTransfer> consumer = invocation.getArgument(1);
+            return Stream.concat(archived.stream(), table.stream())
+                .filter(transfer -> transfer.getAccountId() == accountId
+                    || Long.valueOf(accountId).equals(transfer.getDestinationAccountId()))
+                .peek(consumer)
+                .count();
+        });
+        accountDAO = mock(AccountDAO.class);
+        when(accountDAO.findPage(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return accounts.values().stream()
+                .filter(account -> account.getId() > afterId)
+                .limit(limit)
+                .collect(Collectors.toList());
+        });
+        when(accountDAO.findAllForUpdate(any())).thenAnswer(invocation -> ((Collection<Long>) invocation
+            .getArgument(0)).stream().filter(accounts::containsKey)
+            .collect(Collectors.toMap(id -> id, accounts::get)));
+        transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+        reconciler = reconciler(null);
+    }
+
+    private BalanceReconciler reconciler(TransferArchive archive) {
+        return new BalanceReconciler(accountDAO, transferDAO, transactionRunner, archive, 2, Duration.ofHours(1),
+            Clock.systemUTC(), new MetricRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        reconciler.stop();
+    }
+
+    @Test
+    public void testDriftedAccountsAreReported() {
+        account(1, 100L, 100L + 50 - 30 - 20);
+        account(2, 0L, 20L);
+        account(3, 10L, 11L);
+        insert(1, 1, null, 50, TransferType.DEPOSIT);
+        insert(BalanceReconciler.SCAN_SPAN * 3, 1, null, 30, TransferType.WITHDRAW);
+        insert(BalanceReconciler.SCAN_SPAN * 5, 1, 2L, 20, TransferType.ACCOUNT_TO_ACCOUNT);
+
+        ReconciliationReport report = reconciler.reconcile().orElseThrow();
+
+        assertThat(report.getTransfers()).isEqualTo(3);
+        assertThat(report.getAccounts()).isEqualTo(3);
+        assertThat(report.getDrifted()).isEqualTo(1);
+        assertThat(report.getDrifts()).extracting(BalanceDrift::getAccountId, BalanceDrift::getBalance,
+            BalanceDrift::getExpectedBalance).containsExactly(tuple(3L, 11L, 10L));
+        assertThat(reconciler.getLastReport()).isSameAs(report);
+    }
+
+    @Test
+    public void testTransferCommittedAfterTheScanIsNotADrift() {
+        account(1, 100L, 60L);
+        account(2, 0L, 40L);
+        scanned = new ArrayList<>();
+        insert(1, 1, 2L, 40, TransferType.ACCOUNT_TO_ACCOUNT);
+
+        ReconciliationReport report = reconciler.reconcile().orElseThrow();
+
+        assertThat(report.getTransfers()).isZero();
+        assertThat(report.getDrifted()).isZero();
+    }
+
+    @Test
+    public void testArchivedTransfersAreFoldedIn() {
+        TransferArchive archive = mock(TransferArchive.class);
+        when(archive.getArchivedUntil()).thenReturn(NOW);
+        doAnswer(invocation -> {
+            archived.forEach(invocation.<Consumer<MoneyTransfer>>getArgument(1));
+            return null;
+        }).when(archive).forEach(any(), any());
+        reconciler = reconciler(archive);
+        account(1, 100L, 100L + 50 - 30);
+        account(2, 0L, 21L);
+        archive(1, 1, null, 50, TransferType.DEPOSIT);
+        archive(2, 1, 2L, 20, TransferType.ACCOUNT_TO_ACCOUNT);
+        insert(3, 1, null, 30, TransferType.WITHDRAW);
+        insert(4, 2, 1L, 20, TransferType.ACCOUNT_TO_ACCOUNT);
+        // Archived rows still in the table until the archiver deletes them are left to the archive.
+        MoneyTransfer undeleted = archived.get(0);
+        table.add(undeleted);
+
+        ReconciliationReport report = reconciler.reconcile().orElseThrow();
+
+        assertThat(report.getTransfers()).isEqualTo(4);
+        assertThat(report.getDrifts()).extracting(BalanceDrift::getAccountId, BalanceDrift::getBalance,
+            BalanceDrift::getExpectedBalance).containsExactly(tuple(2L, 21L, 0L));
+    }
+
+    @Test
+    public void testAccountsWithoutOpeningBalanceAreSkipped() {
+        account(1, null, 70L);
+        insert(1, 1, null, 50, TransferType.DEPOSIT);
+
+        ReconciliationReport report = reconciler.reconcile().orElseThrow();
+
+        assertThat(report.getUnverified()).isEqualTo(1);
+        assertThat(report.getDrifted()).isZero();
+    }
+
+    @Test
+    public void testAccountsArePagedThrough() {
+        for (long id = 1; id <= BalanceReconciler.PAGE_SIZE * 2 + 1; id++) {
+            account(id, 5L, id == BalanceReconciler.PAGE_SIZE * 2 + 1 ? 6L : 5L);
+        }
+
+        ReconciliationReport report = reconciler.reconcile().orElseThrow();
+
+        assertThat(report.getAccounts()).isEqualTo(BalanceReconciler.PAGE_SIZE * 2 + 1);
+        assertThat(report.getDrifts()).extracting(BalanceDrift::getAccountId)
+            .containsExactly(BalanceReconciler.PAGE_SIZE * 2 + 1L);
+    }
+
+    private void account(long id, Long openingBalance, long balance) {
+        Account account = new Account("John", "Doe", balance);
+        account.setId(id);
+        account.setOpeningBalance(openingBalance);
+        accounts.put(id, account);
+    }
+
+    private void insert(long id, long accountId, Long destinationAccountId, long amount, TransferType type) {
+        table.add(transfer(id, accountId, destinationAccountId, amount, type, NOW));
+    }
+
+    private void archive(long id, long accountId, Long destinationAccountId, long amount, TransferType type) {
+        archived.add(transfer(id, accountId, destinationAccountId, amount, type, NOW.minusDays(1)));
+    }
+
+    private static MoneyTransfer transfer(long id, long accountId, Long destinationAccountId, long amount,
+                                          TransferType type, LocalDateTime dateTime) {
+        MoneyTransfer transfer = new MoneyTransfer(accountId, destinationAccountId, amount, type);
+        transfer.setId(id);
+        transfer.setDateTime(dateTime);
+        return transfer;
+    }
+}
@@ -0,0 +1,105 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.InvalidTransferTypeException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.NotFoundException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedAccountServiceTest {
+    private AccountService delegate;
+    private MetricRegistry metrics;
+    private InstrumentedAccountService accountService;
+
+    @BeforeEach
+    public void setup() {
+        delegate = mock(AccountService.class);
+        metrics = new MetricRegistry();
+        accountService = new InstrumentedAccountService(delegate, metrics);
+    }
+
+    private long count(String... names) {
+        String name = MetricRegistry.name(AccountService.class, names);
+        if (metrics.getTimers().containsKey(name)) {
+            return metrics.getTimers().get(name).getCount();
+        }
+        return metrics.getCounters().get(name).getCount();
+    }
+
+    @Test
+    public void testTransferIsTimedPerType() {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT);
+
+        accountService.transferMoney(transfer);
+
+        verify(delegate).transferMoney(transfer);
+        assertThat(count("transfers", "DEPOSIT")).isEqualTo(1);
+        assertThat(count("transfers", "WITHDRAW")).isZero();
+        assertThat(count("failedTransfers")).isZero();
+    }
+
+    @Test
+    public void testTransferWithoutTypeIsTimedAsUnknown() {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 50L, null);
+        doThrow(new InvalidTransferTypeException("Transfer type is required")).when(delegate).transferMoney(transfer);
+
+        Assertions.assertThrows(InvalidTransferTypeException.class, () -> accountService.transferMoney(transfer));
+
+        assertThat(count("transfers", "unknown")).isEqualTo(1);
+        assertThat(count("failedTransfers")).isEqualTo(1);
+    }
+
+    @Test
+    public void testInsufficientBalanceIsCounted() {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 50L, TransferType.WITHDRAW);
+        doThrow(new InsufficientBalanceForTransferException("Insufficient")).when(delegate).transferMoney(transfer);
+
+        Assertions.assertThrows(InsufficientBalanceForTransferException.class,
+            () -> accountService.transferMoney(transfer));
+
+        assertThat(count("transfers", "WITHDRAW")).isEqualTo(1);
+        assertThat(count("insufficientBalance")).isEqualTo(1);
+        assertThat(count("failedTransfers")).isEqualTo(1);
+    }
+
+    @Test
+    public void testOtherFailuresAreCountedAsFailed() {
+        MoneyTransfer transfer = new MoneyTransfer(1, 2L, 50L, TransferType.ACCOUNT_TO_ACCOUNT);
+        doThrow(new NotFoundException()).when(delegate).transferMoney(any(MoneyTransfer.class));
+
+        Assertions.assertThrows(NotFoundException.class, () -> accountService.transferMoney(transfer));
+
+        assertThat(count("insufficientBalance")).isZero();
+        assertThat(count("failedTransfers")).isEqualTo(1);
+    }
+
+    @Test
+    public void testBatchRejectionsAreCounted() {
+        when(delegate.transferMoneyBatch(anyList())).thenReturn(List.of(
+            TransferResult.rejected(0, "Insufficient"),
+            new TransferResult(1, TransferResult.Status.APPLIED, 7L, null)));
+
+        List<TransferResult> results = accountService.transferMoneyBatch(List.of(
+            new MoneyTransfer(1, null, 50L, TransferType.WITHDRAW),
+            new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT)));
+
+        assertThat(results).hasSize(2);
+        assertThat(count("transfers", "batch")).isEqualTo(1);
+        assertThat(count("rejectedBatchTransfers")).isEqualTo(1);
+    }
+}
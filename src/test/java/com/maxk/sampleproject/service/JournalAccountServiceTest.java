@@ -0,0 +1,211 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.journal.BalanceJournal;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JournalAccountServiceTest {
+    private final AccountDAO accountDAO = mock(AccountDAO.class);
+    private final MoneyTransferDAO transferDAO = mock(MoneyTransferDAO.class);
+    private final List<MoneyTransfer> transfers = new ArrayList<>();
+
+    @TempDir
+    public Path directory;
+
+    private BalanceJournal journal;
+    private JournalAccountService accountService;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        journal = new BalanceJournal(directory, 1 << 20, TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1));
+        journal.start();
+        accountService = new JournalAccountService(accountDAO, transferDAO, journal);
+        when(accountDAO.findById(1L)).thenReturn(Optional.of(account(1, 100L)));
+        when(accountDAO.findById(2L)).thenReturn(Optional.of(account(2, 200L)));
+        AtomicLong ids = new AtomicLong();
+        doAnswer(invocation -> {
+            MoneyTransfer transfer = invocation.getArgument(0);
+            transfer.setId(ids.incrementAndGet());
+            transfers.add(transfer);
+            return transfer;
+        }).when(transferDAO).create(any(MoneyTransfer.class));
+        doAnswer(invocation -> {
+            long fromId = invocation.getArgument(0);
+            Consumer<MoneyTransfer> consumer = invocation.getArgument(2);
+            transfers.stream().filter(transfer -> transfer.getId() >= fromId).forEach(consumer);
+            return 0L;
+        }).when(transferDAO).streamByIdRange(anyLong(), anyLong(), any());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        journal.stop();
+    }
+
+    private Account account(long id, long balance) {
+        Account account = new Account("John", "Doe", balance);
+        account.setId(id);
+        return account;
+    }
+
+    @Test
+    public void testTransferIsJournaledInsteadOfUpdated() {
+        accountService.transferMoney(new MoneyTransfer(1, 2L, 60L, TransferType.ACCOUNT_TO_ACCOUNT));
+
+        verify(transferDAO).create(any(MoneyTransfer.class));
+        verify(accountDAO, never()).updateBalance(anyLong(), anyLong());
+        assertThat(journal.delta(1)).isEqualTo(-60L);
+        assertThat(accountService.getAccount(1).getBalance()).isEqualTo(40L);
+        assertThat(accountService.getAccount(2).getBalance()).isEqualTo(260L);
+    }
+
+    @Test
+    public void testInsufficientBalanceUsesJournaledBalance() {
+        accountService.transferMoney(new MoneyTransfer(1, null, 80L, TransferType.WITHDRAW));
+
+        Assertions.assertThrows(InsufficientBalanceForTransferException.class, () ->
+            accountService.transferMoney(new MoneyTransfer(1, null, 30L, TransferType.WITHDRAW)));
+        assertThat(journal.delta(1)).isEqualTo(-80L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRollbackLeavesJournalAlone() {
+        when(accountDAO.afterCompletion(any())).thenReturn(true);
+        accountService.transferMoney(new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT));
+
+        ArgumentCaptor<Consumer<Boolean>> completion = ArgumentCaptor.forClass(Consumer.class);
+        verify(accountDAO, atLeastOnce()).afterCompletion(completion.capture());
+        completion.getAllValues().forEach(callback -> callback.accept(false));
+
+        assertThat(journal.delta(1)).isZero();
+        assertThat(journal.getRecoveredSequence() + 1).isEqualTo(journal.append(0, 0, 0, 0, 0));
+        assertThat(accountService.getAccount(1).getBalance()).isEqualTo(100L);
+    }
+
+    @Test
+    public void testCrashBeforeCommitLeavesNothingToReplay() throws Exception {
+        when(accountDAO.afterCompletion(any())).thenReturn(true);
+        accountService.transferMoney(new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT));
+
+        assertThat(journal.delta(1)).isZero();
+        journal.stop();
+        journal = new BalanceJournal(directory, 1 << 20, TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1));
+        journal.start();
+        assertThat(journal.delta(1)).isZero();
+    }
+
+    @Test
+    public void testCommittedTransferIsJournaled() {
+        transferAndCommit();
+
+        assertThat(journal.delta(1)).isEqualTo(-10L);
+        assertThat(journal.delta(2)).isEqualTo(10L);
+    }
+
+    @Test
+    public void testVersionChangesWhenTransferCommits() {
+        when(accountDAO.findVersion(anyLong())).thenReturn(Optional.of(0L));
+        long before = accountService.getVersion(2);
+
+        transferAndCommit();
+
+        assertThat(accountService.getVersion(1)).isGreaterThan(before);
+        assertThat(accountService.getVersion(2)).isGreaterThan(before);
+    }
+
+    @Test
+    public void testVersionIsNotReusedAfterRestart() throws Exception {
+        when(accountDAO.findVersion(anyLong())).thenReturn(Optional.of(0L));
+        transferAndCommit();
+        long before = accountService.getVersion(2);
+
+        journal.stop();
+        journal = new BalanceJournal(directory, 1 << 20, TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1));
+        journal.start();
+        accountService = new JournalAccountService(accountDAO, transferDAO, journal);
+        transferAndCommit();
+
+        assertThat(accountService.getVersion(2)).isGreaterThan(before);
+    }
+
+    @Test
+    public void testNewJournalStartsAboveExistingTransfers() throws Exception {
+        transfers.add(transfer(7, 1, 2L, 30L));
+
+        accountService.start();
+
+        assertThat(journal.delta(1)).isZero();
+        assertThat(journal.getLowWaterMark()).isEqualTo(8);
+    }
+
+    @Test
+    public void testCommittedTransferMissingFromJournalIsReplayedOnStart() throws Exception {
+        accountService.start();
+        transferAndCommit();
+        // Committed, but the process died before the record was appended.
+        transfers.add(transfer(2, 1, 2L, 30L));
+
+        restart();
+
+        assertThat(journal.delta(1)).isEqualTo(-40L);
+        assertThat(journal.delta(2)).isEqualTo(40L);
+        restart();
+        assertThat(journal.delta(1)).isEqualTo(-40L);
+    }
+
+    private MoneyTransfer transfer(long id, long accountId, Long destinationAccountId, long amount) {
+        MoneyTransfer transfer = new MoneyTransfer(accountId, destinationAccountId, amount,
+            TransferType.ACCOUNT_TO_ACCOUNT);
+        transfer.setId(id);
+        return transfer;
+    }
+
+    private void restart() throws Exception {
+        journal.stop();
+        journal = new BalanceJournal(directory, 1 << 20, TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1));
+        journal.start();
+        accountService = new JournalAccountService(accountDAO, transferDAO, journal);
+        accountService.start();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void transferAndCommit() {
+        when(accountDAO.afterCompletion(any())).thenReturn(true);
+        accountService.transferMoney(new MoneyTransfer(1, 2L, 10L, TransferType.ACCOUNT_TO_ACCOUNT));
+
+        ArgumentCaptor<Consumer<Boolean>> completion = ArgumentCaptor.forClass(Consumer.class);
+        verify(accountDAO, atLeastOnce()).afterCompletion(completion.capture());
+        completion.getAllValues().forEach(callback -> callback.accept(true));
+        clearInvocations(accountDAO);
+    }
+}
@@ -0,0 +1,191 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferResult;
+import com.maxk.sampleproject.model.TransferType;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.NotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class LedgerAccountServiceTest {
+    private static final AccountDAO ACCOUNT_DAO = mock(AccountDAO.class);
+    private static final MoneyTransferDAO TRANSFER_DAO = mock(MoneyTransferDAO.class);
+    private LedgerAccountService accountService;
+
+    @BeforeEach
+    public void setup() {
+        accountService = new LedgerAccountService(ACCOUNT_DAO, TRANSFER_DAO, 16);
+        when(ACCOUNT_DAO.findById(1L)).thenReturn(Optional.of(account(1, 100L)));
+        when(ACCOUNT_DAO.findById(2L)).thenReturn(Optional.of(account(2, 200L)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reset(ACCOUNT_DAO, TRANSFER_DAO);
+    }
+
+    private Account account(long id, long balance) {
+        Account account = new Account("John", "Doe", balance);
+        account.setId(id);
+        return account;
+    }
+
+    @Test
+    public void testDepositWritesThrough() {
+        accountService.transferMoney(new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT));
+
+        verify(TRANSFER_DAO).create(any(MoneyTransfer.class));
+        verify(ACCOUNT_DAO).updateBalance(1L, 150L);
+    }
+
+    @Test
+    public void testBalanceIsLoadedOnce() {
+        accountService.transferMoney(new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT));
+        accountService.transferMoney(new MoneyTransfer(1, null, 30L, TransferType.WITHDRAW));
+
+        verify(ACCOUNT_DAO, times(1)).findById(1L);
+        verify(ACCOUNT_DAO).updateBalance(1L, 120L);
+    }
+
+    @Test
+    public void testWithdrawMoneyMoreThanBalance() {
+        Assertions.assertThrows(InsufficientBalanceForTransferException.class, () ->
+            accountService.transferMoney(new MoneyTransfer(1, null, 200L, TransferType.WITHDRAW)));
+
+        verify(TRANSFER_DAO, never()).create(any(MoneyTransfer.class));
+        verify(ACCOUNT_DAO, never()).updateBalance(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testTransferMoney() {
+        accountService.transferMoney(new MoneyTransfer(1, 2L, 100L, TransferType.ACCOUNT_TO_ACCOUNT));
+
+        verify(ACCOUNT_DAO).updateBalance(2L, 300L);
+        verify(ACCOUNT_DAO).updateBalance(1L, 0L);
+    }
+
+    @Test
+    public void testTransferToUnknownAccount() {
+        when(ACCOUNT_DAO.findById(3L)).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(NotFoundException.class, () ->
+            accountService.transferMoney(new MoneyTransfer(1, 3L, 10L, TransferType.ACCOUNT_TO_ACCOUNT)));
+        verify(ACCOUNT_DAO, never()).updateBalance(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testTransferMoneyBatch() {
+        when(ACCOUNT_DAO.findById(3L)).thenReturn(Optional.empty());
+
+        List<TransferResult> results = accountService.transferMoneyBatch(List.of(
+            new MoneyTransfer(1, 2L, 150L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(2, 1L, 150L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(1, 3L, 10L, TransferType.ACCOUNT_TO_ACCOUNT),
+            new MoneyTransfer(1, null, 250L, TransferType.WITHDRAW)));
+
+        assertThat(results).extracting("status").containsExactly(
+            TransferResult.Status.REJECTED, TransferResult.Status.APPLIED,
+            TransferResult.Status.REJECTED, TransferResult.Status.APPLIED);
+        verify(TRANSFER_DAO, times(2)).create(any(MoneyTransfer.class));
+        assertThat(lastBalance(1L)).isEqualTo(0L);
+        assertThat(lastBalance(2L)).isEqualTo(50L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRollbackReloadsBalance() {
+        ArgumentCaptor<Consumer<Boolean>> completion = ArgumentCaptor.forClass(Consumer.class);
+        when(ACCOUNT_DAO.afterCompletion(any())).thenReturn(true);
+
+        accountService.transferMoney(new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT));
+        verify(ACCOUNT_DAO).afterCompletion(completion.capture());
+        completion.getValue().accept(false);
+
+        when(ACCOUNT_DAO.afterCompletion(any())).thenReturn(false);
+        accountService.transferMoney(new MoneyTransfer(1, null, 10L, TransferType.DEPOSIT));
+
+        verify(ACCOUNT_DAO, times(2)).findById(1L);
+        verify(ACCOUNT_DAO).updateBalance(1L, 110L);
+    }
+
+    @Test
+    public void testFailedWriteReloadsBalances() {
+        doThrow(new IllegalStateException("Connection lost")).when(ACCOUNT_DAO).updateBalance(1L, 0L);
+
+        Assertions.assertThrows(IllegalStateException.class, () ->
+            accountService.transferMoney(new MoneyTransfer(1, 2L, 100L, TransferType.ACCOUNT_TO_ACCOUNT)));
+        accountService.transferMoney(new MoneyTransfer(2, null, 10L, TransferType.DEPOSIT));
+
+        verify(ACCOUNT_DAO, times(2)).findById(2L);
+        verify(ACCOUNT_DAO).updateBalance(2L, 210L);
+    }
+
+    @Test
+    public void testConcurrentTransfersDoNotLoseUpdates() throws Exception {
+        int threads = 8, transfersPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            boolean forward = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < transfersPerThread; j++) {
+                    accountService.transferMoney(forward
+                        ? new MoneyTransfer(1, 2L, 1L, TransferType.ACCOUNT_TO_ACCOUNT)
+                        : new MoneyTransfer(2, 1L, 1L, TransferType.ACCOUNT_TO_ACCOUNT));
+                    accountService.transferMoney(new MoneyTransfer(forward ? 1 : 2, null, 1L, TransferType.DEPOSIT));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int deposits = threads / 2 * transfersPerThread;
+        assertThat(lastBalance(1L)).isEqualTo(100L + deposits);
+        assertThat(lastBalance(2L)).isEqualTo(200L + deposits);
+    }
+
+    private long lastBalance(long accountId) {
+        ArgumentCaptor<Long> balances = ArgumentCaptor.forClass(Long.class);
+        verify(ACCOUNT_DAO, atLeastOnce()).updateBalance(eq(accountId), balances.capture());
+        List<Long> values = balances.getAllValues();
+        return values.get(values.size() - 1);
+    }
+}
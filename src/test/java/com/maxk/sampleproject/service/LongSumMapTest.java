@@ -0,0 +1,48 @@
+package com.maxk.sampleproject.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongSumMapTest {
+
+    @Test
+    public void testSumsMatchHashMapAcrossResizes() {
+        Random random = new Random(42);
+        LongSumMap map = new LongSumMap();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(20_000) - 10;
+            long amount = random.nextInt(1_000) - 500;
+            map.add(key, amount);
+            expected.merge(key, amount, Long::sum);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, sum) -> assertThat(map.get(key)).as("key %d", key).isEqualTo(sum));
+        assertThat(map.get(1_000_000)).isZero();
+    }
+
+    @Test
+    public void testMergeAddsSums() {
+        LongSumMap left = new LongSumMap();
+        left.add(1, 10);
+        left.add(0, 5);
+        LongSumMap right = new LongSumMap();
+        right.add(1, -3);
+        right.add(2, 7);
+        right.add(Long.MIN_VALUE, 1);
+
+        LongSumMap merged = left.merge(right);
+
+        assertThat(merged.size()).isEqualTo(4);
+        assertThat(merged.get(0)).isEqualTo(5);
+        assertThat(merged.get(1)).isEqualTo(7);
+        assertThat(merged.get(2)).isEqualTo(7);
+        assertThat(merged.get(Long.MIN_VALUE)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.db.ReplicationLagMonitor;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ReadRoutingAccountServiceTest {
+    private AccountService primary;
+    private AccountService replica;
+    private ReplicationLagMonitor lagMonitor;
+    private TransactionRunner transactionRunner;
+    private MetricRegistry metrics;
+    private ReadRoutingAccountService accountService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        primary = mock(AccountService.class);
+        replica = mock(AccountService.class);
+        lagMonitor = mock(ReplicationLagMonitor.class);
+        transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+        metrics = new MetricRegistry();
+        accountService = new ReadRoutingAccountService(primary, replica, lagMonitor, transactionRunner, metrics);
+    }
+
+    private long count(String name) {
+        return metrics.counter(MetricRegistry.name(ReadRoutingAccountService.class, name)).getCount();
+    }
+
+    @Test
+    public void testReadsGoToAFreshReplica() {
+        Account account = new Account("John", "Doe", 100L);
+        when(lagMonitor.isFresh()).thenReturn(true);
+        when(replica.getAccount(1)).thenReturn(account);
+
+        assertThat(accountService.getAccount(1)).isSameAs(account);
+
+        verifyZeroInteractions(primary, transactionRunner);
+        assertThat(count("replicaReads")).isEqualTo(1);
+    }
+
+    @Test
+    public void testReadsFallBackToThePrimaryWhileTheReplicaLags() {
+        Account account = new Account("John", "Doe", 100L);
+        when(lagMonitor.isFresh()).thenReturn(false);
+        when(primary.getAccount(1)).thenReturn(account);
+
+        assertThat(accountService.getAccount(1)).isSameAs(account);
+
+        verify(transactionRunner).inTransaction(any(Supplier.class));
+        verifyZeroInteractions(replica);
+        assertThat(count("primaryReads")).isEqualTo(1);
+    }
+
+    @Test
+    public void testWritesAlwaysGoToThePrimary() {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 100L, TransferType.DEPOSIT);
+        when(lagMonitor.isFresh()).thenReturn(true);
+
+        accountService.transferMoney(transfer);
+
+        verify(primary).transferMoney(transfer);
+        verifyZeroInteractions(replica);
+        verify(lagMonitor, never()).isFresh();
+    }
+}
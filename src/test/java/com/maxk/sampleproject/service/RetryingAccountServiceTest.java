@@ -0,0 +1,114 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import org.hibernate.StaleObjectStateException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.OptimisticLockException;
+import javax.ws.rs.ClientErrorException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RetryingAccountServiceTest {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private AccountService delegate;
+    private TransactionRunner transactionRunner;
+    private MetricRegistry metrics;
+    private RetryingAccountService accountService;
+
+    @BeforeEach
+    public void setup() {
+        delegate = mock(AccountService.class);
+        transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(transactionRunner).inTransaction(any(Runnable.class));
+        metrics = new MetricRegistry();
+        accountService = new RetryingAccountService(delegate, transactionRunner, MAX_ATTEMPTS, 1_000, 10_000, metrics);
+    }
+
+    private long count(String name) {
+        return metrics.counter(MetricRegistry.name(RetryingAccountService.class, name)).getCount();
+    }
+
+    @Test
+    public void testTransferIsRetriedAfterConflict() {
+        MoneyTransfer transfer = new MoneyTransfer(1, 2L, 50L, TransferType.ACCOUNT_TO_ACCOUNT);
+        doAnswer(invocation -> {
+            transfer.setId(42);
+            throw new OptimisticLockException();
+        }).doNothing().when(delegate).transferMoney(transfer);
+
+        accountService.transferMoney(transfer);
+
+        verify(delegate, times(2)).transferMoney(transfer);
+        verify(transactionRunner, times(2)).inTransaction(any(Runnable.class));
+        assertThat(transfer.getId()).isZero();
+        assertThat(count("conflicts")).isEqualTo(1);
+        assertThat(count("retries")).isEqualTo(1);
+        assertThat(count("exhausted")).isZero();
+    }
+
+    @Test
+    public void testWrappedStaleStateIsAConflict() {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 50L, TransferType.DEPOSIT);
+        doThrow(new IllegalStateException(new StaleObjectStateException("Account", 1L)))
+            .doNothing().when(delegate).transferMoney(transfer);
+
+        accountService.transferMoney(transfer);
+
+        verify(delegate, times(2)).transferMoney(transfer);
+        assertThat(count("conflicts")).isEqualTo(1);
+    }
+
+    @Test
+    public void testConflictIsReportedAfterMaxAttempts() {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 50L, TransferType.WITHDRAW);
+        doThrow(new OptimisticLockException()).when(delegate).transferMoney(transfer);
+
+        ClientErrorException e = Assertions.assertThrows(ClientErrorException.class,
+            () -> accountService.transferMoney(transfer));
+
+        assertThat(e.getResponse().getStatus()).isEqualTo(409);
+        verify(delegate, times(MAX_ATTEMPTS)).transferMoney(transfer);
+        assertThat(count("conflicts")).isEqualTo(MAX_ATTEMPTS);
+        assertThat(count("retries")).isEqualTo(MAX_ATTEMPTS - 1);
+        assertThat(count("exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    public void testOtherFailuresAreNotRetried() {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, 50L, TransferType.WITHDRAW);
+        doThrow(new InsufficientBalanceForTransferException("Insufficient")).when(delegate).transferMoney(transfer);
+
+        Assertions.assertThrows(InsufficientBalanceForTransferException.class,
+            () -> accountService.transferMoney(transfer));
+
+        verify(delegate).transferMoney(transfer);
+        assertThat(count("conflicts")).isZero();
+    }
+
+    @Test
+    public void testReadsArePassedThrough() {
+        accountService.getAccount(1L);
+        accountService.getTransfers(1L);
+
+        verify(delegate).getAccount(1L);
+        verify(delegate).getTransfers(1L);
+        verify(transactionRunner, times(0)).inTransaction(any(Runnable.class));
+    }
+}
@@ -0,0 +1,209 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.ShardRouter;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.db.TransferReservationDAO;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferReservation;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.persistence.OptimisticLockException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShardedAccountServiceTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 3, 1, 12, 0);
+    private static final long SOURCE_ID = ShardRouter.firstId(0);
+    private static final long DESTINATION_ID = ShardRouter.firstId(1);
+
+    private AccountDAO[] accountDAOs;
+    private MoneyTransferDAO[] transferDAOs;
+    private TransferReservationDAO[] reservationDAOs;
+    private TransactionRunner transactionRunner;
+    private ShardedAccountService accountService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(transactionRunner).inTransaction(any(Runnable.class));
+        accountDAOs = new AccountDAO[]{mock(AccountDAO.class), mock(AccountDAO.class)};
+        transferDAOs = new MoneyTransferDAO[]{mock(MoneyTransferDAO.class), mock(MoneyTransferDAO.class)};
+        reservationDAOs = new TransferReservationDAO[]{
+            mock(TransferReservationDAO.class), mock(TransferReservationDAO.class)};
+        for (int i = 0; i < 2; i++) {
+            when(reservationDAOs[i].create(any())).thenAnswer(invocation -> invocation.getArgument(0));
+            when(reservationDAOs[i].findById(anyLong())).thenReturn(Optional.empty());
+        }
+        ShardRouter shards = new ShardRouter(List.of(
+            new ShardRouter.Shard(0, transactionRunner, accountDAOs[0], transferDAOs[0], reservationDAOs[0]),
+            new ShardRouter.Shard(1, transactionRunner, accountDAOs[1], transferDAOs[1], reservationDAOs[1])));
+        MetricRegistry metrics = new MetricRegistry();
+        accountService = new ShardedAccountService(shards, Duration.ofMinutes(1), Duration.ofDays(1),
+            Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC), metrics,
+            (service, runner) -> new RetryingAccountService(service, runner, 3, 0, 0, metrics));
+    }
+
+    private Account account(long id, long balance) {
+        Account account = new Account("John", "Doe", balance);
+        account.setId(id);
+        when(accountDAOs[ShardRouter.shardOf(id)].findById(id)).thenReturn(Optional.of(account));
+        return account;
+    }
+
+    private MoneyTransfer crossShardTransfer(long amount) {
+        MoneyTransfer transfer = new MoneyTransfer(SOURCE_ID, DESTINATION_ID, amount, TransferType.ACCOUNT_TO_ACCOUNT);
+        when(transferDAOs[0].create(transfer)).then(invocation -> {
+            transfer.setId(SOURCE_ID + 7);
+            return transfer;
+        });
+        return transfer;
+    }
+
+    @Test
+    public void testCrossShardTransferIsReservedCommittedAndReleased() {
+        Account source = account(SOURCE_ID, 100);
+        Account destination = account(DESTINATION_ID, 10);
+
+        accountService.transferMoney(crossShardTransfer(30));
+
+        assertThat(source.getBalance()).isEqualTo(70);
+        assertThat(destination.getBalance()).isEqualTo(40);
+        ArgumentCaptor<TransferReservation> reserved = ArgumentCaptor.forClass(TransferReservation.class);
+        verify(reservationDAOs[0]).create(reserved.capture());
+        assertThat(reserved.getValue().getState()).isEqualTo(TransferReservation.State.RESERVED);
+        ArgumentCaptor<TransferReservation> credited = ArgumentCaptor.forClass(TransferReservation.class);
+        verify(reservationDAOs[1]).create(credited.capture());
+        assertThat(credited.getValue().getState()).isEqualTo(TransferReservation.State.CREDITED);
+        assertThat(credited.getValue().getId()).isEqualTo(reserved.getValue().getId());
+        verify(transferDAOs[1]).create(any(MoneyTransfer.class));
+        verify(reservationDAOs[0]).delete(SOURCE_ID + 7, TransferReservation.State.RESERVED);
+    }
+
+    @Test
+    public void testInsufficientBalanceReservesNothing() {
+        account(SOURCE_ID, 10);
+        account(DESTINATION_ID, 10);
+
+        assertThatExceptionOfType(InsufficientBalanceForTransferException.class)
+            .isThrownBy(() -> accountService.transferMoney(crossShardTransfer(30)));
+
+        verify(reservationDAOs[0], never()).create(any());
+        verify(accountDAOs[1], never()).save(any());
+    }
+
+    @Test
+    public void testFailedCommitIsRecoveredOnce() {
+        Account source = account(SOURCE_ID, 100);
+        Account destination = account(DESTINATION_ID, 10);
+        when(transferDAOs[1].create(any())).thenThrow(new IllegalStateException("Connection reset"))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        accountService.transferMoney(crossShardTransfer(30));
+
+        assertThat(source.getBalance()).isEqualTo(70);
+        verify(reservationDAOs[0], never()).delete(anyLong(), any());
+        ArgumentCaptor<TransferReservation> reserved = ArgumentCaptor.forClass(TransferReservation.class);
+        verify(reservationDAOs[0]).create(reserved.capture());
+        when(reservationDAOs[0].findByStateBefore(eq(TransferReservation.State.RESERVED), any()))
+            .thenReturn(List.of(reserved.getValue()));
+        // The mocked account is not rolled back with the failed commit; start again from its stored balance.
+        destination.setBalance(10);
+
+        assertThat(accountService.recover()).isEqualTo(1);
+        assertThat(destination.getBalance()).isEqualTo(40);
+        verify(reservationDAOs[0]).delete(SOURCE_ID + 7, TransferReservation.State.RESERVED);
+
+        // Recovered again, e.g. by another node: the CREDITED row keeps it from being applied twice.
+        when(reservationDAOs[1].findById(SOURCE_ID + 7)).thenReturn(Optional.of(reserved.getValue().credited()));
+        accountService.recover();
+        assertThat(destination.getBalance()).isEqualTo(40);
+        verify(transferDAOs[1], times(2)).create(any());
+    }
+
+    @Test
+    public void testSameShardTransferIsRetriedInOneTransactionAtATime() {
+        Account source = account(SOURCE_ID, 100);
+        Account destination = account(SOURCE_ID + 1, 10);
+        doThrow(new OptimisticLockException())
+            .doAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(0)).run();
+                return null;
+            })
+            .when(transactionRunner).inTransaction(any(Runnable.class));
+
+        accountService.transferMoney(
+            new MoneyTransfer(SOURCE_ID, SOURCE_ID + 1, 30L, TransferType.ACCOUNT_TO_ACCOUNT));
+
+        assertThat(source.getBalance()).isEqualTo(70);
+        assertThat(destination.getBalance()).isEqualTo(40);
+        verify(transactionRunner, times(2)).inTransaction(any(Runnable.class));
+        verify(transactionRunner, never()).inTransaction(any(Supplier.class));
+    }
+
+    @Test
+    public void testCreditedRowsArePrunedOnceReleased() {
+        TransferReservation released = credited(DESTINATION_ID + 1);
+        TransferReservation held = credited(DESTINATION_ID + 2);
+        when(reservationDAOs[0].findByStateBefore(eq(TransferReservation.State.CREDITED), any()))
+            .thenReturn(List.of(released, held));
+        when(reservationDAOs[1].findById(held.getId())).thenReturn(Optional.of(held));
+
+        accountService.recover();
+
+        verify(reservationDAOs[0]).findByStateBefore(TransferReservation.State.CREDITED, NOW.minusDays(1));
+        verify(reservationDAOs[0]).delete(released.getId(), TransferReservation.State.CREDITED);
+        verify(reservationDAOs[0], never()).delete(held.getId(), TransferReservation.State.CREDITED);
+    }
+
+    /**
+     * A transfer from shard 1 to shard 0, as credited on shard 0.
+     */
+    private TransferReservation credited(long id) {
+        MoneyTransfer transfer = new MoneyTransfer(DESTINATION_ID, SOURCE_ID, 30L, TransferType.ACCOUNT_TO_ACCOUNT);
+        transfer.setId(id);
+        transfer.setDateTime(NOW.minusDays(2));
+        return TransferReservation.reserve(transfer).credited();
+    }
+
+    @Test
+    public void testPagesContinueAcrossShards() {
+        Account first = account(SOURCE_ID, 0);
+        Account second = account(DESTINATION_ID, 0);
+        when(accountDAOs[0].findPage(0, 2)).thenReturn(List.of(first));
+        when(accountDAOs[1].findPage(0, 1)).thenReturn(List.of(second));
+
+        assertThat(accountService.listAccounts(0, 2)).containsExactly(first, second);
+    }
+}
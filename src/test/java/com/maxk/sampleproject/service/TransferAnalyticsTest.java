@@ -0,0 +1,114 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.AccountVolume;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferTotal;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TransferAnalyticsTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 12, 30);
+
+    private List<MoneyTransfer> table;
+    private TransferAnalytics analytics;
+
+    @BeforeEach
+    public void setup() {
+        table = new CopyOnWriteArrayList<>();
+        MoneyTransferDAO transferDAO = mock(MoneyTransferDAO.class);
+        when(transferDAO.findIdRange()).thenAnswer(invocation -> table.isEmpty() ? Optional.empty()
+            : Optional.of(new long[]{
+                table.stream().mapToLong(MoneyTransfer::getId).min().getAsLong(),
+                table.stream().mapToLong(MoneyTransfer::getId).max().getAsLong()}));
+        when(transferDAO.streamByIdRange(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            long fromId = invocation.getArgument(0);
+            long toId = invocation.getArgument(1);
+            Consumer<MoneyTransfer> consumer = invocation.getArgument(2);
+            return table.stream()
+                .filter(transfer -> transfer.getId() >= fromId && transfer.getId() < toId)
+                .peek(consumer)
+                .count();
+        });
+        TransactionRunner transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+        analytics = new TransferAnalytics(transferDAO, transactionRunner, null, 2,
+            Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        analytics.stop();
+    }
+
+    @Test
+    public void testScanAcrossIdRanges() {
+        insert(1, 1, null, 100, TransferType.DEPOSIT, NOW.minusHours(2));
+        insert(TransferAnalytics.SCAN_SPAN * 3, 1, 2L, 40, TransferType.ACCOUNT_TO_ACCOUNT, NOW.minusHours(1));
+        insert(TransferAnalytics.SCAN_SPAN * 5, 3, null, 500, TransferType.DEPOSIT, NOW);
+
+        analytics.build();
+
+        assertThat(analytics.isReady()).isTrue();
+        assertThat(analytics.topAccounts(2)).extracting(AccountVolume::getAccountId).containsExactly(3L, 1L);
+        assertThat(analytics.topAccounts(10)).extracting(AccountVolume::getVolume).containsExactly(500L, 140L, 40L);
+        assertThat(analytics.totalsByType()).extracting(TransferTotal::getTransferType, TransferTotal::getCount,
+            TransferTotal::getAmount).containsExactly(
+            tuple(TransferType.DEPOSIT, 2L, 600L),
+            tuple(TransferType.WITHDRAW, 0L, 0L),
+            tuple(TransferType.ACCOUNT_TO_ACCOUNT, 1L, 40L));
+        assertThat(analytics.throughput(4)).extracting(TransferTotal::getCount).containsExactly(0L, 1L, 1L, 1L);
+        assertThat(analytics.throughput(1).get(0).getHour()).isEqualTo(NOW.withMinute(0));
+    }
+
+    @Test
+    public void testTransfersCommittedDuringTheScanAreCountedOnce() {
+        MoneyTransfer seen = insert(1, 1, null, 100, TransferType.DEPOSIT, NOW);
+        analytics.record(seen);
+        MoneyTransfer unseen = new MoneyTransfer(2, null, 50, TransferType.DEPOSIT);
+        unseen.setId(2);
+        unseen.setDateTime(NOW);
+        analytics.record(unseen);
+        assertThat(analytics.isReady()).isFalse();
+
+        analytics.build();
+        MoneyTransfer after = new MoneyTransfer(1, null, 10, TransferType.WITHDRAW);
+        after.setId(3);
+        after.setDateTime(NOW);
+        analytics.record(after);
+
+        assertThat(analytics.topAccounts(10)).extracting(AccountVolume::getAccountId, AccountVolume::getVolume)
+            .containsExactly(tuple(1L, 110L),
+                tuple(2L, 50L));
+    }
+
+    private MoneyTransfer insert(long id, long accountId, Long destinationAccountId, long amount,
+                                 TransferType transferType, LocalDateTime dateTime) {
+        MoneyTransfer transfer = new MoneyTransfer(accountId, destinationAccountId, amount, transferType);
+        transfer.setId(id);
+        transfer.setDateTime(dateTime);
+        table.add(transfer);
+        return transfer;
+    }
+}
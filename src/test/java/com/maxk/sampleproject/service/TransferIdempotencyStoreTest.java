@@ -0,0 +1,161 @@
+package com.maxk.sampleproject.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.ClientErrorException;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TransferIdempotencyStoreTest {
+    private MoneyTransferDAO transferDAO;
+    private TransferIdempotencyStore store;
+    private AtomicInteger applied;
+
+    @BeforeEach
+    public void setup() {
+        transferDAO = mock(MoneyTransferDAO.class);
+        when(transferDAO.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        TransactionRunner transactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+        store = new TransferIdempotencyStore(Caffeine.newBuilder().maximumSize(100).build(), transferDAO,
+            transactionRunner, new MetricRegistry());
+        applied = new AtomicInteger();
+    }
+
+    private MoneyTransfer transfer(String key, long amount) {
+        MoneyTransfer transfer = new MoneyTransfer(1, null, amount, TransferType.DEPOSIT);
+        transfer.setIdempotencyKey(key);
+        return transfer;
+    }
+
+    private void apply(MoneyTransfer transfer) {
+        transfer.setId(applied.incrementAndGet());
+    }
+
+    @Test
+    public void testTransfersWithoutKeyAreAlwaysApplied() {
+        store.transferMoney(transfer(null, 100L), this::apply);
+        store.transferMoney(transfer(null, 100L), this::apply);
+
+        assertThat(applied.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDuplicateKeyReplaysTheFirstTransfer() {
+        MoneyTransfer first = transfer("key", 100L);
+        MoneyTransfer retry = transfer("key", 100L);
+
+        store.transferMoney(first, this::apply);
+        store.transferMoney(retry, this::apply);
+
+        assertThat(applied.get()).isEqualTo(1);
+        assertThat(retry.getId()).isEqualTo(first.getId());
+    }
+
+    @Test
+    public void testRejectionIsReplayed() {
+        InsufficientBalanceForTransferException rejection = new InsufficientBalanceForTransferException("Insufficient");
+        MoneyTransfer first = transfer("key", 100L);
+
+        Assertions.assertThrows(InsufficientBalanceForTransferException.class, () -> store.transferMoney(first,
+            transfer -> {
+                applied.incrementAndGet();
+                throw rejection;
+            }));
+        InsufficientBalanceForTransferException replayed = Assertions.assertThrows(
+            InsufficientBalanceForTransferException.class, () -> store.transferMoney(transfer("key", 100L), this::apply));
+        InsufficientBalanceForTransferException replayedAgain = Assertions.assertThrows(
+            InsufficientBalanceForTransferException.class, () -> store.transferMoney(transfer("key", 100L), this::apply));
+
+        assertThat(replayed).isNotSameAs(rejection).hasMessage("Insufficient");
+        assertThat(replayedAgain).isNotSameAs(replayed).hasMessage("Insufficient");
+        assertThat(applied.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUnexpectedFailureIsNotRemembered() {
+        Assertions.assertThrows(IllegalStateException.class, () -> store.transferMoney(transfer("key", 100L),
+            transfer -> {
+                throw new IllegalStateException("Connection reset");
+            }));
+        store.transferMoney(transfer("key", 100L), this::apply);
+
+        assertThat(applied.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testKeyReusedForAnotherTransferIsRejected() {
+        store.transferMoney(transfer("key", 100L), this::apply);
+
+        ClientErrorException e = Assertions.assertThrows(ClientErrorException.class,
+            () -> store.transferMoney(transfer("key", 200L), this::apply));
+
+        assertThat(e.getResponse().getStatus()).isEqualTo(422);
+        assertThat(applied.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStoredTransferIsFoundByKey() {
+        MoneyTransfer stored = transfer("key", 100L);
+        stored.setId(42);
+        when(transferDAO.findByIdempotencyKey("key")).thenReturn(Optional.of(stored));
+        MoneyTransfer retry = transfer("key", 100L);
+
+        store.transferMoney(retry, this::apply);
+
+        assertThat(applied.get()).isZero();
+        assertThat(retry.getId()).isEqualTo(42);
+    }
+
+    @Test
+    public void testConcurrentDuplicatesAreAppliedOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> store.transferMoney(transfer("key", 100L), transfer -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                apply(transfer);
+            }));
+            started.await();
+            Future<?> second = executor.submit(() -> store.transferMoney(transfer("key", 100L), this::apply));
+            Thread.sleep(50);
+            release.countDown();
+
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(applied.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,115 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.InsufficientBalanceForTransferException;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class TransferSequencerTest {
+
+    public DAOTestExtension daoTestRule = DAOTestExtension.newBuilder()
+        .addEntityClass(Account.class)
+        .addEntityClass(MoneyTransfer.class)
+        .build();
+
+    private AccountDAO accountDAO;
+    private MoneyTransferDAO transferDAO;
+    private TransferSequencer transferSequencer;
+    private Account account;
+
+    @BeforeEach
+    public void setUp() {
+        accountDAO = new AccountDAO(daoTestRule.getSessionFactory());
+        transferDAO = new MoneyTransferDAO(daoTestRule.getSessionFactory());
+        account = daoTestRule.inTransaction(() -> accountDAO.save(new Account("John", "Doe", 100L)));
+        transferSequencer = new TransferSequencer(new AccountServiceImpl(accountDAO, transferDAO),
+            new TransactionRunner(daoTestRule.getSessionFactory()), 1024, 16, TimeUnit.MILLISECONDS.toNanos(1));
+        transferSequencer.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        transferSequencer.stop();
+    }
+
+    @Test
+    public void testTransfersAreCommittedInOrder() {
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(transferSequencer.submit(new MoneyTransfer(account.getId(), null, 1L, TransferType.DEPOSIT)));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+        assertThat(balance(account.getId())).isEqualTo(200L);
+        assertThat(transferDAO.getByAccountId(account.getId())).hasSize(100);
+    }
+
+    @Test
+    public void testRejectedTransferDoesNotFailItsBatch() {
+        CompletableFuture<Void> withdraw = transferSequencer.submit(
+            new MoneyTransfer(account.getId(), null, 1000L, TransferType.WITHDRAW));
+        CompletableFuture<Void> deposit = transferSequencer.submit(
+            new MoneyTransfer(account.getId(), null, 10L, TransferType.DEPOSIT));
+
+        assertThatExceptionOfType(CompletionException.class).isThrownBy(withdraw::join)
+            .withCauseInstanceOf(InsufficientBalanceForTransferException.class);
+        deposit.join();
+
+        assertThat(balance(account.getId())).isEqualTo(110L);
+        assertThat(transferDAO.getByAccountId(account.getId())).hasSize(1);
+    }
+
+    @Test
+    public void testFailedGroupIsCommittedOneByOne() throws Exception {
+        Account full = daoTestRule.inTransaction(() -> accountDAO.save(new Account("Jane", "Doe", Long.MAX_VALUE)));
+        TransferSequencer pairs = new TransferSequencer(new AccountServiceImpl(accountDAO, transferDAO),
+            new TransactionRunner(daoTestRule.getSessionFactory()), 1024, 2, TimeUnit.SECONDS.toNanos(10));
+        pairs.start();
+        try {
+            CompletableFuture<Void> deposit = pairs.submit(
+                new MoneyTransfer(account.getId(), null, 10L, TransferType.DEPOSIT));
+            CompletableFuture<Void> overflow = pairs.submit(
+                new MoneyTransfer(full.getId(), null, 1L, TransferType.DEPOSIT));
+
+            deposit.join();
+            assertThatExceptionOfType(CompletionException.class).isThrownBy(overflow::join)
+                .withCauseInstanceOf(ArithmeticException.class);
+        } finally {
+            pairs.stop();
+        }
+
+        assertThat(balance(account.getId())).isEqualTo(110L);
+        assertThat(transferDAO.getByAccountId(account.getId())).hasSize(1);
+        assertThat(balance(full.getId())).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testTransferMoneyRethrowsFailure() {
+        assertThatExceptionOfType(InsufficientBalanceForTransferException.class).isThrownBy(() ->
+            transferSequencer.transferMoney(new MoneyTransfer(account.getId(), null, 1000L, TransferType.WITHDRAW)));
+    }
+
+    private long balance(long accountId) {
+        daoTestRule.getSessionFactory().getCurrentSession().clear();
+        return accountDAO.findById(accountId).orElseThrow().getBalance();
+    }
+}
@@ -0,0 +1,163 @@
+package com.maxk.sampleproject.service;
+
+import com.maxk.sampleproject.db.AccountDAO;
+import com.maxk.sampleproject.db.MoneyTransferDAO;
+import com.maxk.sampleproject.db.TransactionRunner;
+import com.maxk.sampleproject.health.WarmUpHealthCheck;
+import com.maxk.sampleproject.model.Account;
+import com.maxk.sampleproject.model.MoneyTransfer;
+import com.maxk.sampleproject.model.TransferType;
+import io.dropwizard.jackson.Jackson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WarmUpTest {
+    private final AccountService accountService = mock(AccountService.class);
+    private final AccountService writeService = mock(AccountService.class);
+    private final AccountDAO accountDAO = mock(AccountDAO.class);
+    private final MoneyTransferDAO transferDAO = mock(MoneyTransferDAO.class);
+    private final TransactionRunner transactionRunner = mock(TransactionRunner.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        doAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get())
+            .when(transactionRunner).inTransaction(any(Supplier.class));
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(transactionRunner).inTransaction(any(Runnable.class));
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(transactionRunner).inRolledBackTransaction(any(Runnable.class));
+        when(transferDAO.findIdRange()).thenReturn(Optional.of(new long[]{1, 1}));
+        when(transferDAO.streamByIdRange(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            Consumer<MoneyTransfer> consumer = invocation.getArgument(2);
+            consumer.accept(new MoneyTransfer(7, 8L, 100L, TransferType.ACCOUNT_TO_ACCOUNT));
+            return 1L;
+        });
+        when(accountService.getAccount(anyLong())).thenAnswer(invocation -> account(invocation.getArgument(0)));
+        when(writeService.createAccount(any(Account.class))).thenAnswer(invocation -> {
+            Account account = invocation.getArgument(0);
+            account.setId(100);
+            return account;
+        });
+    }
+
+    @Test
+    public void testWarmsUpTheAccountsOfRecentTransfers() throws Exception {
+        WarmUp warmUp = warmUp(writeService, 20, Duration.ofMinutes(1));
+        WarmUpHealthCheck healthCheck = new WarmUpHealthCheck(warmUp);
+        assertThat(healthCheck.execute().isHealthy()).isFalse();
+
+        warmUp.run();
+
+        assertThat(warmUp.isDone()).isTrue();
+        assertThat(healthCheck.execute().isHealthy()).isTrue();
+        verify(accountService, times(10)).getAccount(7);
+        verify(accountService, times(10)).getTransfers(8);
+        verify(transactionRunner, times(2)).inRolledBackTransaction(any(Runnable.class));
+        verify(writeService, times(4)).createAccount(any(Account.class));
+        verify(writeService, times(6)).transferMoney(any(MoneyTransfer.class));
+        verify(accountDAO, never()).findPage(anyLong(), anyInt());
+    }
+
+    @Test
+    public void testReadsOnlyWithoutWriteService() {
+        warmUp(null, 20, Duration.ofMinutes(1)).run();
+
+        verify(transactionRunner, never()).inRolledBackTransaction(any(Runnable.class));
+    }
+
+    @Test
+    public void testFallsBackToFirstAccountsWithoutTransfers() {
+        when(transferDAO.findIdRange()).thenReturn(Optional.empty());
+        when(accountDAO.findPage(0, 100)).thenReturn(Collections.singletonList(account(3)));
+
+        warmUp(null, 1, Duration.ofMinutes(1)).run();
+
+        verify(accountService).getAccount(3);
+    }
+
+    @Test
+    public void testFailureStillEndsTheWarmUp() {
+        when(accountService.getAccount(anyLong())).thenThrow(new IllegalStateException("broken"));
+        WarmUp warmUp = warmUp(null, 20, Duration.ofMinutes(1));
+
+        warmUp.run();
+
+        assertThat(warmUp.isDone()).isTrue();
+    }
+
+    @Test
+    public void testStopsAtTimeout() {
+        WarmUp warmUp = warmUp(null, Integer.MAX_VALUE, Duration.ZERO);
+
+        warmUp.run();
+
+        assertThat(warmUp.isDone()).isTrue();
+        verify(accountService, never()).getAccount(anyLong());
+    }
+
+    @Test
+    public void testReadsGoThroughTheReadDatabase() {
+        TransactionRunner readTransactionRunner = mock(TransactionRunner.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(readTransactionRunner).inTransaction(any(Runnable.class));
+
+        new WarmUp(accountService, null, accountDAO, transferDAO, transactionRunner, readTransactionRunner,
+            Jackson.newObjectMapper(), 2, 3, 100, 20, Duration.ofMinutes(1)).run();
+
+        // Three connections held on the replica, and one read transaction per iteration plus the page reads.
+        verify(readTransactionRunner, times(3 + 20 + 2)).inTransaction(any(Runnable.class));
+        verify(transactionRunner, times(2)).inTransaction(any(Runnable.class));
+        verify(accountService, times(10)).getAccount(7);
+    }
+
+    @Test
+    public void testFailedConnectionReleasesTheOthers() {
+        doThrow(new IllegalStateException("Pool exhausted"))
+            .doAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(0)).run();
+                return null;
+            }).when(transactionRunner).inTransaction(any(Runnable.class));
+        WarmUp warmUp = warmUp(null, 1, Duration.ofMinutes(1));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), warmUp::run);
+
+        assertThat(warmUp.isDone()).isTrue();
+    }
+
+    private WarmUp warmUp(AccountService writeService, int iterations, Duration timeout) {
+        return new WarmUp(accountService, writeService, accountDAO, transferDAO, transactionRunner,
+            transactionRunner, Jackson.newObjectMapper(), 2, 2, 100, iterations, timeout);
+    }
+
+    private static Account account(long id) {
+        Account account = new Account("John", "Doe", 100L);
+        account.setId(id);
+        return account;
+    }
+}